@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.notification;
+
+import android.annotation.Nullable;
+import android.annotation.UserIdInt;
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.media.AudioAttributes;
+import android.media.SoundPool;
+import android.net.Uri;
+import android.util.Log;
+import android.util.LruCache;
+import android.util.SparseArray;
+
+import com.android.internal.annotations.VisibleForTesting;
+
+import java.io.IOException;
+
+/**
+ * Keeps the recently played alert sounds decoded in a {@link SoundPool}, keyed by sound uri and
+ * user, so that the next alert with the same sound starts playing right away instead of waiting
+ * for a {@link android.media.MediaPlayer} to be created and prepared.
+ *
+ * <p> A sound is added once it has been played through a MediaPlayer, which also tells its
+ * duration. Sounds longer than {@link #MAX_SOUND_DURATION_MS} are not cached, as the pool only
+ * holds short decoded sounds.
+ */
+class AlertSoundCache implements SoundPool.OnLoadCompleteListener {
+    private static final String TAG = "AlertSoundCache";
+    private static final long MAX_SOUND_DURATION_MS = 5000;
+    private static final int PRIORITY = 1;
+
+    /** A decoded sound in the pool. */
+    static final class Sound {
+        private final String mKey;
+        private final int mSoundId;
+        private final long mDurationMs;
+        private boolean mLoaded;
+
+        private Sound(String key, int soundId, long durationMs) {
+            mKey = key;
+            mSoundId = soundId;
+            mDurationMs = durationMs;
+        }
+
+        long getDurationMs() {
+            return mDurationMs;
+        }
+    }
+
+    private final SoundPool mSoundPool;
+    private final LruCache<String, Sound> mSounds;
+    private final SparseArray<Sound> mLoadingSounds = new SparseArray<>();
+
+    AlertSoundCache(Context context, AudioAttributes audioAttributes) {
+        this(new SoundPool.Builder()
+                        .setMaxStreams(1)
+                        .setAudioAttributes(audioAttributes)
+                        .build(),
+                context.getResources().getInteger(R.integer.config_alertSoundCacheSize));
+    }
+
+    @VisibleForTesting
+    AlertSoundCache(SoundPool soundPool, int maxSize) {
+        mSoundPool = soundPool;
+        mSoundPool.setOnLoadCompleteListener(this);
+        mSounds = new LruCache<String, Sound>(maxSize) {
+            @Override
+            protected void entryRemoved(boolean evicted, String key, Sound oldValue,
+                    Sound newValue) {
+                mLoadingSounds.remove(oldValue.mSoundId);
+                mSoundPool.unload(oldValue.mSoundId);
+            }
+        };
+    }
+
+    /**
+     * Returns the decoded sound for the uri and user, or {@code null} if it is not cached or still
+     * being decoded.
+     */
+    @Nullable
+    Sound get(Uri uri, @UserIdInt int userId) {
+        Sound sound = mSounds.get(getKey(uri, userId));
+        return sound != null && sound.mLoaded ? sound : null;
+    }
+
+    /**
+     * Starts decoding the sound into the pool, unless it is already cached or too long.
+     *
+     * @param userContext context of the user the sound is looked up for.
+     * @param durationMs duration of the sound as reported by the player that played it.
+     */
+    void put(Context userContext, Uri uri, @UserIdInt int userId, long durationMs) {
+        if (durationMs <= 0 || durationMs > MAX_SOUND_DURATION_MS) {
+            return;
+        }
+        String key = getKey(uri, userId);
+        if (mSounds.get(key) != null) {
+            return;
+        }
+        try (AssetFileDescriptor fileDescriptor =
+                     userContext.getContentResolver().openAssetFileDescriptor(uri, "r")) {
+            if (fileDescriptor == null) {
+                return;
+            }
+            // the pool duplicates the file descriptor, so it can be closed right away
+            int soundId = mSoundPool.load(fileDescriptor, PRIORITY);
+            if (soundId == 0) {
+                return;
+            }
+            Sound sound = new Sound(key, soundId, durationMs);
+            mLoadingSounds.put(soundId, sound);
+            mSounds.put(key, sound);
+        } catch (IOException | SecurityException e) {
+            Log.w(TAG, "Unable to cache sound " + uri, e);
+        }
+    }
+
+    /**
+     * Plays the sound once.
+     *
+     * @return the id of the stream the sound plays in, or {@code 0} if it could not be played.
+     */
+    int play(Sound sound) {
+        return mSoundPool.play(sound.mSoundId, /* leftVolume= */ 1f, /* rightVolume= */ 1f,
+                PRIORITY, /* loop= */ 0, /* rate= */ 1f);
+    }
+
+    /** Stops the stream returned by {@link #play}. */
+    void stop(int streamId) {
+        mSoundPool.stop(streamId);
+    }
+
+    @Override // SoundPool.OnLoadCompleteListener
+    public void onLoadComplete(SoundPool soundPool, int soundId, int status) {
+        Sound sound = mLoadingSounds.get(soundId);
+        if (sound == null) {
+            // evicted while loading
+            return;
+        }
+        mLoadingSounds.remove(soundId);
+        if (status == 0) {
+            sound.mLoaded = true;
+        } else {
+            Log.w(TAG, "Unable to decode sound " + soundId + ", status " + status);
+            mSounds.remove(sound.mKey);
+        }
+    }
+
+    private static String getKey(Uri uri, @UserIdInt int userId) {
+        return userId + ":" + uri;
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.notification;
+
+import android.annotation.Nullable;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.Icon;
+import android.net.Uri;
+import android.os.UserHandle;
+import android.service.notification.StatusBarNotification;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.android.internal.annotations.VisibleForTesting;
+
+import java.io.PrintWriter;
+
+/**
+ * Size-bounded cache for the app icons and application labels shown in notification headers.
+ *
+ * <p> Icons are keyed by the posting package, the icon resource or URI and the user, and are kept
+ * as {@link Drawable.ConstantState}s so that every view gets its own drawable instance. Labels are
+ * keyed by package and user. Bitmap and data icons are not cached since they are already decoded
+ * by the time the notification is posted. All the entries of a package are dropped when that
+ * package is added, removed or replaced.
+ */
+public class AppResourceCache {
+    private static final String TAG = "AppResourceCache";
+    private static final String KEY_SEPARATOR = "/";
+
+    private static AppResourceCache sInstance;
+
+    private final Context mContext;
+    private final PackageManager mPackageManager;
+    private final LruCache<String, Drawable.ConstantState> mIcons;
+    private final LruCache<String, String> mLabels;
+
+    private final BroadcastReceiver mPackageChangedReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            Uri data = intent.getData();
+            if (data != null) {
+                invalidatePackage(data.getSchemeSpecificPart());
+            }
+        }
+    };
+
+    @VisibleForTesting
+    AppResourceCache(Context context) {
+        mContext = context;
+        mPackageManager = context.getPackageManager();
+        mIcons = new LruCache<>(
+                context.getResources().getInteger(R.integer.config_appIconCacheSize));
+        mLabels = new LruCache<>(
+                context.getResources().getInteger(R.integer.config_appLabelCacheSize));
+
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        filter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        filter.addDataScheme("package");
+        context.registerReceiverAsUser(mPackageChangedReceiver, UserHandle.ALL, filter,
+                /* broadcastPermission= */ null, /* scheduler= */ null);
+    }
+
+    public static AppResourceCache getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new AppResourceCache(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * Returns a new drawable of the given icon if it is cached, {@code null} otherwise.
+     *
+     * @param statusBarNotification the notification the icon belongs to.
+     * @param icon the icon to be looked up.
+     */
+    @Nullable
+    public Drawable getCachedIcon(StatusBarNotification statusBarNotification, Icon icon) {
+        String key = getIconKey(
+                statusBarNotification.getPackageName(), statusBarNotification.getUserId(), icon);
+        if (key == null) {
+            return null;
+        }
+        Drawable.ConstantState constantState = mIcons.get(key);
+        return constantState != null ? constantState.newDrawable() : null;
+    }
+
+    /**
+     * Loads the given icon from the context of the posting package and caches it. May be called
+     * from a background thread.
+     *
+     * @param statusBarNotification the notification the icon belongs to.
+     * @param icon the icon to be loaded.
+     */
+    @Nullable
+    public Drawable loadIcon(StatusBarNotification statusBarNotification, Icon icon) {
+        Drawable drawable = icon.loadDrawable(statusBarNotification.getPackageContext(mContext));
+        String key = getIconKey(
+                statusBarNotification.getPackageName(), statusBarNotification.getUserId(), icon);
+        if (key != null && drawable != null && drawable.getConstantState() != null) {
+            mIcons.put(key, drawable.getConstantState());
+        }
+        return drawable;
+    }
+
+    /**
+     * Returns the application label of the given package.
+     *
+     * @return application label. Returns {@code null} when application name is not found.
+     */
+    @Nullable
+    public String loadLabel(String packageName, int userId) {
+        String key = packageName + KEY_SEPARATOR + userId;
+        String label = mLabels.get(key);
+        if (label != null) {
+            return label;
+        }
+
+        ApplicationInfo info;
+        try {
+            info = mPackageManager.getApplicationInfoAsUser(packageName, /* flags= */ 0, userId);
+        } catch (PackageManager.NameNotFoundException e) {
+            Log.e(TAG, "Error fetching app name in car notification header" + e);
+            return null;
+        }
+        label = String.valueOf(mPackageManager.getApplicationLabel(info));
+        mLabels.put(key, label);
+        return label;
+    }
+
+    /**
+     * Drops all the cached icons and labels of the given package for all users.
+     */
+    @VisibleForTesting
+    void invalidatePackage(String packageName) {
+        String prefix = packageName + KEY_SEPARATOR;
+        for (String key : mIcons.snapshot().keySet()) {
+            if (key.startsWith(prefix)) {
+                mIcons.remove(key);
+            }
+        }
+        for (String key : mLabels.snapshot().keySet()) {
+            if (key.startsWith(prefix)) {
+                mLabels.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Prints the size and the hit rate of the caches.
+     */
+    public void dump(PrintWriter pw) {
+        pw.println(TAG + ":");
+        dumpCache(pw, "icons", mIcons);
+        dumpCache(pw, "labels", mLabels);
+    }
+
+    private static void dumpCache(PrintWriter pw, String name, LruCache<?, ?> cache) {
+        int hits = cache.hitCount();
+        int requests = hits + cache.missCount();
+        pw.println("  " + name + ": size=" + cache.size() + "/" + cache.maxSize()
+                + " hits=" + hits + " misses=" + cache.missCount()
+                + " hitRate=" + (requests == 0 ? 0 : hits * 100 / requests) + "%");
+    }
+
+    /**
+     * Returns the cache key of the given icon, or {@code null} if the icon should not be cached.
+     */
+    @Nullable
+    private static String getIconKey(String packageName, int userId, Icon icon) {
+        switch (icon.getType()) {
+            case Icon.TYPE_RESOURCE:
+                return packageName + KEY_SEPARATOR + userId + KEY_SEPARATOR
+                        + icon.getResPackage() + ":" + icon.getResId();
+            case Icon.TYPE_URI:
+                return packageName + KEY_SEPARATOR + userId + KEY_SEPARATOR + icon.getUriString();
+            default:
+                return null;
+        }
+    }
+}
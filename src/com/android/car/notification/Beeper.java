@@ -30,6 +30,8 @@ import android.media.Ringtone;
 import android.media.RingtoneManager;
 import android.net.Uri;
 import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
 import android.os.UserHandle;
 import android.service.notification.StatusBarNotification;
 import android.telephony.TelephonyManager;
@@ -37,6 +39,7 @@ import android.util.Log;
 
 import androidx.annotation.MainThread;
 import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
 
 import java.util.HashMap;
 
@@ -44,6 +47,10 @@ import java.util.HashMap;
  * Helper class for playing notification beeps. For Feature_automotive the sounds for notification
  * will be disabled at the server level and notification center will handle playing all the sounds
  * using this class.
+ *
+ * <p> Beeps are only requested on the main thread. Looking up, decoding and preparing the sound,
+ * audio focus and cleanup happen on an audio thread owned by this class, so that a heads-up
+ * notification appearing is not delayed by media work.
  */
 class Beeper {
     private static final String TAG = "Beeper";
@@ -54,7 +61,11 @@ class Beeper {
     private final AudioManager mAudioManager;
     private final Uri mInCallSoundToPlayUri;
     private final CarUserManagerHelper mCarUserManagerHelper;
-    private AudioAttributes mPlaybackAttributes;
+    private final AudioAttributes mPlaybackAttributes;
+    private final Handler mHandler;
+
+    /** Created on the audio thread, so that the sound pool reports loaded sounds there. */
+    private AlertSoundCache mSoundCache;
 
     private boolean mInCall;
 
@@ -75,6 +86,7 @@ class Beeper {
      */
     private final HashMap<String, Long> packageLastPostedTime;
 
+    /** Only accessed on the audio thread. */
     @Nullable
     private BeepRecord currentBeep;
 
@@ -84,6 +96,14 @@ class Beeper {
         mInCallSoundToPlayUri = Uri.parse("file://" + context.getResources().getString(
                 com.android.internal.R.string.config_inCallNotificationSound));
         mCarUserManagerHelper = new CarUserManagerHelper(context);
+        mPlaybackAttributes = new AudioAttributes.Builder()
+                .setUsage(AudioAttributes.USAGE_NOTIFICATION)
+                .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                .build();
+        HandlerThread audioThread = new HandlerThread(TAG, Process.THREAD_PRIORITY_AUDIO);
+        audioThread.start();
+        mHandler = new Handler(audioThread.getLooper());
+        mHandler.post(() -> mSoundCache = new AlertSoundCache(context, mPlaybackAttributes));
         packageLastPostedTime = new HashMap<>();
         IntentFilter filter = new IntentFilter();
         filter.addAction(TelephonyManager.ACTION_PHONE_STATE_CHANGED);
@@ -106,12 +126,14 @@ class Beeper {
         }
 
         packageLastPostedTime.put(packageName, System.currentTimeMillis());
-        stopBeeping();
-        if (mInCall) {
-            currentBeep = new BeepRecord(mInCallSoundToPlayUri);
-        } else {
-            currentBeep = new BeepRecord(soundToPlay);
-        }
+        Uri beepUri = mInCall ? mInCallSoundToPlayUri : soundToPlay;
+        mHandler.post(() -> playBeep(beepUri));
+    }
+
+    @WorkerThread
+    private void playBeep(Uri beepUri) {
+        stopCurrentBeep();
+        currentBeep = new BeepRecord(beepUri, mCarUserManagerHelper.getCurrentForegroundUserId());
         currentBeep.play();
     }
 
@@ -128,20 +150,37 @@ class Beeper {
 
     @MainThread
     void stopBeeping() {
+        mHandler.post(this::stopCurrentBeep);
+    }
+
+    @WorkerThread
+    private void stopCurrentBeep() {
         if (currentBeep != null) {
             currentBeep.stop();
             currentBeep = null;
         }
     }
 
-    /** A class that represents a beep through its lifecycle. */
+    /**
+     * A class that represents a beep through its lifecycle. A sound that is cached in the
+     * {@link AlertSoundCache} is played from there, otherwise it is played through a
+     * {@link MediaPlayer} and added to the cache for the next time.
+     */
     private final class BeepRecord implements MediaPlayer.OnPreparedListener,
             MediaPlayer.OnErrorListener, MediaPlayer.OnCompletionListener,
             AudioManager.OnAudioFocusChangeListener {
 
         private final Uri mBeepUri;
+        private final int mUserId;
         private final int mBeepStream;
-        private final MediaPlayer mPlayer;
+        private final Runnable mCleanUpRunnable = this::cleanUp;
+
+        /** Only set if the sound is not cached. */
+        @Nullable
+        private MediaPlayer mPlayer;
+
+        /** Only set if the sound is played from the cache. */
+        private int mStreamId;
 
         /** Only set in case of an error. See {@link #playViaRingtoneManager}. */
         @Nullable
@@ -154,28 +193,31 @@ class Beeper {
          * Create a new {@link BeepRecord} that will play the given sound.
          *
          * @param beepUri The sound to play.
+         * @param userId The user the sound is looked up for.
          */
-        public BeepRecord(Uri beepUri) {
+        public BeepRecord(Uri beepUri, int userId) {
             this.mBeepUri = beepUri;
+            this.mUserId = userId;
             this.mBeepStream = AudioManager.STREAM_MUSIC;
-            mPlayer = new MediaPlayer();
-            mPlayer.setOnPreparedListener(this);
-            mPlayer.setOnCompletionListener(this);
-            mPlayer.setOnErrorListener(this);
         }
 
         /** Start playing the sound. */
-        @MainThread
+        @WorkerThread
         public void play() {
             if (DEBUG) {
                 Log.d(TAG, "playing sound: ");
             }
+            AlertSoundCache.Sound sound = mSoundCache.get(mBeepUri, mUserId);
+            if (sound != null) {
+                playFromCache(sound);
+                return;
+            }
+            mPlayer = new MediaPlayer();
+            mPlayer.setOnPreparedListener(this);
+            mPlayer.setOnCompletionListener(this);
+            mPlayer.setOnErrorListener(this);
             try {
-                mPlayer.setDataSource(getContextForForegroundUser(), mBeepUri);
-                mPlaybackAttributes = new AudioAttributes.Builder()
-                        .setUsage(AudioAttributes.USAGE_NOTIFICATION)
-                        .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
-                        .build();
+                mPlayer.setDataSource(getContextForUser(), mBeepUri);
                 mPlayer.setAudioAttributes(mPlaybackAttributes);
                 mPlayer.prepareAsync();
             } catch (Exception e) {
@@ -184,11 +226,34 @@ class Beeper {
             }
         }
 
+        /**
+         * Play the decoded sound from the cache once audio focus is gained, and clean up when its
+         * duration has passed.
+         */
+        private void playFromCache(AlertSoundCache.Sound sound) {
+            if (!requestAudioFocus()) {
+                cleanUp();
+                return;
+            }
+            mStreamId = mSoundCache.play(sound);
+            if (mStreamId == 0) {
+                Log.d(TAG, "playing via sound pool failed, using ringtone manager");
+                handleError();
+                return;
+            }
+            mHandler.postDelayed(mCleanUpRunnable, sound.getDurationMs());
+        }
+
         /** Stop the currently playing sound, if it's playing. If it isn't, do nothing. */
-        @MainThread
+        @WorkerThread
         public void stop() {
-            if (!mCleanedUp && mPlayer.isPlaying()) {
-                mPlayer.stop();
+            if (!mCleanedUp) {
+                if (mStreamId != 0) {
+                    mSoundCache.stop(mStreamId);
+                }
+                if (mPlayer != null && mPlayer.isPlaying()) {
+                    mPlayer.stop();
+                }
             }
 
             if (mRingtone != null) {
@@ -204,19 +269,25 @@ class Beeper {
             if (mCleanedUp) {
                 return;
             }
+            if (requestAudioFocus()) {
+                // Only play the sound if we actually gained audio focus.
+                mPlayer.start();
+                mSoundCache.put(getContextForUser(), mBeepUri, mUserId, mPlayer.getDuration());
+            } else {
+                cleanUp();
+            }
+        }
+
+        /** Request transient audio focus, returning whether it was granted. */
+        private boolean requestAudioFocus() {
             AudioFocusRequest focusRequest = new AudioFocusRequest.Builder(
                     AudioManager.AUDIOFOCUS_GAIN_TRANSIENT_MAY_DUCK)
                     .setAudioAttributes(mPlaybackAttributes)
-                    .setOnAudioFocusChangeListener(this, new Handler())
+                    .setOnAudioFocusChangeListener(this, mHandler)
                     .build();
 
             mAudiofocusRequestFailed = mAudioManager.requestAudioFocus(focusRequest);
-            if (mAudiofocusRequestFailed == AudioManager.AUDIOFOCUS_REQUEST_GRANTED) {
-                // Only play the sound if we actually gained audio focus.
-                mPlayer.start();
-            } else {
-                cleanUp();
-            }
+            return mAudiofocusRequestFailed == AudioManager.AUDIOFOCUS_REQUEST_GRANTED;
         }
 
         /** Handle completion by cleaning up our state. */
@@ -243,12 +314,12 @@ class Beeper {
 
         /**
          * Notifications is running in the system process, so we want to make sure we lookup sounds
-         * in the foreground user's space.
+         * in the space of the user that was in the foreground when the beep was requested.
          */
-        private Context getContextForForegroundUser() {
+        private Context getContextForUser() {
             try {
                 return mContext.createPackageContextAsUser(mContext.getPackageName(), /* flags= */
-                        0, UserHandle.of(mCarUserManagerHelper.getCurrentForegroundUserId()));
+                        0, UserHandle.of(mUserId));
             } catch (PackageManager.NameNotFoundException e) {
                 throw new RuntimeException(e);
             }
@@ -262,11 +333,14 @@ class Beeper {
 
         /** Clean up and release our state. */
         private void cleanUp() {
+            mHandler.removeCallbacks(mCleanUpRunnable);
             if (mAudiofocusRequestFailed == AudioManager.AUDIOFOCUS_REQUEST_GRANTED) {
                 mAudioManager.abandonAudioFocus(this);
                 mAudiofocusRequestFailed = AudioManager.AUDIOFOCUS_REQUEST_FAILED;
             }
-            mPlayer.release();
+            if (mPlayer != null) {
+                mPlayer.release();
+            }
             mCleanedUp = true;
         }
 
@@ -279,7 +353,7 @@ class Beeper {
          * MediaPlayer before we give up and hand over to RingtoneManager.
          */
         private void playViaRingtoneManager() {
-            mRingtone = RingtoneManager.getRingtone(getContextForForegroundUser(), mBeepUri);
+            mRingtone = RingtoneManager.getRingtone(getContextForUser(), mBeepUri);
             if (mRingtone != null) {
                 mRingtone.setStreamType(mBeepStream);
                 mRingtone.play();
@@ -15,44 +15,41 @@
  */
 package com.android.car.notification;
 
-import static com.android.car.assist.client.CarAssistUtils.isCarCompatibleMessagingNotification;
-
-import android.animation.Animator;
-import android.animation.AnimatorListenerAdapter;
-import android.animation.AnimatorSet;
-import android.animation.ObjectAnimator;
-import android.app.KeyguardManager;
+import android.annotation.Nullable;
 import android.app.Notification;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
+import android.app.PendingIntent;
 import android.car.drivingstate.CarUxRestrictions;
 import android.car.drivingstate.CarUxRestrictionsManager;
 import android.car.userlib.CarUserManagerHelper;
 import android.content.Context;
+import android.content.Intent;
 import android.graphics.PixelFormat;
+import android.graphics.Region;
+import android.graphics.drawable.Icon;
 import android.os.Bundle;
+import android.os.Process;
 import android.service.notification.NotificationListenerService;
 import android.service.notification.StatusBarNotification;
+import android.util.ArrayMap;
 import android.util.Log;
 import android.view.Gravity;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewTreeObserver;
 import android.view.WindowManager;
-import android.view.animation.AnimationUtils;
-import android.view.animation.Interpolator;
 import android.widget.FrameLayout;
 
 import androidx.annotation.VisibleForTesting;
 
-import com.android.car.notification.template.BasicNotificationViewHolder;
-import com.android.car.notification.template.CallNotificationViewHolder;
-import com.android.car.notification.template.EmergencyNotificationViewHolder;
-import com.android.car.notification.template.InboxNotificationViewHolder;
+import com.android.car.notification.template.CarNotificationBaseViewHolder;
 import com.android.car.notification.template.MessageNotificationViewHolder;
-import com.android.car.notification.template.NavigationNotificationViewHolder;
+import com.android.car.notification.template.NotificationBindModelCache;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -61,23 +58,70 @@ import java.util.Map;
 public class CarHeadsUpNotificationManager
         implements CarUxRestrictionsManager.OnUxRestrictionsChangedListener {
     private static final String TAG = CarHeadsUpNotificationManager.class.getSimpleName();
+    // identifies the heads-up notification that stands in for expired queued ones
+    private static final String MERGED_HEADS_UP_TAG = "merged_heads_up";
+    private static final int MERGED_HEADS_UP_ID = 0;
+    // identifies, together with the package name, the heads-up notification that stands in for
+    // the notifications of a package that exceeded its heads-up budget
+    private static final String SUMMARY_HEADS_UP_TAG = "summary_heads_up:";
 
     private final Beeper mBeeper;
     private final Context mContext;
     private final boolean mEnableNavigationHeadsup;
     private final long mDuration;
     private final long mMinDisplayDuration;
-    private final long mEnterAnimationDuration;
-    private final long mAlphaEnterAnimationDuration;
-    private final long mExitAnimationDuration;
     private final int mNotificationHeadsUpCardMarginTop;
+    // maximum number of heads up notifications on the panel, or 0 for no limit
+    private int mMaxConcurrentHeadsUps;
+    private final long mQueueTimeout;
 
-    private final KeyguardManager mKeyguardManager;
     private final CarUserManagerHelper mCarUserManagerHelper;
+    private final HeadsUpEligibilityCache mEligibilityCache;
     private final PreprocessingManager mPreprocessingManager;
     private final WindowManager mWindowManager;
     private final LayoutInflater mInflater;
-
+    private final HeadsUpViewPool mHeadsUpViewPool;
+    private final NotificationBindModelCache mBindModelCache;
+    private final HeadsUpAnimator mHeadsUpAnimator;
+    private final HeadsUpQueue mHeadsUpQueue = new HeadsUpQueue();
+    private final HeadsUpLatencyTracker mLatencyTracker = HeadsUpLatencyTracker.getInstance();
+    private final HeadsUpTimerWheel mTimerWheel;
+    private final Runnable mExpireQueuedHeadsUps = this::expireQueuedHeadsUps;
+    @Nullable
+    private HeadsUpTimerWheel.Timeout mQueueExpiryTimeout;
+    private final List<HeadsUpQueue.PendingHeadsUp> mExpiredHeadsUps = new ArrayList<>();
+    // number of expired heads-up notifications folded into the merged heads-up notification
+    private int mMergedHeadsUpCount;
+    @Nullable
+    private String mMergedHeadsUpKey;
+    private final HeadsUpBudget mHeadsUpBudget;
+    // package name -> number of notifications folded into its summary heads-up notification
+    private final ArrayMap<String, Integer> mSummaryHeadsUpCounts = new ArrayMap<>();
+    // summary heads-up notification key -> package name
+    private final ArrayMap<String, String> mSummaryHeadsUpPackages = new ArrayMap<>();
+    @Nullable
+    private PendingIntent mNotificationCenterIntent;
+    private long mLastSyntheticPostTime;
+
+    // union of the cards of the shown heads-up notifications, recomputed when a card is added,
+    // removed or translated, or when a card, the content frame or the panel is laid out with
+    // different bounds
+    private final List<View> mCardViews = new ArrayList<>();
+    private final Region mTouchableRegion = new Region();
+    private final int[] mTmpTwoArray = new int[2];
+    private boolean mTouchableRegionDirty;
+    // whether the touchable region was last computed while a card was translated by a swipe
+    private boolean mTouchableRegionTranslated;
+    private final View.OnLayoutChangeListener mBoundsChangeListener =
+            (view, left, top, right, bottom, oldLeft, oldTop, oldRight, oldBottom) -> {
+                if (left != oldLeft || top != oldTop || right != oldRight
+                        || bottom != oldBottom) {
+                    mTouchableRegionDirty = true;
+                }
+            };
+    // reused to read rankings, see getRanking()
+    @Nullable
+    private NotificationListenerService.Ranking mRanking;
     private boolean mShouldRestrictMessagePreview;
     private NotificationClickHandlerFactory mClickHandlerFactory;
     private NotificationDataManager mNotificationDataManager;
@@ -92,7 +136,15 @@ public class CarHeadsUpNotificationManager
     public CarHeadsUpNotificationManager(Context context,
             NotificationClickHandlerFactory clickHandlerFactory,
             NotificationDataManager notificationDataManager) {
+        this(context, clickHandlerFactory, notificationDataManager, new HeadsUpTimerWheel());
+    }
+
+    @VisibleForTesting
+    CarHeadsUpNotificationManager(Context context,
+            NotificationClickHandlerFactory clickHandlerFactory,
+            NotificationDataManager notificationDataManager, HeadsUpTimerWheel timerWheel) {
         mContext = context.getApplicationContext();
+        mTimerWheel = timerWheel;
         mEnableNavigationHeadsup =
                 context.getResources().getBoolean(R.bool.config_showNavigationHeadsup);
         mClickHandlerFactory = clickHandlerFactory;
@@ -103,13 +155,15 @@ public class CarHeadsUpNotificationManager
                 R.dimen.headsup_notification_top_margin);
         mMinDisplayDuration = mContext.getResources().getInteger(
                 R.integer.heads_up_notification_minimum_time);
-        mEnterAnimationDuration =
-                mContext.getResources().getInteger(R.integer.headsup_total_enter_duration_ms);
-        mAlphaEnterAnimationDuration =
-                mContext.getResources().getInteger(R.integer.headsup_alpha_enter_duration_ms);
-        mExitAnimationDuration =
-                mContext.getResources().getInteger(R.integer.headsup_exit_duration_ms);
-        mKeyguardManager = (KeyguardManager) context.getSystemService(Context.KEYGUARD_SERVICE);
+        mHeadsUpAnimator = new HeadsUpAnimator(mContext);
+        mHeadsUpBudget = new HeadsUpBudget(
+                mContext.getResources().getInteger(R.integer.config_headsUpBudgetPerPackage),
+                mContext.getResources().getInteger(R.integer.config_headsUpBudgetGlobal),
+                mContext.getResources().getInteger(R.integer.config_headsUpBudgetWindowMs));
+        mMaxConcurrentHeadsUps =
+                mContext.getResources().getInteger(R.integer.config_maxConcurrentHeadsUps);
+        mQueueTimeout =
+                mContext.getResources().getInteger(R.integer.config_headsUpQueueTimeoutMs);
         mPreprocessingManager = PreprocessingManager.getInstance(context);
         mWindowManager =
                 (WindowManager) mContext.getSystemService(Context.WINDOW_SERVICE);
@@ -117,8 +171,17 @@ public class CarHeadsUpNotificationManager
         mActiveHeadsUpNotifications = new HashMap<>();
         mHeadsUpPanel = createHeadsUpPanel();
         mHeadsUpContentFrame = mHeadsUpPanel.findViewById(R.id.headsup_content);
+        mHeadsUpPanel.addOnLayoutChangeListener(mBoundsChangeListener);
+        mHeadsUpContentFrame.addOnLayoutChangeListener(mBoundsChangeListener);
         mCarUserManagerHelper = new CarUserManagerHelper(mContext);
+        mEligibilityCache = new HeadsUpEligibilityCache(mContext, mCarUserManagerHelper);
+        mHeadsUpViewPool = new HeadsUpViewPool(mContext, mClickHandlerFactory);
+        mBindModelCache = NotificationBindModelCache.getInstance(mContext);
         addHeadsUpPanelToDisplay();
+        // measure the size of the cards and make that area of the screen touchable
+        mHeadsUpPanel.getViewTreeObserver().addOnComputeInternalInsetsListener(
+                info -> setInternalInsetsInfo(info, /* panelExpanded= */ false));
+        mHeadsUpViewPool.start();
     }
 
     /**
@@ -152,6 +215,8 @@ public class CarHeadsUpNotificationManager
      */
     protected void setHeadsUpVisible() {
         mHeadsUpPanel.setVisibility(View.VISIBLE);
+        // keep the relative timestamps of the shown cards up to date
+        RelativeTimeScheduler.getInstance().setIsHeadsUpShown(true);
     }
 
     /**
@@ -162,6 +227,8 @@ public class CarHeadsUpNotificationManager
             NotificationListenerService.RankingMap rankingMap,
             Map<String, StatusBarNotification> activeNotifications) {
         if (!shouldShowHeadsUp(statusBarNotification, rankingMap)) {
+            mLatencyTracker.cancel(statusBarNotification.getKey());
+            mHeadsUpQueue.remove(statusBarNotification.getKey());
             // check if this is a update to the existing notification and if it should still show
             // as a heads up or not.
             HeadsUpEntry currentActiveHeadsUpNotification = mActiveHeadsUpNotifications.get(
@@ -173,16 +240,26 @@ public class CarHeadsUpNotificationManager
             if (CarNotificationDiff.sameNotificationKey(
                     currentActiveHeadsUpNotification.getStatusBarNotification(),
                     statusBarNotification)
-                    && currentActiveHeadsUpNotification.getHandler().hasMessagesOrCallbacks()) {
+                    && currentActiveHeadsUpNotification.getDismissTimeout() != null) {
                 animateOutHUN(statusBarNotification);
             }
             activeNotifications.put(statusBarNotification.getKey(), statusBarNotification);
             return;
         }
         if (!activeNotifications.containsKey(statusBarNotification.getKey()) || canUpdate(
-                statusBarNotification) || alertAgain(statusBarNotification.getNotification())) {
-            showHeadsUp(mPreprocessingManager.optimizeForDriving(statusBarNotification),
-                    rankingMap);
+                statusBarNotification) || alertAgain(statusBarNotification.getNotification())
+                || mHeadsUpQueue.contains(statusBarNotification.getKey())) {
+            int priority = HeadsUpQueue.getPriority(statusBarNotification);
+            if (fitsHeadsUpBudget(statusBarNotification, priority)) {
+                mLatencyTracker.onStage(statusBarNotification.getKey(),
+                        HeadsUpLatencyTracker.STAGE_SHOULD_SHOW);
+                scheduleHeadsUp(mPreprocessingManager.optimizeForDriving(statusBarNotification),
+                        rankingMap, priority);
+            } else {
+                mLatencyTracker.cancel(statusBarNotification.getKey());
+            }
+        } else {
+            mLatencyTracker.cancel(statusBarNotification.getKey());
         }
         activeNotifications.put(statusBarNotification.getKey(), statusBarNotification);
     }
@@ -191,6 +268,10 @@ public class CarHeadsUpNotificationManager
      * This method gets called when an app wants to cancel or withdraw its notification.
      */
     public void maybeRemoveHeadsUp(StatusBarNotification statusBarNotification) {
+        // a queued heads up notification has not been shown yet and can simply be forgotten.
+        if (mHeadsUpQueue.remove(statusBarNotification.getKey()) != null) {
+            return;
+        }
         HeadsUpEntry currentActiveHeadsUpNotification = mActiveHeadsUpNotifications.get(
                 statusBarNotification.getKey());
         // if the heads up notification is already removed do nothing.
@@ -199,7 +280,7 @@ public class CarHeadsUpNotificationManager
         }
 
         long totalDisplayDuration =
-                System.currentTimeMillis() - currentActiveHeadsUpNotification.getPostTime();
+                mTimerWheel.uptimeMillis() - currentActiveHeadsUpNotification.getPostTime();
         // ongoing notification that has passed the minimum threshold display time.
         if (totalDisplayDuration >= mMinDisplayDuration) {
             animateOutHUN(statusBarNotification);
@@ -207,9 +288,290 @@ public class CarHeadsUpNotificationManager
         }
 
         long earliestRemovalTime = mMinDisplayDuration - totalDisplayDuration;
+        HeadsUpTimerWheel.Timeout dismissTimeout =
+                currentActiveHeadsUpNotification.getDismissTimeout();
+        // keep an earlier auto dismissal
+        if (dismissTimeout == null || dismissTimeout.getDeadline()
+                > mTimerWheel.uptimeMillis() + earliestRemovalTime) {
+            currentActiveHeadsUpNotification.setDismissTimeout(mTimerWheel.schedule(
+                    () -> animateOutHUN(statusBarNotification), earliestRemovalTime));
+        }
+    }
+
+    /**
+     * Shows the heads up notification right away if it updates one that is shown, if there is a
+     * free slot on the panel or if it outranks one that is shown, which is then moved back to the
+     * queue. Otherwise the notification waits in the queue until a slot frees up.
+     *
+     * @param priority priority class of the notification, see {@link HeadsUpQueue#getPriority}.
+     */
+    private void scheduleHeadsUp(StatusBarNotification statusBarNotification,
+            @Nullable NotificationListenerService.RankingMap rankingMap, int priority) {
+        String key = statusBarNotification.getKey();
+        // an update to a notification that already alerted before it went back to the queue only
+        // alerts again if it asks to
+        HeadsUpQueue.PendingHeadsUp queuedHeadsUp = mHeadsUpQueue.get(key);
+        boolean hasAlerted = queuedHeadsUp != null && queuedHeadsUp.hasAlerted()
+                && !alertAgain(statusBarNotification.getNotification());
+        if (!mActiveHeadsUpNotifications.containsKey(key) && isPanelFull()) {
+            HeadsUpEntry preemptedHeadsUp = findPreemptableHeadsUp(priority);
+            if (preemptedHeadsUp == null) {
+                enqueueHeadsUp(statusBarNotification, rankingMap, priority, hasAlerted);
+                return;
+            }
+            // the view holder has the latest update of the notification
+            StatusBarNotification preemptedNotification =
+                    preemptedHeadsUp.getViewHolder() != null
+                            ? preemptedHeadsUp.getViewHolder().getStatusBarNotification()
+                            : preemptedHeadsUp.getStatusBarNotification();
+            animateOutHUN(preemptedNotification);
+            // the user has already been alerted of the preempted notification
+            enqueueHeadsUp(preemptedNotification, preemptedHeadsUp.getRankingMap(),
+                    preemptedHeadsUp.getPriority(), /* hasAlerted= */ true);
+        }
+        mHeadsUpQueue.remove(key);
+        showHeadsUp(statusBarNotification, rankingMap, priority, hasAlerted);
+    }
+
+    /**
+     * Returns true if no further heads up notification fits on the panel.
+     */
+    private boolean isPanelFull() {
+        return mMaxConcurrentHeadsUps > 0 && getShownHeadsUpCount() >= mMaxConcurrentHeadsUps;
+    }
+
+    /**
+     * Returns the number of heads up notifications on the panel that are not animating out.
+     */
+    private int getShownHeadsUpCount() {
+        int count = 0;
+        for (HeadsUpEntry headsUpEntry : mActiveHeadsUpNotifications.values()) {
+            if (!headsUpEntry.isExiting) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the shown heads up notification with the lowest priority below the given one, the
+     * oldest one if there are several, or {@code null} if none can be preempted.
+     */
+    @Nullable
+    private HeadsUpEntry findPreemptableHeadsUp(int priority) {
+        HeadsUpEntry preemptableHeadsUp = null;
+        int preemptablePriority = priority;
+        for (HeadsUpEntry headsUpEntry : mActiveHeadsUpNotifications.values()) {
+            if (headsUpEntry.isExiting) {
+                continue;
+            }
+            int entryPriority = headsUpEntry.getPriority();
+            if (entryPriority < preemptablePriority || (preemptableHeadsUp != null
+                    && entryPriority == preemptablePriority
+                    && headsUpEntry.getPostTime() < preemptableHeadsUp.getPostTime())) {
+                preemptableHeadsUp = headsUpEntry;
+                preemptablePriority = entryPriority;
+            }
+        }
+        return preemptableHeadsUp;
+    }
+
+    private void enqueueHeadsUp(StatusBarNotification statusBarNotification,
+            @Nullable NotificationListenerService.RankingMap rankingMap, int priority,
+            boolean hasAlerted) {
+        // calls and emergencies stay relevant for as long as they are posted, and the merged and
+        // summary heads up notifications are what other notifications end up in.
+        long deadline = priority >= HeadsUpQueue.PRIORITY_CALL
+                || isMergedHeadsUp(statusBarNotification.getKey())
+                || mSummaryHeadsUpPackages.containsKey(statusBarNotification.getKey())
+                ? HeadsUpQueue.NO_DEADLINE
+                : mTimerWheel.uptimeMillis() + mQueueTimeout;
+        mHeadsUpQueue.enqueue(statusBarNotification, rankingMap, priority, hasAlerted, deadline);
+        // build the bind model while the notification waits so that showing it binds right away
+        mBindModelCache.prefetch(statusBarNotification);
+        scheduleQueueExpiry();
+    }
+
+    /**
+     * Called once a heads up notification has left the panel to show queued ones in the freed
+     * slots.
+     */
+    private void onHeadsUpRemoved(String key) {
+        if (isMergedHeadsUp(key)) {
+            mMergedHeadsUpCount = 0;
+        }
+        String summaryPackageName = mSummaryHeadsUpPackages.remove(key);
+        if (summaryPackageName != null) {
+            mSummaryHeadsUpCounts.remove(summaryPackageName);
+        }
+        while (!isPanelFull()) {
+            HeadsUpQueue.PendingHeadsUp pendingHeadsUp = mHeadsUpQueue.poll();
+            if (pendingHeadsUp == null) {
+                break;
+            }
+            showHeadsUp(pendingHeadsUp.getStatusBarNotification(),
+                    pendingHeadsUp.getRankingMap(), pendingHeadsUp.getPriority(),
+                    pendingHeadsUp.hasAlerted());
+        }
+        scheduleQueueExpiry();
+    }
 
-        currentActiveHeadsUpNotification.getHandler().postDelayed(() ->
-                animateOutHUN(statusBarNotification), earliestRemovalTime);
+    private void scheduleQueueExpiry() {
+        if (mQueueExpiryTimeout != null) {
+            mQueueExpiryTimeout.cancel();
+            mQueueExpiryTimeout = null;
+        }
+        long deadline = mHeadsUpQueue.getNextDeadline();
+        if (deadline != HeadsUpQueue.NO_DEADLINE) {
+            mQueueExpiryTimeout = mTimerWheel.schedule(mExpireQueuedHeadsUps,
+                    deadline - mTimerWheel.uptimeMillis());
+        }
+    }
+
+    /**
+     * Drops queued heads up notifications that waited past their deadline. Expired navigation
+     * notifications are stale and dropped, expired messages and other notifications are folded
+     * into a single merged heads up notification.
+     */
+    private void expireQueuedHeadsUps() {
+        mHeadsUpQueue.removeExpired(mTimerWheel.uptimeMillis(), mExpiredHeadsUps);
+        int mergedCount = 0;
+        for (HeadsUpQueue.PendingHeadsUp pendingHeadsUp : mExpiredHeadsUps) {
+            if (pendingHeadsUp.getPriority() <= HeadsUpQueue.PRIORITY_MESSAGE) {
+                mergedCount++;
+            }
+        }
+        mExpiredHeadsUps.clear();
+        if (mergedCount > 0) {
+            mMergedHeadsUpCount += mergedCount;
+            scheduleHeadsUp(createMergedHeadsUp(mMergedHeadsUpCount), /* rankingMap= */ null,
+                    HeadsUpQueue.PRIORITY_OTHER);
+        }
+        scheduleQueueExpiry();
+    }
+
+    private boolean isMergedHeadsUp(String key) {
+        return key.equals(mMergedHeadsUpKey);
+    }
+
+    /**
+     * Creates the heads up notification that tells the user how many queued heads up
+     * notifications could not be shown in time. They can still be found in the notification
+     * center. It only alerts once, so that further ones update it in place.
+     */
+    private StatusBarNotification createMergedHeadsUp(int count) {
+        Notification notification = new Notification.Builder(mContext,
+                NotificationChannel.DEFAULT_CHANNEL_ID)
+                .setSmallIcon(Icon.createWithResource(/* resPackage= */ "android",
+                        android.R.drawable.stat_notify_more))
+                .setContentTitle(mContext.getResources().getQuantityString(
+                        R.plurals.merged_heads_up_title, count, count))
+                .setContentIntent(getNotificationCenterIntent())
+                .addExtras(createLocalNotificationExtras())
+                .setOnlyAlertOnce(true)
+                .build();
+        StatusBarNotification statusBarNotification = new StatusBarNotification(
+                mContext.getPackageName(), mContext.getPackageName(), MERGED_HEADS_UP_ID,
+                MERGED_HEADS_UP_TAG, Process.myUid(), /* initialPid= */ 0, notification,
+                Process.myUserHandle(), /* overrideGroupKey= */ null, nextSyntheticPostTime());
+        mMergedHeadsUpKey = statusBarNotification.getKey();
+        return statusBarNotification;
+    }
+
+    /**
+     * Returns true if the notification may be shown as a new heads up notification within the
+     * heads up budget. Updates, calls, navigation and emergencies always fit. Otherwise, if the
+     * posting package has used up its budget, the notification is folded into the summary heads
+     * up notification of the package, and if all packages together have used up the budget, into
+     * the merged heads up notification.
+     */
+    private boolean fitsHeadsUpBudget(StatusBarNotification statusBarNotification,
+            int priority) {
+        String key = statusBarNotification.getKey();
+        if (mActiveHeadsUpNotifications.containsKey(key) || mHeadsUpQueue.contains(key)
+                || priority > HeadsUpQueue.PRIORITY_MESSAGE) {
+            return true;
+        }
+        String packageName = statusBarNotification.getPackageName();
+        switch (mHeadsUpBudget.tryAcquire(packageName, mTimerWheel.uptimeMillis())) {
+            case HeadsUpBudget.OVER_PACKAGE_BUDGET:
+                int count = mSummaryHeadsUpCounts.getOrDefault(packageName, 0) + 1;
+                mSummaryHeadsUpCounts.put(packageName, count);
+                scheduleHeadsUp(createSummaryHeadsUp(statusBarNotification, count),
+                        /* rankingMap= */ null, HeadsUpQueue.PRIORITY_OTHER);
+                return false;
+            case HeadsUpBudget.OVER_GLOBAL_BUDGET:
+                mMergedHeadsUpCount++;
+                scheduleHeadsUp(createMergedHeadsUp(mMergedHeadsUpCount), /* rankingMap= */ null,
+                        HeadsUpQueue.PRIORITY_OTHER);
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Creates the heads up notification that tells the user how many notifications of a package
+     * were not shown as heads up notifications because the package posted too many at once. It
+     * only alerts once, so that further notifications of the package update it in place.
+     */
+    private StatusBarNotification createSummaryHeadsUp(
+            StatusBarNotification statusBarNotification, int count) {
+        String packageName = statusBarNotification.getPackageName();
+        // the label the header of the package's notifications shows, already loaded in most cases
+        String appLabel = mBindModelCache.loadAppLabel(statusBarNotification);
+        Notification notification = new Notification.Builder(mContext,
+                NotificationChannel.DEFAULT_CHANNEL_ID)
+                .setSmallIcon(Icon.createWithResource(/* resPackage= */ "android",
+                        android.R.drawable.stat_notify_more))
+                .setContentTitle(mContext.getResources().getQuantityString(
+                        R.plurals.summary_heads_up_title, count, count,
+                        appLabel != null ? appLabel : packageName))
+                .setContentIntent(getNotificationCenterIntent())
+                .addExtras(createLocalNotificationExtras())
+                .setOnlyAlertOnce(true)
+                .build();
+        StatusBarNotification summary = new StatusBarNotification(
+                mContext.getPackageName(), mContext.getPackageName(), MERGED_HEADS_UP_ID,
+                SUMMARY_HEADS_UP_TAG + packageName, Process.myUid(), /* initialPid= */ 0,
+                notification, Process.myUserHandle(), /* overrideGroupKey= */ null,
+                nextSyntheticPostTime());
+        mSummaryHeadsUpPackages.put(summary.getKey(), packageName);
+        return summary;
+    }
+
+    /**
+     * Returns the post time of a new merged or summary heads up notification. Each one gets a later
+     * post time than the previous one, even within the same millisecond, as cached bind models are
+     * matched by key and post time.
+     */
+    private long nextSyntheticPostTime() {
+        mLastSyntheticPostTime = Math.max(System.currentTimeMillis(), mLastSyntheticPostTime + 1);
+        return mLastSyntheticPostTime;
+    }
+
+    /**
+     * Returns the intent of the merged and summary heads up notifications, which opens the
+     * notification center where the notifications they stand in for can be found.
+     */
+    private PendingIntent getNotificationCenterIntent() {
+        if (mNotificationCenterIntent == null) {
+            Intent intent = new Intent(mContext, CarNotificationCenterActivity.class)
+                    .addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+            mNotificationCenterIntent = PendingIntent.getActivity(mContext, /* requestCode= */ 0,
+                    intent, PendingIntent.FLAG_IMMUTABLE);
+        }
+        return mNotificationCenterIntent;
+    }
+
+    /**
+     * Returns the extras that keep the merged and summary heads up notifications, which were never
+     * posted, out of the calls to the status bar service.
+     */
+    private static Bundle createLocalNotificationExtras() {
+        Bundle extras = new Bundle();
+        extras.putBoolean(NotificationClickHandlerFactory.EXTRA_LOCAL_NOTIFICATION, true);
+        return extras;
     }
 
     /**
@@ -242,7 +604,7 @@ public class CarHeadsUpNotificationManager
     private boolean canUpdate(StatusBarNotification statusBarNotification) {
         HeadsUpEntry currentActiveHeadsUpNotification = mActiveHeadsUpNotifications.get(
                 statusBarNotification.getKey());
-        return currentActiveHeadsUpNotification != null && System.currentTimeMillis() -
+        return currentActiveHeadsUpNotification != null && mTimerWheel.uptimeMillis() -
                 currentActiveHeadsUpNotification.getPostTime() < mDuration;
     }
 
@@ -254,7 +616,8 @@ public class CarHeadsUpNotificationManager
         HeadsUpEntry currentActiveHeadsUpNotification = mActiveHeadsUpNotifications.get(
                 statusBarNotification.getKey());
         if (currentActiveHeadsUpNotification == null) {
-            currentActiveHeadsUpNotification = new HeadsUpEntry(statusBarNotification);
+            currentActiveHeadsUpNotification =
+                    new HeadsUpEntry(statusBarNotification, mTimerWheel::uptimeMillis);
             mActiveHeadsUpNotifications.put(statusBarNotification.getKey(),
                     currentActiveHeadsUpNotification);
             currentActiveHeadsUpNotification.isAlertAgain = alertAgain(
@@ -282,229 +645,168 @@ public class CarHeadsUpNotificationManager
      * then the post time will be updated to current time. This will only be done if {@link
      * Notification#FLAG_ONLY_ALERT_ONCE} flag is not set.
      * <li> If an update to existing HUN comes in which just updates the data and does not want to
-     * alert itself again, then the animations will not be shown and the data will get updated. This
-     * will only be done if {@link Notification#FLAG_ONLY_ALERT_ONCE} flag is not set.
+     * alert itself again, then the animations will not be shown and the shown view will be updated
+     * in place, see {@link #updateInPlace}. This will only be done if {@link
+     * Notification#FLAG_ONLY_ALERT_ONCE} flag is set.
      * </ol>
+     *
+     * <p> No sound is played if {@code rankingMap} is {@code null} or if the user has already been
+     * alerted of the notification before it went back to the queue.
+     *
+     * @param priority priority class of the notification, see {@link HeadsUpQueue#getPriority}.
      */
     private void showHeadsUp(StatusBarNotification statusBarNotification,
-            NotificationListenerService.RankingMap rankingMap) {
+            @Nullable NotificationListenerService.RankingMap rankingMap, int priority,
+            boolean hasAlerted) {
         // Show animations only when there is no active HUN and notification is new. This check
         // needs to be done here because after this the new notification will be added to the map
         // holding ongoing notifications.
         boolean shouldShowAnimation = !isUpdate(statusBarNotification);
         HeadsUpEntry currentNotification = addNewHeadsUpEntry(statusBarNotification);
+        currentNotification.setPriority(priority);
+        currentNotification.setRankingMap(rankingMap);
         if (currentNotification.isNewHeadsUp) {
-            playSound(statusBarNotification, rankingMap);
+            if (rankingMap != null && !hasAlerted) {
+                playSound(statusBarNotification, rankingMap);
+            }
             setHeadsUpVisible();
             setAutoDismissViews(currentNotification, statusBarNotification);
-        } else if (currentNotification.isAlertAgain) {
-            setAutoDismissViews(currentNotification, statusBarNotification);
+        } else {
+            // only the latency of new heads up notifications is measured
+            mLatencyTracker.cancel(statusBarNotification.getKey());
+            if (currentNotification.isAlertAgain) {
+                setAutoDismissViews(currentNotification, statusBarNotification);
+            } else if (updateInPlace(currentNotification, statusBarNotification)) {
+                return;
+            }
         }
         @NotificationViewType int viewType = getNotificationViewType(statusBarNotification);
         mClickHandlerFactory.setHeadsUpNotificationCallBack(
                 () -> animateOutHUN(statusBarNotification));
         currentNotification.setClickHandlerFactory(mClickHandlerFactory);
-        switch (viewType) {
-            case NotificationViewType.CAR_EMERGENCY_HEADSUP: {
-                if (currentNotification.getNotificationView() == null) {
-                    currentNotification.setNotificationView(mInflater.inflate(
-                            R.layout.car_emergency_headsup_notification_template,
-                            null));
-                    mHeadsUpContentFrame.addView(currentNotification.getNotificationView());
-                    currentNotification.setViewHolder(
-                            new EmergencyNotificationViewHolder(
-                                    currentNotification.getNotificationView(),
-                                    mClickHandlerFactory));
-                }
-                currentNotification.getViewHolder().bind(statusBarNotification,
-                        /* isInGroup= */ false, /* isHeadsUp= */ true);
-                break;
-            }
-            case NotificationViewType.NAVIGATION: {
-                if (currentNotification.getNotificationView() == null) {
-                    currentNotification.setNotificationView(mInflater.inflate(
-                            R.layout.navigation_headsup_notification_template,
-                            null));
-                    mHeadsUpContentFrame.addView(currentNotification.getNotificationView());
-                    currentNotification.setViewHolder(
-                            new NavigationNotificationViewHolder(
-                                    currentNotification.getNotificationView(),
-                                    mClickHandlerFactory));
-                }
-                currentNotification.getViewHolder().bind(statusBarNotification,
-                        /* isInGroup= */ false, /* isHeadsUp= */ true);
-                break;
-            }
-            case NotificationViewType.CALL: {
-                if (currentNotification.getNotificationView() == null) {
-                    currentNotification.setNotificationView(mInflater.inflate(
-                            R.layout.call_headsup_notification_template,
-                            null));
-                    mHeadsUpContentFrame.addView(currentNotification.getNotificationView());
-                    currentNotification.setViewHolder(
-                            new CallNotificationViewHolder(
-                                    currentNotification.getNotificationView(),
-                                    mClickHandlerFactory));
-                }
-                currentNotification.getViewHolder().bind(statusBarNotification,
-                        /* isInGroup= */ false, /* isHeadsUp= */ true);
-                break;
-            }
-            case NotificationViewType.CAR_WARNING_HEADSUP: {
-                if (currentNotification.getNotificationView() == null) {
-                    currentNotification.setNotificationView(mInflater.inflate(
-                            R.layout.car_warning_headsup_notification_template,
-                            null));
-                    mHeadsUpContentFrame.addView(currentNotification.getNotificationView());
-                    // Using the basic view holder because they share the same view binding logic
-                    // OEMs should create view holders if needed
-                    currentNotification.setViewHolder(
-                            new BasicNotificationViewHolder(
-                                    currentNotification.getNotificationView(),
-                                    mClickHandlerFactory));
-                }
-                currentNotification.getViewHolder().bind(statusBarNotification, /* isInGroup= */
-                        false, /* isHeadsUp= */ true);
-                break;
-            }
-            case NotificationViewType.CAR_INFORMATION_HEADSUP: {
-                if (currentNotification.getNotificationView() == null) {
-                    currentNotification.setNotificationView(mInflater.inflate(
-                            R.layout.car_information_headsup_notification_template,
-                            null));
-                    mHeadsUpContentFrame.addView(currentNotification.getNotificationView());
-                    // Using the basic view holder because they share the same view binding logic
-                    // OEMs should create view holders if needed
-                    currentNotification.setViewHolder(
-                            new BasicNotificationViewHolder(
-                                    currentNotification.getNotificationView(),
-                                    mClickHandlerFactory));
-                }
-                currentNotification.getViewHolder().bind(statusBarNotification,
-                        /* isInGroup= */ false, /* isHeadsUp= */ true);
-                break;
-            }
-            case NotificationViewType.MESSAGE_HEADSUP: {
-                if (currentNotification.getNotificationView() == null) {
-                    currentNotification.setNotificationView(mInflater.inflate(
-                            R.layout.message_headsup_notification_template,
-                            null));
-                    mHeadsUpContentFrame.addView(currentNotification.getNotificationView());
-                    currentNotification.setViewHolder(
-                            new MessageNotificationViewHolder(
-                                    currentNotification.getNotificationView(),
-                                    mClickHandlerFactory));
-                }
-                if (mShouldRestrictMessagePreview) {
-                    ((MessageNotificationViewHolder) currentNotification.getViewHolder())
-                            .bindRestricted(statusBarNotification, /* isInGroup= */
-                                    false, /* isHeadsUp= */ true);
-                } else {
-                    currentNotification.getViewHolder().bind(statusBarNotification, /* isInGroup= */
-                            false, /* isHeadsUp= */ true);
-                }
-                break;
-            }
-            case NotificationViewType.INBOX_HEADSUP: {
-                if (currentNotification.getNotificationView() == null) {
-                    currentNotification.setNotificationView(mInflater.inflate(
-                            R.layout.inbox_headsup_notification_template,
-                            null));
-                    mHeadsUpContentFrame.addView(currentNotification.getNotificationView());
-                    currentNotification.setViewHolder(
-                            new InboxNotificationViewHolder(
-                                    currentNotification.getNotificationView(),
-                                    mClickHandlerFactory));
-                }
-                currentNotification.getViewHolder().bind(statusBarNotification,
-                        /* isInGroup= */ false, /* isHeadsUp= */ true);
-                break;
-            }
-            case NotificationViewType.BASIC_HEADSUP:
-            default: {
-                if (currentNotification.getNotificationView() == null) {
-                    currentNotification.setNotificationView(mInflater.inflate(
-                            R.layout.basic_headsup_notification_template,
-                            null));
-                    mHeadsUpContentFrame.addView(currentNotification.getNotificationView());
-                    currentNotification.setViewHolder(
-                            new BasicNotificationViewHolder(
-                                    currentNotification.getNotificationView(),
-                                    mClickHandlerFactory));
-                }
-                currentNotification.getViewHolder().bind(statusBarNotification,
-                        /* isInGroup= */ false, /* isHeadsUp= */ true);
-                break;
+        if (currentNotification.getNotificationView() == null) {
+            CarNotificationBaseViewHolder viewHolder = mHeadsUpViewPool.obtain(viewType);
+            mLatencyTracker.onStage(statusBarNotification.getKey(),
+                    HeadsUpLatencyTracker.STAGE_INFLATE);
+            currentNotification.setNotificationView(viewHolder.itemView);
+            currentNotification.setViewHolder(viewHolder);
+            currentNotification.setViewType(viewType);
+            mHeadsUpContentFrame.addView(viewHolder.itemView);
+            View cardView = viewHolder.itemView.findViewById(R.id.card_view);
+            if (cardView != null) {
+                currentNotification.attachCardView(cardView, mBoundsChangeListener);
+                mCardViews.add(cardView);
+                mTouchableRegionDirty = true;
             }
+            mLatencyTracker.onStage(statusBarNotification.getKey(),
+                    HeadsUpLatencyTracker.STAGE_ATTACH);
         }
-
-        // measure the size of the card and make that area of the screen touchable
-        currentNotification.getNotificationView().getViewTreeObserver()
-                .addOnComputeInternalInsetsListener(
-                        info -> setInternalInsetsInfo(info,
-                                currentNotification, /* panelExpanded= */false));
-        // Get the height of the notification view after onLayout()
-        // in order animate the notification in
-        currentNotification.getNotificationView().getViewTreeObserver().addOnGlobalLayoutListener(
-                new ViewTreeObserver.OnGlobalLayoutListener() {
-                    @Override
-                    public void onGlobalLayout() {
-                        int notificationHeight =
-                                currentNotification.getNotificationView().getHeight();
-
-                        if (shouldShowAnimation) {
-                            currentNotification.getNotificationView().setY(0 - notificationHeight);
-                            currentNotification.getNotificationView().setAlpha(0f);
-
-                            Interpolator yPositionInterpolator = AnimationUtils.loadInterpolator(
-                                    mContext,
-                                    R.interpolator.heads_up_entry_direction_interpolator);
-                            Interpolator alphaInterpolator = AnimationUtils.loadInterpolator(
-                                    mContext,
-                                    R.interpolator.heads_up_entry_alpha_interpolator);
-
-                            ObjectAnimator moveY = ObjectAnimator.ofFloat(
-                                    currentNotification.getNotificationView(), "y", 0f);
-                            moveY.setDuration(mEnterAnimationDuration);
-                            moveY.setInterpolator(yPositionInterpolator);
-
-                            ObjectAnimator alpha = ObjectAnimator.ofFloat(
-                                    currentNotification.getNotificationView(), "alpha", 1f);
-                            alpha.setDuration(mAlphaEnterAnimationDuration);
-                            alpha.setInterpolator(alphaInterpolator);
-
-                            AnimatorSet animatorSet = new AnimatorSet();
-                            animatorSet.playTogether(moveY, alpha);
-                            animatorSet.start();
-
+        bindHeadsUp(currentNotification, statusBarNotification);
+        mLatencyTracker.onStage(statusBarNotification.getKey(), HeadsUpLatencyTracker.STAGE_BIND);
+
+        if (shouldShowAnimation) {
+            // Get the height of the notification view after onLayout()
+            // in order animate the notification in
+            View notificationView = currentNotification.getNotificationView();
+            notificationView.getViewTreeObserver().addOnGlobalLayoutListener(
+                    new ViewTreeObserver.OnGlobalLayoutListener() {
+                        @Override
+                        public void onGlobalLayout() {
+                            mLatencyTracker.onStage(statusBarNotification.getKey(),
+                                    HeadsUpLatencyTracker.STAGE_LAYOUT);
+                            mHeadsUpAnimator.animateIn(notificationView);
+                            mLatencyTracker.onStage(statusBarNotification.getKey(),
+                                    HeadsUpLatencyTracker.STAGE_ANIMATION_START);
+                            trackFirstFrame(notificationView, statusBarNotification, priority);
+                            notificationView.getViewTreeObserver()
+                                    .removeOnGlobalLayoutListener(this);
                         }
-                        currentNotification.getNotificationView().getViewTreeObserver()
-                                .removeOnGlobalLayoutListener(this);
-                    }
-                });
+                    });
+        }
 
-        if (currentNotification.isNewHeadsUp) {
+        View cardView = currentNotification.getCardView();
+        if (currentNotification.isNewHeadsUp && cardView != null) {
             boolean shouldDismissOnSwipe = true;
             if (shouldDismissOnSwipe(statusBarNotification)) {
                 shouldDismissOnSwipe = false;
             }
             // Add swipe gesture
-            View cardView = currentNotification.getNotificationView().findViewById(R.id.card_view);
             cardView.setOnTouchListener(
                     new HeadsUpNotificationOnTouchListener(cardView, shouldDismissOnSwipe,
                             () -> resetView(statusBarNotification)));
         }
     }
 
+    /**
+     * Applies an update that does not alert the user again to the view that is shown, without
+     * inflating a view, setting click handlers, adding listeners or starting animations. The view
+     * is only bound again if the update changes what the view shows, as compared by
+     * {@link CarNotificationDiff#sameNotificationContent}.
+     *
+     * @return false if the update needs another template, in which case nothing is done.
+     */
+    private boolean updateInPlace(HeadsUpEntry currentNotification,
+            StatusBarNotification statusBarNotification) {
+        CarNotificationBaseViewHolder viewHolder = currentNotification.getViewHolder();
+        if (viewHolder == null || currentNotification.getViewType()
+                != getNotificationViewType(statusBarNotification)) {
+            return false;
+        }
+        if (currentNotification.isBoundRestricted != shouldBindRestricted(currentNotification)
+                || !CarNotificationDiff.sameNotificationContent(mContext,
+                        viewHolder.getStatusBarNotification(), statusBarNotification)) {
+            bindHeadsUp(currentNotification, statusBarNotification);
+        }
+        return true;
+    }
+
+    private void bindHeadsUp(HeadsUpEntry currentNotification,
+            StatusBarNotification statusBarNotification) {
+        currentNotification.isBoundRestricted = shouldBindRestricted(currentNotification);
+        if (currentNotification.isBoundRestricted) {
+            ((MessageNotificationViewHolder) currentNotification.getViewHolder())
+                    .bindRestricted(statusBarNotification, /* isInGroup= */ false,
+                            /* isHeadsUp= */ true);
+        } else {
+            currentNotification.getViewHolder().bind(statusBarNotification,
+                    /* isInGroup= */ false, /* isHeadsUp= */ true);
+        }
+    }
+
+    private boolean shouldBindRestricted(HeadsUpEntry currentNotification) {
+        return currentNotification.getViewType() == NotificationViewType.MESSAGE_HEADSUP
+                && mShouldRestrictMessagePreview;
+    }
+
+    /**
+     * Reports the latency of the heads up notification once the next frame of its view is drawn.
+     */
+    private void trackFirstFrame(View view, StatusBarNotification statusBarNotification,
+            int priority) {
+        ViewTreeObserver viewTreeObserver = view.getViewTreeObserver();
+        viewTreeObserver.addOnDrawListener(new ViewTreeObserver.OnDrawListener() {
+            @Override
+            public void onDraw() {
+                mLatencyTracker.onFirstFrame(statusBarNotification.getKey(), priority);
+                // draw listeners cannot be removed while drawing
+                view.post(() -> viewTreeObserver.removeOnDrawListener(this));
+            }
+        });
+    }
+
+    /**
+     * Makes the cards of the shown heads-up notifications touchable, or the whole panel if it is
+     * expanded. Called for every inset computation of the panel's window, so the touchable region
+     * is only measured again after a card has been added or removed, after a card, the content
+     * frame or the panel has been laid out with new bounds, and while a card is swiped and until
+     * it settles.
+     */
     protected void setInternalInsetsInfo(ViewTreeObserver.InternalInsetsInfo info,
-            HeadsUpEntry currentNotification, boolean panelExpanded) {
+            boolean panelExpanded) {
         // If the panel is not on screen don't modify the touch region
         if (mHeadsUpPanel.getVisibility() != View.VISIBLE) return;
-        int[] mTmpTwoArray = new int[2];
-        View cardView = currentNotification.getNotificationView().findViewById(
-                R.id.card_view);
 
-        if (cardView == null) return;
+        if (mCardViews.isEmpty()) return;
 
         if (panelExpanded) {
             info.setTouchableInsets(
@@ -512,19 +814,56 @@ public class CarHeadsUpNotificationManager
             return;
         }
 
-        cardView.getLocationOnScreen(mTmpTwoArray);
-        int minX = mTmpTwoArray[0];
-        int maxX = mTmpTwoArray[0] + cardView.getWidth();
-        int height = cardView.getHeight();
+        boolean cardsTranslated = areCardsTranslated();
+        if (mTouchableRegionDirty || cardsTranslated || mTouchableRegionTranslated) {
+            updateTouchableRegion();
+            mTouchableRegionTranslated = cardsTranslated;
+        }
         info.setTouchableInsets(
                 ViewTreeObserver.InternalInsetsInfo.TOUCHABLE_INSETS_REGION);
-        info.touchableRegion.set(minX, mNotificationHeadsUpCardMarginTop, maxX,
-                height + mNotificationHeadsUpCardMarginTop);
+        info.touchableRegion.set(mTouchableRegion);
+    }
+
+    /**
+     * Makes the cards of the shown heads-up notifications touchable, or the whole panel if it is
+     * expanded.
+     *
+     * @deprecated the touchable region covers the cards of all shown heads-up notifications
+     * whatever notification is given; use
+     * {@link #setInternalInsetsInfo(ViewTreeObserver.InternalInsetsInfo, boolean)} instead.
+     */
+    @Deprecated
+    protected void setInternalInsetsInfo(ViewTreeObserver.InternalInsetsInfo info,
+            HeadsUpEntry currentNotification, boolean panelExpanded) {
+        setInternalInsetsInfo(info, panelExpanded);
+    }
+
+    private boolean areCardsTranslated() {
+        for (int i = 0; i < mCardViews.size(); i++) {
+            if (mCardViews.get(i).getTranslationX() != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void updateTouchableRegion() {
+        mTouchableRegion.setEmpty();
+        for (int i = 0; i < mCardViews.size(); i++) {
+            View cardView = mCardViews.get(i);
+            cardView.getLocationOnScreen(mTmpTwoArray);
+            int minX = mTmpTwoArray[0];
+            int maxX = mTmpTwoArray[0] + cardView.getWidth();
+            int height = cardView.getHeight();
+            mTouchableRegion.op(minX, mNotificationHeadsUpCardMarginTop, maxX,
+                    height + mNotificationHeadsUpCardMarginTop, Region.Op.UNION);
+        }
+        mTouchableRegionDirty = false;
     }
 
     private void playSound(StatusBarNotification statusBarNotification,
             NotificationListenerService.RankingMap rankingMap) {
-        NotificationListenerService.Ranking ranking = getRanking();
+        NotificationListenerService.Ranking ranking = getReusableRanking();
         if (rankingMap.getRanking(statusBarNotification.getKey(), ranking)) {
             NotificationChannel notificationChannel = ranking.getChannel();
             // If sound is not set on the notification channel and default is not chosen it
@@ -549,15 +888,19 @@ public class CarHeadsUpNotificationManager
         return mActiveHeadsUpNotifications;
     }
 
+    @VisibleForTesting
+    void setMaxConcurrentHeadsUps(int maxConcurrentHeadsUps) {
+        mMaxConcurrentHeadsUps = maxConcurrentHeadsUps;
+    }
+
     private void setAutoDismissViews(HeadsUpEntry currentNotification,
             StatusBarNotification statusBarNotification) {
         // Should not auto dismiss if HUN has a full screen Intent.
         if (hasFullScreenIntent(statusBarNotification)) {
             return;
         }
-        currentNotification.getHandler().removeCallbacksAndMessages(null);
-        currentNotification.getHandler().postDelayed(() -> animateOutHUN(statusBarNotification),
-                mDuration);
+        currentNotification.setDismissTimeout(
+                mTimerWheel.schedule(() -> animateOutHUN(statusBarNotification), mDuration));
     }
 
     /**
@@ -580,38 +923,25 @@ public class CarHeadsUpNotificationManager
         if (currentHeadsUpNotification == null) {
             return;
         }
-        currentHeadsUpNotification.getHandler().removeCallbacksAndMessages(null);
+        // already animating out, e.g. dismissed by its timer while being swiped away
+        if (currentHeadsUpNotification.isExiting) {
+            return;
+        }
+        currentHeadsUpNotification.isExiting = true;
+        currentHeadsUpNotification.cancelDismissTimeout();
         currentHeadsUpNotification.getClickHandlerFactory().setHeadsUpNotificationCallBack(null);
 
-        Interpolator exitInterpolator = AnimationUtils.loadInterpolator(mContext,
-                R.interpolator.heads_up_exit_direction_interpolator);
-        Interpolator alphaInterpolator = AnimationUtils.loadInterpolator(mContext,
-                R.interpolator.heads_up_exit_alpha_interpolator);
-
-        ObjectAnimator moveY = ObjectAnimator.ofFloat(
-                currentHeadsUpNotification.getNotificationView(), "y",
-                -1 * currentHeadsUpNotification.getNotificationView().getHeight());
-        moveY.setDuration(mExitAnimationDuration);
-        moveY.setInterpolator(exitInterpolator);
-
-        ObjectAnimator alpha = ObjectAnimator.ofFloat(
-                currentHeadsUpNotification.getNotificationView(), "alpha", 1f);
-        alpha.setDuration(mExitAnimationDuration);
-        alpha.setInterpolator(alphaInterpolator);
-
-        AnimatorSet animatorSet = new AnimatorSet();
-        animatorSet.playTogether(moveY, alpha);
-        animatorSet.addListener(new AnimatorListenerAdapter() {
-            @Override
-            public void onAnimationEnd(Animator animation) {
-                removeNotificationFromPanel(currentHeadsUpNotification);
+        mHeadsUpAnimator.animateOut(currentHeadsUpNotification.getNotificationView(), () -> {
+            removeNotificationFromPanel(currentHeadsUpNotification);
 
-                // Remove HUN after the animation ends to prevent accidental touch on the card
-                // triggering another remove call.
-                mActiveHeadsUpNotifications.remove(statusBarNotification.getKey());
+            // Remove HUN after the animation ends to prevent accidental touch on the card
+            // triggering another remove call. A newer heads up notification with the same key
+            // may have been shown in the meantime and stays.
+            if (mActiveHeadsUpNotifications.remove(statusBarNotification.getKey(),
+                    currentHeadsUpNotification)) {
+                onHeadsUpRemoved(statusBarNotification.getKey());
             }
         });
-        animatorSet.start();
     }
 
     /**
@@ -620,10 +950,24 @@ public class CarHeadsUpNotificationManager
      * @param currentHeadsUpNotification The notification to remove
      */
     protected void removeNotificationFromPanel(HeadsUpEntry currentHeadsUpNotification) {
+        CarNotificationBaseViewHolder viewHolder = currentHeadsUpNotification.getViewHolder();
+        if (viewHolder == null) {
+            // Already removed, the view may have been handed out to another notification since.
+            return;
+        }
+        View cardView = currentHeadsUpNotification.getCardView();
+        if (cardView != null) {
+            currentHeadsUpNotification.detachCardView();
+            mCardViews.remove(cardView);
+            mTouchableRegionDirty = true;
+        }
         mHeadsUpContentFrame.removeView(currentHeadsUpNotification.getNotificationView());
         if (mHeadsUpContentFrame.getChildCount() == 0) {
             mHeadsUpPanel.setVisibility(View.INVISIBLE);
+            RelativeTimeScheduler.getInstance().setIsHeadsUpShown(false);
         }
+        currentHeadsUpNotification.setViewHolder(null);
+        mHeadsUpViewPool.release(viewHolder);
     }
 
 
@@ -637,9 +981,10 @@ public class CarHeadsUpNotificationManager
         if (currentHeadsUpNotification == null) return;
 
         currentHeadsUpNotification.getClickHandlerFactory().setHeadsUpNotificationCallBack(null);
-        currentHeadsUpNotification.getHandler().removeCallbacksAndMessages(null);
+        currentHeadsUpNotification.cancelDismissTimeout();
         removeNotificationFromPanel(currentHeadsUpNotification);
         mActiveHeadsUpNotifications.remove(statusBarNotification.getKey());
+        onHeadsUpRemoved(statusBarNotification.getKey());
     }
 
     /**
@@ -704,7 +1049,7 @@ public class CarHeadsUpNotificationManager
     private boolean shouldShowHeadsUp(
             StatusBarNotification statusBarNotification,
             NotificationListenerService.RankingMap rankingMap) {
-        if (mKeyguardManager.isKeyguardLocked()) {
+        if (mEligibilityCache.isKeyguardLocked()) {
             return false;
         }
         Notification notification = statusBarNotification.getNotification();
@@ -724,20 +1069,19 @@ public class CarHeadsUpNotificationManager
         }
 
         // Do not show if importance < HIGH
-        NotificationListenerService.Ranking ranking = getRanking();
+        NotificationListenerService.Ranking ranking = getReusableRanking();
         if (rankingMap.getRanking(statusBarNotification.getKey(), ranking)) {
             if (ranking.getImportance() < NotificationManager.IMPORTANCE_HIGH) {
                 return false;
             }
         }
 
-        if (NotificationUtils.isSystemPrivilegedOrPlatformKey(mContext,
-                statusBarNotification)) {
+        if (mEligibilityCache.isSystemPrivilegedOrPlatformKey(statusBarNotification)) {
             return true;
         }
 
         // Allow car messaging type.
-        if (isCarCompatibleMessagingNotification(statusBarNotification)) {
+        if (mEligibilityCache.isCarCompatibleMessaging(statusBarNotification)) {
             return true;
         }
 
@@ -753,11 +1097,22 @@ public class CarHeadsUpNotificationManager
         return false;
     }
 
+    /**
+     * Returns a new ranking object. Called once, the object is then reused to read the ranking of
+     * every notification.
+     */
     @VisibleForTesting
     protected NotificationListenerService.Ranking getRanking() {
         return new NotificationListenerService.Ranking();
     }
 
+    private NotificationListenerService.Ranking getReusableRanking() {
+        if (mRanking == null) {
+            mRanking = getRanking();
+        }
+        return mRanking;
+    }
+
     @Override
     public void onUxRestrictionsChanged(CarUxRestrictions restrictions) {
         mShouldRestrictMessagePreview =
@@ -773,6 +1128,7 @@ public class CarHeadsUpNotificationManager
     @VisibleForTesting
     public void setClickHandlerFactory(NotificationClickHandlerFactory clickHandlerFactory) {
         mClickHandlerFactory = clickHandlerFactory;
+        mHeadsUpViewPool.setClickHandlerFactory(clickHandlerFactory);
     }
 
     /**
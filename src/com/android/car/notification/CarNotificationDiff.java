@@ -140,7 +140,7 @@ class CarNotificationDiff extends DiffUtil.Callback {
         NotificationGroup oldItem = mOldList.get(oldItemPosition);
         NotificationGroup newItem = mNewList.get(newItemPosition);
 
-        if (!sameNotificationContent(
+        if (!sameNotificationContent(mContext,
                 oldItem.getGroupSummaryNotification(), newItem.getGroupSummaryNotification())) {
             return false;
         }
@@ -155,7 +155,7 @@ class CarNotificationDiff extends DiffUtil.Callback {
         for (int i = 0; i < oldItem.getChildCount(); i++) {
             StatusBarNotification oldNotification = oldChildNotifications.get(i);
             StatusBarNotification newNotification = newChildNotifications.get(i);
-            if (!sameNotificationContent(oldNotification, newNotification)) {
+            if (!sameNotificationContent(mContext, oldNotification, newNotification)) {
                 return false;
             }
         }
@@ -170,7 +170,7 @@ class CarNotificationDiff extends DiffUtil.Callback {
      * Most of the deprecated fields are not compared.
      * Fields that do not have visible effects, e.g. privacy-related things are ignored for now.
      */
-    private boolean sameNotificationContent(
+    static boolean sameNotificationContent(Context context,
             StatusBarNotification oldItem, StatusBarNotification newItem) {
 
         if (oldItem == newItem) {
@@ -204,14 +204,14 @@ class CarNotificationDiff extends DiffUtil.Callback {
 
         // Recover builders only until the above if-statements fail
         Notification.Builder oldBuilder =
-                Notification.Builder.recoverBuilder(mContext, oldNotification);
+                Notification.Builder.recoverBuilder(context, oldNotification);
         Notification.Builder newBuilder =
-                Notification.Builder.recoverBuilder(mContext, newNotification);
+                Notification.Builder.recoverBuilder(context, newNotification);
 
         return !Notification.areStyledNotificationsVisiblyDifferent(oldBuilder, newBuilder);
     }
 
-    private boolean areBundlesEqual(Bundle oldBundle, Bundle newBundle) {
+    private static boolean areBundlesEqual(Bundle oldBundle, Bundle newBundle) {
         if (oldBundle.size() != newBundle.size()) {
             return false;
         }
@@ -31,7 +31,10 @@ import android.service.notification.StatusBarNotification;
 import android.util.Log;
 
 import com.android.car.assist.client.CarAssistUtils;
+import com.android.internal.annotations.VisibleForTesting;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
@@ -49,6 +52,7 @@ public class CarNotificationListener extends NotificationListenerService {
     /** Temporary {@link Ranking} object that serves as a reused value holder */
     final private Ranking mTemporaryRanking = new Ranking();
 
+    private Context mContext;
     private Handler mHandler;
     private RankingMap mRankingMap;
     private CarHeadsUpNotificationManager mHeadsUpManager;
@@ -75,6 +79,7 @@ public class CarNotificationListener extends NotificationListenerService {
             CarUxRestrictionManagerWrapper carUxRestrictionManagerWrapper,
             CarHeadsUpNotificationManager carHeadsUpNotificationManager,
             NotificationDataManager notificationDataManager) {
+        mContext = context;
         try {
         mNotificationDataManager = notificationDataManager;
             registerAsSystemService(context,
@@ -87,9 +92,22 @@ public class CarNotificationListener extends NotificationListenerService {
         }
     }
 
+    public CarNotificationListener() {
+    }
+
+    @VisibleForTesting
+    CarNotificationListener(Context context,
+            CarHeadsUpNotificationManager carHeadsUpNotificationManager,
+            NotificationDataManager notificationDataManager) {
+        mContext = context;
+        mHeadsUpManager = carHeadsUpNotificationManager;
+        mNotificationDataManager = notificationDataManager;
+    }
+
     @Override
     public void onCreate() {
         super.onCreate();
+        mContext = this;
         mNotificationDataManager = new NotificationDataManager();
         NotificationApplication app = (NotificationApplication) getApplication();
         app.getClickHandlerFactory().setNotificationDataManager(mNotificationDataManager);
@@ -106,6 +124,13 @@ public class CarNotificationListener extends NotificationListenerService {
                 ? new LocalBinder() : super.onBind(intent);
     }
 
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter pw, String[] args) {
+        super.dump(fd, pw, args);
+        AppResourceCache.getInstance(this).dump(pw);
+        HeadsUpLatencyTracker.getInstance().dump(pw);
+    }
+
     @Override
     public void onNotificationPosted(StatusBarNotification sbn, RankingMap rankingMap) {
         Log.d(TAG, "onNotificationPosted: " + sbn);
@@ -115,6 +140,7 @@ public class CarNotificationListener extends NotificationListenerService {
                 && sbn.getUser().getIdentifier() != UserHandle.USER_ALL) {
             return;
         }
+        HeadsUpLatencyTracker.getInstance().onNotificationPosted(sbn.getKey());
         mRankingMap = rankingMap;
         notifyNotificationPosted(sbn);
     }
@@ -123,6 +149,7 @@ public class CarNotificationListener extends NotificationListenerService {
     public void onNotificationRemoved(StatusBarNotification sbn) {
         Log.d(TAG, "onNotificationRemoved: " + sbn);
         mActiveNotifications.remove(sbn.getKey());
+        MessagingStyleCache.getInstance(mContext).remove(sbn.getKey());
         mHeadsUpManager.maybeRemoveHeadsUp(sbn);
         notifyNotificationRemoved(sbn);
     }
@@ -194,6 +221,8 @@ public class CarNotificationListener extends NotificationListenerService {
     }
 
     private void notifyNotificationPosted(StatusBarNotification sbn) {
+        // parse the message history once so that the templates and group summaries can share it
+        MessagingStyleCache.getInstance(mContext).getLatestMessage(sbn);
         mNotificationDataManager.addNewMessageNotification(sbn);
         mHeadsUpManager.maybeShowHeadsUp(sbn, getCurrentRanking(), mActiveNotifications);
         if (mHandler == null) {
@@ -4,6 +4,8 @@ import android.car.drivingstate.CarUxRestrictions;
 import android.car.drivingstate.CarUxRestrictionsManager;
 import android.content.Context;
 import android.graphics.Rect;
+import android.os.Bundle;
+import android.os.Parcelable;
 import android.util.AttributeSet;
 import android.view.View;
 import android.widget.Button;
@@ -27,10 +29,15 @@ import java.util.List;
 public class CarNotificationView extends ConstraintLayout
         implements CarUxRestrictionsManager.OnUxRestrictionsChangedListener {
 
+    private static final String KEY_SUPER_STATE = "super_state";
+    private static final String KEY_EXPANDED_GROUP_KEYS = "expanded_group_keys";
+
     private CarNotificationViewAdapter mAdapter;
     private Context mContext;
     private LinearLayoutManager mLayoutManager;
     private NotificationDataManager mNotificationDataManager;
+    private NotificationViewPoolWarmer mViewPoolWarmer;
+    private NotificationClickHandlerFactory mClickHandlerFactory;
 
     public CarNotificationView(Context context, AttributeSet attrs) {
         super(context, attrs);
@@ -57,6 +64,10 @@ public class CarNotificationView extends ConstraintLayout
         mAdapter = new CarNotificationViewAdapter(mContext, /* isGroupNotificationAdapter= */
                 false);
         listView.setAdapter(mAdapter);
+        // share the pool with the grouped notifications so that prewarmed templates can be used
+        // by both the root list and the child lists
+        listView.setRecycledViewPool(mAdapter.getViewPool());
+        mViewPoolWarmer = new NotificationViewPoolWarmer(mContext, mAdapter, listView);
 
         ((SimpleItemAnimator) listView.getItemAnimator()).setSupportsChangeAnimations(false);
         listView.addOnItemTouchListener(new CarNotificationItemTouchListener(mContext, mAdapter));
@@ -76,6 +87,13 @@ public class CarNotificationView extends ConstraintLayout
                     setVisibleNotificationsAsSeen();
                 }
             }
+
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                super.onScrolled(recyclerView, dx, dy);
+                mAdapter.setVisibleRange(mLayoutManager.findFirstVisibleItemPosition(),
+                        mLayoutManager.findLastVisibleItemPosition());
+            }
         });
     }
 
@@ -104,7 +122,57 @@ public class CarNotificationView extends ConstraintLayout
      * a notification list clicked.
      */
     public void setClickHandlerFactory(NotificationClickHandlerFactory clickHandlerFactory) {
+        mClickHandlerFactory = clickHandlerFactory;
         mAdapter.setClickHandlerFactory(clickHandlerFactory);
+        if (isAttachedToWindow()) {
+            startViewPoolWarmer();
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        startViewPoolWarmer();
+    }
+
+    private void startViewPoolWarmer() {
+        // view holders keep the click handler factory they were created with, so templates can
+        // only be inflated ahead of time once it is known.
+        if (mClickHandlerFactory != null) {
+            mViewPoolWarmer.start();
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        mViewPoolWarmer.stop();
+    }
+
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        Parcelable superState = super.onSaveInstanceState();
+        if (!mContext.getResources().getBoolean(R.bool.config_keepGroupExpansionState)) {
+            return superState;
+        }
+        Bundle state = new Bundle();
+        state.putParcelable(KEY_SUPER_STATE, superState);
+        state.putStringArrayList(KEY_EXPANDED_GROUP_KEYS, mAdapter.getExpandedGroupKeys());
+        return state;
+    }
+
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof Bundle)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        Bundle bundle = (Bundle) state;
+        super.onRestoreInstanceState(bundle.getParcelable(KEY_SUPER_STATE));
+        List<String> expandedGroupKeys = bundle.getStringArrayList(KEY_EXPANDED_GROUP_KEYS);
+        if (expandedGroupKeys != null) {
+            mAdapter.setExpandedGroupKeys(expandedGroupKeys);
+        }
     }
 
     /**
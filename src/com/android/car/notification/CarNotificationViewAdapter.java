@@ -26,6 +26,7 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.android.car.notification.template.BasicNotificationViewHolder;
@@ -37,10 +38,17 @@ import com.android.car.notification.template.GroupNotificationViewHolder;
 import com.android.car.notification.template.GroupSummaryNotificationViewHolder;
 import com.android.car.notification.template.InboxNotificationViewHolder;
 import com.android.car.notification.template.MessageNotificationViewHolder;
+import com.android.car.notification.template.NotificationBindModelCache;
 import com.android.car.notification.template.ProgressNotificationViewHolder;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 /**
  * Notification data adapter that binds a notification to the corresponding view.
@@ -50,17 +58,33 @@ public class CarNotificationViewAdapter extends RecyclerView.Adapter<RecyclerVie
 
     // Delay in posting notifyDataSetChanged for the adapter in milliseconds.
     private static final int NOTIFY_DATASET_CHANGED_DELAY = 100;
+    // Maximum number of notifications whose bind data is prepared ahead of a data set change.
+    private static final int MAX_PREFETCH_COUNT = 10;
+    // Payload of the item change of a group notification whose expansion state was toggled.
+    private static final Object PAYLOAD_EXPANSION_CHANGED = new Object();
 
     private final Context mContext;
     private final LayoutInflater mInflater;
     private final int mMaxNumberGroupChildrenShown;
     private final boolean mIsGroupNotificationAdapter;
     private final Handler mHandler = new Handler();
+    private final NotificationTextPrecomputer mTextPrecomputer;
+    private final NotificationBindModelCache mBindModelCache;
 
     // book keeping expanded notification groups
-    private final List<String> mExpandedNotifications = new ArrayList<>();
+    private final Set<String> mExpandedNotifications = new HashSet<>();
 
+    // book keeping the single notification wrappers of a group notification adapter so that they
+    // can be reused across binds, keyed by the notification key
+    private final Map<String, NotificationGroup> mChildNotificationGroups = new HashMap<>();
+
+    // notifications shown by this adapter, without the header and the footer
     private List<NotificationGroup> mNotifications = new ArrayList<>();
+    private final int mPrefetchMargin;
+    private int mFirstVisiblePosition = RecyclerView.NO_POSITION;
+    private int mLastVisiblePosition = RecyclerView.NO_POSITION;
+
+    private boolean mHasHeaderAndFooter;
     private RecyclerView.RecycledViewPool mViewPool;
     private CarUxRestrictions mCarUxRestrictions;
     private NotificationClickHandlerFactory mClickHandlerFactory;
@@ -78,12 +102,16 @@ public class CarNotificationViewAdapter extends RecyclerView.Adapter<RecyclerVie
     public CarNotificationViewAdapter(Context context, boolean isGroupNotificationAdapter) {
         mContext = context;
         mInflater = LayoutInflater.from(context);
+        mTextPrecomputer = NotificationTextPrecomputer.getInstance(context);
+        mBindModelCache = NotificationBindModelCache.getInstance(context);
         mMaxNumberGroupChildrenShown =
                 mContext.getResources().getInteger(R.integer.max_group_children_number);
         mIsGroupNotificationAdapter = isGroupNotificationAdapter;
+        mPrefetchMargin =
+                mContext.getResources().getInteger(R.integer.config_notificationListPrefetchMargin);
         setHasStableIds(true);
         if (!mIsGroupNotificationAdapter) {
-            mViewPool = new RecyclerView.RecycledViewPool();
+            mViewPool = new NotificationViewPoolWarmer.UsageTrackingViewPool();
         }
     }
 
@@ -186,24 +214,44 @@ public class CarNotificationViewAdapter extends RecyclerView.Adapter<RecyclerVie
         return viewHolder;
     }
 
+    /**
+     * Only updates the shown children of a group notification if its expansion state has been
+     * toggled, see {@link #setExpanded}. Otherwise binds the whole item.
+     */
     @Override
-    public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
-        NotificationGroup notificationGroup = mNotifications.get(position);
+    public void onBindViewHolder(RecyclerView.ViewHolder holder, int position,
+            List<Object> payloads) {
+        if (payloads.contains(PAYLOAD_EXPANSION_CHANGED)
+                && holder instanceof GroupNotificationViewHolder) {
+            NotificationGroup notificationGroup =
+                    mNotifications.get(getNotificationPosition(position));
+            ((GroupNotificationViewHolder) holder).bindExpansion(notificationGroup, this,
+                    isExpanded(notificationGroup.getGroupKey()));
+            return;
+        }
+        onBindViewHolder(holder, position);
+    }
 
+    @Override
+    public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
         switch (holder.getItemViewType()) {
             case NotificationViewType.HEADER:
                 ((CarNotificationHeaderViewHolder) holder).bind(hasNotifications());
-                break;
+                return;
             case NotificationViewType.FOOTER:
                 ((CarNotificationFooterViewHolder) holder).bind(hasNotifications());
+                return;
+            default:
                 break;
+        }
+
+        NotificationGroup notificationGroup = mNotifications.get(getNotificationPosition(position));
+
+        switch (holder.getItemViewType()) {
             case NotificationViewType.GROUP_EXPANDED:
-                ((GroupNotificationViewHolder) holder)
-                        .bind(notificationGroup, this, /* isExpanded= */ true);
-                break;
             case NotificationViewType.GROUP_COLLAPSED:
-                ((GroupNotificationViewHolder) holder)
-                        .bind(notificationGroup, this, /* isExpanded= */ false);
+                ((GroupNotificationViewHolder) holder).bind(notificationGroup, this,
+                        isExpanded(notificationGroup.getGroupKey()));
                 break;
             case NotificationViewType.GROUP_SUMMARY:
                 ((GroupSummaryNotificationViewHolder) holder).bind(notificationGroup);
@@ -289,27 +337,31 @@ public class CarNotificationViewAdapter extends RecyclerView.Adapter<RecyclerVie
 
     @Override
     public int getItemViewType(int position) {
-        NotificationGroup notificationGroup = mNotifications.get(position);
-
-        if (notificationGroup.isHeader()) {
+        if (isHeaderPosition(position)) {
             return NotificationViewType.HEADER;
         }
 
-        if (notificationGroup.isFooter()) {
+        if (isFooterPosition(position)) {
             return NotificationViewType.FOOTER;
         }
 
+        return getNotificationViewType(mNotifications.get(getNotificationPosition(position)));
+    }
+
+    /**
+     * Returns the view type of a notification group.
+     */
+    @NotificationViewType
+    private int getNotificationViewType(NotificationGroup notificationGroup) {
         if (notificationGroup.isGroup()) {
-            if (mExpandedNotifications.contains(notificationGroup.getGroupKey())) {
-                return NotificationViewType.GROUP_EXPANDED;
-            } else {
-                return NotificationViewType.GROUP_COLLAPSED;
-            }
+            // the same view type whatever the expansion state, so that toggling the expansion
+            // rebinds the same view holder, which then only updates the changed children
+            return NotificationViewType.GROUP_COLLAPSED;
         } else if (mExpandedNotifications.contains(notificationGroup.getGroupKey())) {
             // when there are 2 notifications left in the expanded notification and one of them is
             // removed at that time the item type changes from group to normal and hence the
             // notification should be removed from expanded notifications.
-            setExpanded(notificationGroup.getGroupKey(), false);
+            mExpandedNotifications.remove(notificationGroup.getGroupKey());
         }
 
         Notification notification =
@@ -384,6 +436,9 @@ public class CarNotificationViewAdapter extends RecyclerView.Adapter<RecyclerVie
     @Override
     public int getItemCount() {
         int itemCount = mNotifications.size();
+        if (mHasHeaderAndFooter) {
+            itemCount += 2;
+        }
 
         if (mIsGroupNotificationAdapter && itemCount > mMaxNumberGroupChildrenShown) {
             return mMaxNumberGroupChildrenShown;
@@ -402,36 +457,62 @@ public class CarNotificationViewAdapter extends RecyclerView.Adapter<RecyclerVie
 
     @Override
     public long getItemId(int position) {
-        NotificationGroup notificationGroup = mNotifications.get(position);
-        if (notificationGroup.isHeader()) {
+        if (isHeaderPosition(position)) {
             return 0;
         }
 
-        if (notificationGroup.isFooter()) {
+        if (isFooterPosition(position)) {
             return 1;
         }
 
+        NotificationGroup notificationGroup = mNotifications.get(getNotificationPosition(position));
+
         return notificationGroup.isGroup()
                 ? notificationGroup.getGroupKey().hashCode()
                 : notificationGroup.getSingleNotification().getKey().hashCode();
     }
 
     /**
-     * Set the expansion state of a group notification given its group key.
+     * Set the expansion state of a group notification given its group key. Only the children of
+     * the toggled group are updated, see {@link #onBindViewHolder(RecyclerView.ViewHolder, int,
+     * List)}.
      *
      * @param groupKey the unique identifier of a {@link NotificationGroup}
      * @param isExpanded whether the group notification should be expanded.
      */
     public void setExpanded(String groupKey, boolean isExpanded) {
-        if (isExpanded(groupKey) == isExpanded) {
+        boolean changed = isExpanded
+                ? mExpandedNotifications.add(groupKey)
+                : mExpandedNotifications.remove(groupKey);
+        if (!changed) {
             return;
         }
 
-        if (isExpanded) {
-            mExpandedNotifications.add(groupKey);
-        } else {
-            mExpandedNotifications.remove(groupKey);
+        int position = findGroupPosition(groupKey);
+        if (position == RecyclerView.NO_POSITION) {
+            return;
         }
+        notifyItemChanged(mHasHeaderAndFooter ? position + 1 : position,
+                PAYLOAD_EXPANSION_CHANGED);
+    }
+
+    /**
+     * Returns the group keys of all expanded group notifications.
+     */
+    public ArrayList<String> getExpandedGroupKeys() {
+        return new ArrayList<>(mExpandedNotifications);
+    }
+
+    /**
+     * Replaces the expansion state of all group notifications, e.g. when restoring the state of
+     * the notification list after it has been recreated.
+     *
+     * @param groupKeys the group keys of the group notifications that should be expanded.
+     */
+    public void setExpandedGroupKeys(Collection<String> groupKeys) {
+        mExpandedNotifications.clear();
+        mExpandedNotifications.addAll(groupKeys);
+        notifyDataSetChanged();
     }
 
     /**
@@ -450,6 +531,37 @@ public class CarNotificationViewAdapter extends RecyclerView.Adapter<RecyclerVie
         return mExpandedNotifications.contains(groupKey);
     }
 
+    /**
+     * Returns the position in {@link #mNotifications} of the group notification with the given
+     * group key, or {@link RecyclerView#NO_POSITION} if it is not shown by this adapter.
+     */
+    private int findGroupPosition(String groupKey) {
+        for (int i = 0; i < mNotifications.size(); i++) {
+            if (mNotifications.get(i).isGroup()
+                    && mNotifications.get(i).getGroupKey().equals(groupKey)) {
+                return i;
+            }
+        }
+        return RecyclerView.NO_POSITION;
+    }
+
+    /**
+     * Drops the expansion state of groups that are no longer shown so that the expanded group
+     * keys do not grow without bounds while the state is kept across sessions.
+     */
+    private void pruneExpandedGroups(List<NotificationGroup> notifications) {
+        if (mExpandedNotifications.isEmpty()) {
+            return;
+        }
+        Set<String> groupKeys = new HashSet<>();
+        for (NotificationGroup notificationGroup : notifications) {
+            if (notificationGroup.isGroup()) {
+                groupKeys.add(notificationGroup.getGroupKey());
+            }
+        }
+        mExpandedNotifications.retainAll(groupKeys);
+    }
+
     /**
      * Gets the current {@link CarUxRestrictions}.
      */
@@ -467,48 +579,193 @@ public class CarNotificationViewAdapter extends RecyclerView.Adapter<RecyclerVie
     /**
      * Updates notifications and update views.
      *
+     * <p> The header and the footer are not part of the notification list; they are shown at the
+     * first and the last adapter position respectively.
+     *
      * @param setRecyclerViewListHeaderAndFooter sets the header and footer on the entire list of
      * items within the recycler view. This is NOT the header/footer for the grouped notifications.
      */
     public void setNotifications(List<NotificationGroup> notifications,
             boolean setRecyclerViewListHeaderAndFooter) {
+        mHasHeaderAndFooter = setRecyclerViewListHeaderAndFooter;
+        mNotifications = new ArrayList<>(notifications);
+        pruneExpandedGroups(notifications);
+        prefetchBindData();
 
-        List<NotificationGroup> notificationGroupList = new ArrayList<>(notifications);
+        mHandler.removeCallbacks(mNotifyDataSetChangedRunnable);
+        mHandler.postDelayed(mNotifyDataSetChangedRunnable, NOTIFY_DATASET_CHANGED_DELAY);
+    }
 
-        if (setRecyclerViewListHeaderAndFooter) {
-            // add header as the first item of the list.
-            notificationGroupList.add(0, createNotificationHeader());
-            // add footer as the last item of the list.
-            notificationGroupList.add(createNotificationFooter());
+    /**
+     * Starts building the bind models and measuring the texts of the notifications around the
+     * visible range in the background while the data set change is pending, so that their binds
+     * only assign precomputed data.
+     */
+    private void prefetchBindData() {
+        int start = 0;
+        int end = mNotifications.size();
+        if (mFirstVisiblePosition != RecyclerView.NO_POSITION) {
+            start = Math.max(0, mFirstVisiblePosition - mPrefetchMargin);
+            end = Math.min(end, mLastVisiblePosition + mPrefetchMargin + 1);
         }
+        end = Math.min(end, start + MAX_PREFETCH_COUNT);
+        for (int i = start; i < end; i++) {
+            NotificationGroup notificationGroup = mNotifications.get(i);
+            if (notificationGroup.isGroup()) {
+                if (notificationGroup.getGroupSummaryNotification() != null) {
+                    mBindModelCache.prefetch(notificationGroup.getGroupSummaryNotification());
+                }
+                continue;
+            }
+            StatusBarNotification statusBarNotification = notificationGroup.getSingleNotification();
+            mBindModelCache.prefetch(statusBarNotification);
+            MessagingStyleCache.LatestMessage latestMessage =
+                    MessagingStyleCache.getInstance(mContext)
+                            .getLatestMessage(statusBarNotification);
+            if (latestMessage != null) {
+                mTextPrecomputer.prefetch(R.id.notification_body_title,
+                        latestMessage.getSenderName());
+                mTextPrecomputer.prefetch(R.id.notification_body_content,
+                        PreprocessingManager.getInstance(mContext)
+                                .trimText(latestMessage.getText()));
+                continue;
+            }
+            Bundle extras = statusBarNotification.getNotification().extras;
+            mTextPrecomputer.prefetch(R.id.notification_body_title,
+                    extras.getCharSequence(Notification.EXTRA_TITLE));
+            mTextPrecomputer.prefetch(R.id.notification_body_content,
+                    extras.getCharSequence(Notification.EXTRA_TEXT));
+        }
+    }
 
-        mNotifications = notificationGroupList;
+    /**
+     * Updates the child notifications of a group notification adapter.
+     *
+     * <p> Only the children that have changed since the last call are rebound: the wrappers of
+     * unchanged children are reused and the difference is dispatched as item range updates, so
+     * expanding or collapsing a group animates the inserted or removed children instead of
+     * rebinding the whole list.
+     *
+     * @param group the group notification whose children should be shown.
+     * @param isExpanded whether all child notifications or only the group summary is shown.
+     */
+    public void setChildNotifications(NotificationGroup group, boolean isExpanded) {
+        if (!mIsGroupNotificationAdapter) {
+            throw new IllegalStateException("CarNotificationViewAdapter is not a child adapter; "
+                    + "use setNotifications instead.");
+        }
 
+        List<NotificationGroup> notificationGroupList = new ArrayList<>();
+        Map<String, NotificationGroup> childNotificationGroups = new HashMap<>();
+        if (isExpanded) {
+            // all child notifications
+            for (StatusBarNotification notification : group.getChildNotifications()) {
+                NotificationGroup childGroup = getOrCreateChildNotificationGroup(notification);
+                childNotificationGroups.put(notification.getKey(), childGroup);
+                notificationGroupList.add(childGroup);
+            }
+        } else {
+            // only show group summary notification
+            StatusBarNotification summaryNotification = group.getGroupSummaryNotification();
+            NotificationGroup summaryGroup = mChildNotificationGroups.get(
+                    summaryNotification.getKey());
+            // If the group summary notification is automatically generated,
+            // it does not contain a summary of the titles of the child notifications.
+            // Therefore, we generate a list of the child notification titles from
+            // the parent notification group, and pass them on.
+            List<String> childTitles = group.generateChildTitles(mContext);
+            if (summaryGroup == null
+                    || summaryGroup.getSingleNotification() != summaryNotification
+                    || !Objects.equals(summaryGroup.getChildTitles(), childTitles)) {
+                summaryGroup = new NotificationGroup(summaryNotification);
+                summaryGroup.setChildTitles(childTitles);
+            }
+            childNotificationGroups.put(summaryNotification.getKey(), summaryGroup);
+            notificationGroupList.add(summaryGroup);
+        }
+
+        List<NotificationGroup> oldNotificationGroupList = mNotifications;
+        boolean isSameGroup = !oldNotificationGroupList.isEmpty() && Objects.equals(
+                oldNotificationGroupList.get(0).getGroupKey(), group.getGroupKey());
+
+        mChildNotificationGroups.clear();
+        mChildNotificationGroups.putAll(childNotificationGroups);
+        mNotifications = notificationGroupList;
         mHandler.removeCallbacks(mNotifyDataSetChangedRunnable);
-        mHandler.postDelayed(mNotifyDataSetChangedRunnable, NOTIFY_DATASET_CHANGED_DELAY);
+
+        if (!isSameGroup) {
+            // the view holder has been recycled for another group; nothing to animate
+            notifyDataSetChanged();
+            return;
+        }
+        // only diff the children that getItemCount() reports, the rest is never shown
+        DiffUtil.calculateDiff(
+                new ChildNotificationDiff(getShownChildren(oldNotificationGroupList),
+                        getShownChildren(notificationGroupList)),
+                /* detectMoves= */ false)
+                .dispatchUpdatesTo(this);
     }
 
     /**
-     * Notification list has header and footer by default. Therefore the min number of items in the
-     * adapter will always be two. If there are any notifications present the size will be more than
-     * two.
+     * Returns the leading children that fit into {@link #mMaxNumberGroupChildrenShown}.
+     */
+    private List<NotificationGroup> getShownChildren(List<NotificationGroup> children) {
+        return children.size() > mMaxNumberGroupChildrenShown
+                ? children.subList(0, mMaxNumberGroupChildrenShown)
+                : children;
+    }
+
+    /**
+     * Returns the wrapper created for the notification in a previous call to
+     * {@link #setChildNotifications} if the notification has not been updated since, or a new one.
+     */
+    private NotificationGroup getOrCreateChildNotificationGroup(
+            StatusBarNotification notification) {
+        NotificationGroup childGroup = mChildNotificationGroups.get(notification.getKey());
+        if (childGroup != null && childGroup.getSingleNotification() == notification) {
+            return childGroup;
+        }
+        return new NotificationGroup(notification);
+    }
+
+    /**
+     * Returns true if there are any notifications besides the header and the footer.
      */
     private boolean hasNotifications() {
-        return getItemCount() > 2;
+        return mNotifications.size() > 0;
+    }
+
+    private boolean isHeaderPosition(int position) {
+        return mHasHeaderAndFooter && position == 0;
+    }
+
+    private boolean isFooterPosition(int position) {
+        return mHasHeaderAndFooter && position == mNotifications.size() + 1;
     }
 
-    private NotificationGroup createNotificationHeader() {
-        NotificationGroup notificationGroupWithHeader = new NotificationGroup();
-        notificationGroupWithHeader.setHeader(true);
-        notificationGroupWithHeader.setGroupKey("notification_header");
-        return notificationGroupWithHeader;
+    /**
+     * Converts an adapter position of a notification into its position in {@link #mNotifications}.
+     */
+    private int getNotificationPosition(int adapterPosition) {
+        return mHasHeaderAndFooter ? adapterPosition - 1 : adapterPosition;
     }
 
-    private NotificationGroup createNotificationFooter() {
-        NotificationGroup notificationGroupWithFooter = new NotificationGroup();
-        notificationGroupWithFooter.setFooter(true);
-        notificationGroupWithFooter.setGroupKey("notification_footer");
-        return notificationGroupWithFooter;
+    /**
+     * Sets the range of adapter positions currently visible on screen. Bind data is prepared ahead
+     * of a data set change for this range plus a prefetch margin.
+     *
+     * @param firstVisiblePosition the first visible adapter position, or
+     * {@link RecyclerView#NO_POSITION} if nothing is visible.
+     * @param lastVisiblePosition the last visible adapter position.
+     */
+    public void setVisibleRange(int firstVisiblePosition, int lastVisiblePosition) {
+        if (firstVisiblePosition == RecyclerView.NO_POSITION) {
+            mFirstVisiblePosition = RecyclerView.NO_POSITION;
+            mLastVisiblePosition = RecyclerView.NO_POSITION;
+            return;
+        }
+        mFirstVisiblePosition = getNotificationPosition(firstVisiblePosition);
+        mLastVisiblePosition = getNotificationPosition(lastVisiblePosition);
     }
 
     /**
@@ -561,16 +818,54 @@ public class CarNotificationViewAdapter extends RecyclerView.Adapter<RecyclerVie
         mNotificationDataManager = notificationDataManager;
     }
 
+    /**
+     * {@link CarNotificationDiff} for the children of a group notification adapter. Every item is a
+     * single notification, and all of them share the group key of their parent, so the items are
+     * identified by the notification key instead.
+     */
+    private class ChildNotificationDiff extends CarNotificationDiff {
+        private final List<NotificationGroup> mOldList;
+        private final List<NotificationGroup> mNewList;
+
+        ChildNotificationDiff(List<NotificationGroup> oldList, List<NotificationGroup> newList) {
+            super(mContext, oldList, newList);
+            mOldList = oldList;
+            mNewList = newList;
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return sameNotificationKey(
+                    mOldList.get(oldItemPosition).getSingleNotification(),
+                    mNewList.get(newItemPosition).getSingleNotification());
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            NotificationGroup oldItem = mOldList.get(oldItemPosition);
+            NotificationGroup newItem = mNewList.get(newItemPosition);
+            if (oldItem == newItem) {
+                return true;
+            }
+            return Objects.equals(oldItem.getChildTitles(), newItem.getChildTitles())
+                    && super.areContentsTheSame(oldItemPosition, newItemPosition);
+        }
+    }
+
     /**
      * Set the notification group as seen.
      *
      * @param position Adapter position of the notification group.
      */
     public void setNotificationAsSeen(int position) {
+        if (isHeaderPosition(position) || isFooterPosition(position)) {
+            return;
+        }
+
         NotificationGroup notificationGroup = null;
 
         try {
-            notificationGroup = mNotifications.get(position);
+            notificationGroup = mNotifications.get(getNotificationPosition(position));
         } catch (IndexOutOfBoundsException e) {
             Log.e(TAG, "trying to mark none existent notification as seen.");
             return;
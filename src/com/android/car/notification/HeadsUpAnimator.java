@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.notification;
+
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.animation.ObjectAnimator;
+import android.annotation.Nullable;
+import android.content.Context;
+import android.util.Property;
+import android.view.RenderNodeAnimator;
+import android.view.View;
+import android.view.animation.AnimationUtils;
+import android.view.animation.Interpolator;
+
+import com.android.internal.annotations.VisibleForTesting;
+
+/**
+ * Enter and exit animations of heads-up notification views.
+ *
+ * <p> The interpolators and durations are loaded once. A view is drawn into a hardware layer while
+ * it animates, and if it is hardware accelerated its animations run on the RenderThread, so that
+ * they stay smooth while the main thread is busy, e.g. updating the notification center. Views
+ * that are not hardware accelerated are animated on the main thread.
+ */
+class HeadsUpAnimator {
+    private final Interpolator mEnterYInterpolator;
+    private final Interpolator mEnterAlphaInterpolator;
+    private final Interpolator mExitYInterpolator;
+    private final Interpolator mExitAlphaInterpolator;
+    private final long mEnterDuration;
+    private final long mAlphaEnterDuration;
+    private final long mExitDuration;
+    private final boolean mUseRenderThread;
+
+    HeadsUpAnimator(Context context) {
+        this(context, /* useRenderThread= */ true);
+    }
+
+    @VisibleForTesting
+    HeadsUpAnimator(Context context, boolean useRenderThread) {
+        mEnterYInterpolator = AnimationUtils.loadInterpolator(context,
+                R.interpolator.heads_up_entry_direction_interpolator);
+        mEnterAlphaInterpolator = AnimationUtils.loadInterpolator(context,
+                R.interpolator.heads_up_entry_alpha_interpolator);
+        mExitYInterpolator = AnimationUtils.loadInterpolator(context,
+                R.interpolator.heads_up_exit_direction_interpolator);
+        mExitAlphaInterpolator = AnimationUtils.loadInterpolator(context,
+                R.interpolator.heads_up_exit_alpha_interpolator);
+        mEnterDuration =
+                context.getResources().getInteger(R.integer.headsup_total_enter_duration_ms);
+        mAlphaEnterDuration =
+                context.getResources().getInteger(R.integer.headsup_alpha_enter_duration_ms);
+        mExitDuration = context.getResources().getInteger(R.integer.headsup_exit_duration_ms);
+        mUseRenderThread = useRenderThread;
+    }
+
+    /**
+     * Slides the laid out view in from above the top of the panel while fading it in.
+     */
+    void animateIn(View view) {
+        float startY = -view.getHeight();
+        view.setY(startY);
+        view.setAlpha(0f);
+        start(view,
+                createAnimator(view, RenderNodeAnimator.Y, View.Y, startY, /* finalValue= */ 0f,
+                        mEnterDuration, mEnterYInterpolator),
+                createAnimator(view, RenderNodeAnimator.ALPHA, View.ALPHA, /* startValue= */ 0f,
+                        /* finalValue= */ 1f, mAlphaEnterDuration, mEnterAlphaInterpolator),
+                /* endAction= */ null);
+    }
+
+    /**
+     * Slides the view out above the top of the panel, then runs the end action.
+     */
+    void animateOut(View view, Runnable endAction) {
+        start(view,
+                createAnimator(view, RenderNodeAnimator.Y, View.Y, view.getY(),
+                        /* finalValue= */ -view.getHeight(), mExitDuration, mExitYInterpolator),
+                createAnimator(view, RenderNodeAnimator.ALPHA, View.ALPHA, view.getAlpha(),
+                        /* finalValue= */ 1f, mExitDuration, mExitAlphaInterpolator),
+                endAction);
+    }
+
+    private Animator createAnimator(View view, int renderProperty, Property<View, Float> property,
+            float startValue, float finalValue, long duration, Interpolator interpolator) {
+        Animator animator;
+        if (mUseRenderThread && view.isHardwareAccelerated()) {
+            RenderNodeAnimator renderNodeAnimator =
+                    new RenderNodeAnimator(renderProperty, finalValue);
+            renderNodeAnimator.setStartValue(startValue);
+            renderNodeAnimator.setTarget(view);
+            animator = renderNodeAnimator;
+        } else {
+            animator = ObjectAnimator.ofFloat(view, property, startValue, finalValue);
+        }
+        animator.setDuration(duration);
+        animator.setInterpolator(interpolator);
+        return animator;
+    }
+
+    /**
+     * Starts both animations in a hardware layer. Once the longer one ends, the layer is dropped
+     * and the end action is run.
+     */
+    private static void start(View view, Animator yAnimator, Animator alphaAnimator,
+            @Nullable Runnable endAction) {
+        view.setLayerType(View.LAYER_TYPE_HARDWARE, /* paint= */ null);
+        Animator longerAnimator = yAnimator.getDuration() >= alphaAnimator.getDuration()
+                ? yAnimator : alphaAnimator;
+        longerAnimator.addListener(new AnimatorListenerAdapter() {
+            @Override
+            public void onAnimationEnd(Animator animation) {
+                // heads-up views do not use a layer otherwise
+                view.setLayerType(View.LAYER_TYPE_NONE, /* paint= */ null);
+                if (endAction != null) {
+                    endAction.run();
+                }
+            }
+        });
+        yAnimator.start();
+        alphaAnimator.start();
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.notification;
+
+import android.util.ArrayMap;
+
+import java.util.Arrays;
+
+/**
+ * Limits how many heads-up notifications are shown within a rolling window, per package and in
+ * total, so that a storm of notifications, e.g. from a busy group chat, does not inflate, animate
+ * and alert for every single one.
+ *
+ * <p> The times of the last heads-up notifications are kept in arrays as long as the budget. A
+ * notification fits a budget if the oldest of those times is at least a window ago, in which case
+ * it takes the place of the oldest one. A budget of zero or less means no limit.
+ */
+class HeadsUpBudget {
+    /** The notification fits both budgets. */
+    static final int WITHIN_BUDGET = 0;
+    /** The package of the notification has used up its budget. */
+    static final int OVER_PACKAGE_BUDGET = 1;
+    /** All packages together have used up the global budget. */
+    static final int OVER_GLOBAL_BUDGET = 2;
+
+    private static final long NEVER = Long.MIN_VALUE;
+
+    private final int mPackageBudget;
+    private final long mWindow;
+    private final long[] mGlobalTimes;
+    private final ArrayMap<String, long[]> mPackageTimes = new ArrayMap<>();
+
+    /**
+     * @param packageBudget number of heads-up notifications a package may show per window.
+     * @param globalBudget number of heads-up notifications all packages may show per window.
+     * @param window length of the rolling window in milliseconds.
+     */
+    HeadsUpBudget(int packageBudget, int globalBudget, long window) {
+        mPackageBudget = packageBudget;
+        mWindow = window;
+        mGlobalTimes = globalBudget > 0 ? newTimes(globalBudget) : null;
+    }
+
+    /**
+     * Records a heads-up notification of the given package at the given time if it fits both
+     * budgets. Nothing is recorded otherwise.
+     *
+     * @return {@link #WITHIN_BUDGET}, or the budget the notification does not fit.
+     */
+    int tryAcquire(String packageName, long now) {
+        long[] packageTimes = null;
+        int packageIndex = -1;
+        if (mPackageBudget > 0) {
+            packageTimes = mPackageTimes.get(packageName);
+            if (packageTimes == null) {
+                removeExpiredPackages(now);
+                packageTimes = newTimes(mPackageBudget);
+                mPackageTimes.put(packageName, packageTimes);
+            }
+            packageIndex = indexOfOldest(packageTimes);
+            if (packageTimes[packageIndex] > now - mWindow) {
+                return OVER_PACKAGE_BUDGET;
+            }
+        }
+        if (mGlobalTimes != null) {
+            int globalIndex = indexOfOldest(mGlobalTimes);
+            if (mGlobalTimes[globalIndex] > now - mWindow) {
+                return OVER_GLOBAL_BUDGET;
+            }
+            mGlobalTimes[globalIndex] = now;
+        }
+        if (packageTimes != null) {
+            packageTimes[packageIndex] = now;
+        }
+        return WITHIN_BUDGET;
+    }
+
+    /**
+     * Forgets the packages that have not shown a heads-up notification for a whole window.
+     */
+    private void removeExpiredPackages(long now) {
+        for (int i = mPackageTimes.size() - 1; i >= 0; i--) {
+            long[] times = mPackageTimes.valueAt(i);
+            if (times[indexOfNewest(times)] <= now - mWindow) {
+                mPackageTimes.removeAt(i);
+            }
+        }
+    }
+
+    private static long[] newTimes(int budget) {
+        long[] times = new long[budget];
+        Arrays.fill(times, NEVER);
+        return times;
+    }
+
+    private static int indexOfOldest(long[] times) {
+        int oldest = 0;
+        for (int i = 1; i < times.length; i++) {
+            if (times[i] < times[oldest]) {
+                oldest = i;
+            }
+        }
+        return oldest;
+    }
+
+    private static int indexOfNewest(long[] times) {
+        int newest = 0;
+        for (int i = 1; i < times.length; i++) {
+            if (times[i] > times[newest]) {
+                newest = i;
+            }
+        }
+        return newest;
+    }
+}
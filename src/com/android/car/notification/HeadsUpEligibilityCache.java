@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.notification;
+
+import static com.android.car.assist.client.CarAssistUtils.isCarCompatibleMessagingNotification;
+
+import android.app.KeyguardManager;
+import android.car.userlib.CarUserManagerHelper;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.Uri;
+import android.os.UserHandle;
+import android.service.notification.StatusBarNotification;
+import android.util.ArrayMap;
+import android.util.LruCache;
+import android.util.SparseArray;
+
+import com.android.internal.annotations.VisibleForTesting;
+
+/**
+ * Caches the slow inputs of the heads-up decision so that deciding whether to show a notification
+ * as a heads-up does not make binder calls.
+ *
+ * <p> The keyguard state is read once and then refreshed only when the screen turns on or off, the
+ * user unlocks the device or the user is switched. The keyguard is usually shown only some time
+ * after the screen turns off, so until it is shown or the screen turns on again the state is read
+ * on every query instead. Whether a package is a privileged system app or
+ * signed with the platform key is cached per package and user, and dropped when the package is
+ * added, removed or replaced. Whether a notification is a car compatible messaging notification is
+ * cached per notification key and is only reused for the same post time, since an update may
+ * change the notification's style and actions.
+ */
+class HeadsUpEligibilityCache {
+    private final Context mContext;
+    private final KeyguardManager mKeyguardManager;
+    // user id -> package name -> privileged
+    private final SparseArray<ArrayMap<String, Boolean>> mPrivilegedPackages =
+            new SparseArray<>();
+    private final LruCache<String, CarCompatibility> mCarCompatibility;
+
+    private volatile boolean mKeyguardLocked;
+    // whether the screen is off and the keyguard has not been reported locked since
+    private volatile boolean mAwaitingKeyguard;
+    private volatile int mForegroundUserId;
+
+    private final BroadcastReceiver mPackageChangedReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            Uri data = intent.getData();
+            if (data != null) {
+                invalidatePackage(data.getSchemeSpecificPart());
+            }
+        }
+    };
+
+    private final BroadcastReceiver mDeviceStateReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            if (Intent.ACTION_USER_SWITCHED.equals(intent.getAction())) {
+                mForegroundUserId =
+                        intent.getIntExtra(Intent.EXTRA_USER_HANDLE, mForegroundUserId);
+            }
+            mKeyguardLocked = mKeyguardManager.isKeyguardLocked();
+            if (Intent.ACTION_SCREEN_OFF.equals(intent.getAction())) {
+                mAwaitingKeyguard = !mKeyguardLocked;
+            } else if (!Intent.ACTION_USER_SWITCHED.equals(intent.getAction())) {
+                mAwaitingKeyguard = false;
+            }
+        }
+    };
+
+    HeadsUpEligibilityCache(Context context, CarUserManagerHelper carUserManagerHelper) {
+        mContext = context;
+        mKeyguardManager = (KeyguardManager) context.getSystemService(Context.KEYGUARD_SERVICE);
+        mCarCompatibility = new LruCache<>(
+                context.getResources().getInteger(R.integer.config_headsUpEligibilityCacheSize));
+        mKeyguardLocked = mKeyguardManager.isKeyguardLocked();
+        mForegroundUserId = carUserManagerHelper.getCurrentForegroundUserId();
+
+        IntentFilter packageFilter = new IntentFilter();
+        packageFilter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        packageFilter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        packageFilter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        packageFilter.addDataScheme("package");
+        context.registerReceiverAsUser(mPackageChangedReceiver, UserHandle.ALL, packageFilter,
+                /* broadcastPermission= */ null, /* scheduler= */ null);
+
+        IntentFilter deviceStateFilter = new IntentFilter();
+        deviceStateFilter.addAction(Intent.ACTION_SCREEN_ON);
+        deviceStateFilter.addAction(Intent.ACTION_SCREEN_OFF);
+        deviceStateFilter.addAction(Intent.ACTION_USER_PRESENT);
+        deviceStateFilter.addAction(Intent.ACTION_USER_SWITCHED);
+        context.registerReceiverAsUser(mDeviceStateReceiver, UserHandle.ALL, deviceStateFilter,
+                /* broadcastPermission= */ null, /* scheduler= */ null);
+    }
+
+    /**
+     * Returns the keyguard state as of the last screen, unlock or user switch broadcast, or the
+     * current state while the screen is off and the keyguard is not shown yet.
+     */
+    boolean isKeyguardLocked() {
+        if (mAwaitingKeyguard) {
+            mKeyguardLocked = mKeyguardManager.isKeyguardLocked();
+            mAwaitingKeyguard = !mKeyguardLocked;
+        }
+        return mKeyguardLocked;
+    }
+
+    /**
+     * Returns true if the posting package is signed with the platform key or is a privileged
+     * system app for the foreground user.
+     *
+     * @see NotificationUtils#isSystemPrivilegedOrPlatformKey(Context, StatusBarNotification)
+     */
+    boolean isSystemPrivilegedOrPlatformKey(StatusBarNotification statusBarNotification) {
+        String packageName = statusBarNotification.getPackageName();
+        int userId = mForegroundUserId;
+        ArrayMap<String, Boolean> packages = mPrivilegedPackages.get(userId);
+        if (packages == null) {
+            packages = new ArrayMap<>();
+            mPrivilegedPackages.put(userId, packages);
+        }
+        Boolean privileged = packages.get(packageName);
+        if (privileged == null) {
+            privileged = NotificationUtils.isSystemPrivilegedOrPlatformKey(mContext, packageName,
+                    userId);
+            packages.put(packageName, privileged);
+        }
+        return privileged;
+    }
+
+    /**
+     * Returns true if the notification is a car compatible messaging notification.
+     *
+     * @see com.android.car.assist.client.CarAssistUtils#isCarCompatibleMessagingNotification
+     */
+    boolean isCarCompatibleMessaging(StatusBarNotification statusBarNotification) {
+        String key = statusBarNotification.getKey();
+        long postTime = statusBarNotification.getPostTime();
+        CarCompatibility carCompatibility = mCarCompatibility.get(key);
+        if (carCompatibility == null || carCompatibility.mPostTime != postTime) {
+            carCompatibility = new CarCompatibility(postTime,
+                    isCarCompatibleMessagingNotification(statusBarNotification));
+            mCarCompatibility.put(key, carCompatibility);
+        }
+        return carCompatibility.mCompatible;
+    }
+
+    @VisibleForTesting
+    void invalidatePackage(String packageName) {
+        for (int i = 0; i < mPrivilegedPackages.size(); i++) {
+            mPrivilegedPackages.valueAt(i).remove(packageName);
+        }
+    }
+
+    private static final class CarCompatibility {
+        private final long mPostTime;
+        private final boolean mCompatible;
+
+        private CarCompatibility(long postTime, boolean compatible) {
+            mPostTime = postTime;
+            mCompatible = compatible;
+        }
+    }
+}
@@ -16,8 +16,10 @@
 
 package com.android.car.notification;
 
+import android.annotation.Nullable;
 import android.content.Context;
-import android.os.Handler;
+import android.os.SystemClock;
+import android.service.notification.NotificationListenerService;
 import android.service.notification.StatusBarNotification;
 import android.view.View;
 import android.view.ViewGroup;
@@ -27,33 +29,52 @@ import com.android.car.notification.template.CarNotificationBaseViewHolder;
 
 /**
  * Class to store the state for Heads Up Notifications. Each notification will have its own post
- * time, handler, and Layout. This class ensures to store it as a separate state so that each Heads
- * up notification can be controlled independently.
+ * time, dismiss deadline, and Layout. This class ensures to store it as a separate state so that
+ * each Heads up notification can be controlled independently.
  */
 public class HeadsUpEntry {
 
     private final StatusBarNotification mStatusBarNotification;
+    private final HeadsUpTimerWheel.Clock mClock;
     private long mPostTime;
-    private final Handler mHandler;
+    @Nullable
+    private HeadsUpTimerWheel.Timeout mDismissTimeout;
     protected boolean isAlertAgain;
     protected boolean isNewHeadsUp;
+    protected boolean isExiting;
+    // whether the view holder was bound with the message preview restricted
+    protected boolean isBoundRestricted;
     private View mNotificationView;
+    @Nullable
+    private View mCardView;
+    @Nullable
+    private View.OnLayoutChangeListener mCardLayoutChangeListener;
     private NotificationClickHandlerFactory mClickHandlerFactory;
     private CarNotificationBaseViewHolder mCarNotificationBaseViewHolder;
+    @NotificationViewType
+    private int mViewType;
+    private int mPriority;
+    @Nullable
+    private NotificationListenerService.RankingMap mRankingMap;
 
     HeadsUpEntry(StatusBarNotification statusBarNotification) {
+        this(statusBarNotification, SystemClock::uptimeMillis);
+    }
+
+    HeadsUpEntry(StatusBarNotification statusBarNotification, HeadsUpTimerWheel.Clock clock) {
         mStatusBarNotification = statusBarNotification;
+        mClock = clock;
         mPostTime = calculatePostTime();
-        mHandler = new Handler();
     }
 
     /**
-     * Calculate what the post time of a notification is at some current time.
+     * Calculate what the post time of a notification is at some current time. The post time is
+     * monotonic and only meant to measure how long the notification has been shown.
      *
      * @return the post time
      */
     private long calculatePostTime() {
-        return System.currentTimeMillis();
+        return mClock.uptimeMillis();
     }
 
     /**
@@ -68,12 +89,29 @@ public class HeadsUpEntry {
     }
 
     /**
-     * Handler will used the method {@link Handler#postDelayed(Runnable, long)} which will control
-     * he dismiss time for the Heads Up notification. All the notifications should have their own
-     * handler o control this time.
+     * Sets the pending dismissal of the Heads Up notification, cancelling the previous one.
+     */
+    protected void setDismissTimeout(@Nullable HeadsUpTimerWheel.Timeout dismissTimeout) {
+        cancelDismissTimeout();
+        mDismissTimeout = dismissTimeout;
+    }
+
+    /**
+     * Returns the pending dismissal of the Heads Up notification, if any.
+     */
+    @Nullable
+    protected HeadsUpTimerWheel.Timeout getDismissTimeout() {
+        return mDismissTimeout != null && mDismissTimeout.isPending() ? mDismissTimeout : null;
+    }
+
+    /**
+     * Cancels the pending dismissal of the Heads Up notification, if any.
      */
-    protected Handler getHandler() {
-        return mHandler;
+    protected void cancelDismissTimeout() {
+        if (mDismissTimeout != null) {
+            mDismissTimeout.cancel();
+            mDismissTimeout = null;
+        }
     }
 
 
@@ -92,6 +130,33 @@ public class HeadsUpEntry {
         return mNotificationView;
     }
 
+    /**
+     * Card of the notification view that makes up its touchable area. The listener is notified
+     * whenever the card is laid out, until the card is detached.
+     */
+    protected void attachCardView(View cardView, View.OnLayoutChangeListener listener) {
+        detachCardView();
+        mCardView = cardView;
+        mCardLayoutChangeListener = listener;
+        cardView.addOnLayoutChangeListener(listener);
+    }
+
+    /**
+     * Stops notifying the listener of the attached card, if any, of layout changes.
+     */
+    protected void detachCardView() {
+        if (mCardView != null) {
+            mCardView.removeOnLayoutChangeListener(mCardLayoutChangeListener);
+            mCardView = null;
+            mCardLayoutChangeListener = null;
+        }
+    }
+
+    @Nullable
+    protected View getCardView() {
+        return mCardView;
+    }
+
     protected NotificationClickHandlerFactory getClickHandlerFactory() {
         return mClickHandlerFactory;
     }
@@ -105,6 +170,42 @@ public class HeadsUpEntry {
         mCarNotificationBaseViewHolder = viewHolder;
     }
 
+    /**
+     * Type of the template the view holder was created for.
+     */
+    protected void setViewType(@NotificationViewType int viewType) {
+        mViewType = viewType;
+    }
+
+    @NotificationViewType
+    protected int getViewType() {
+        return mViewType;
+    }
+
+    /**
+     * Priority class of the notification, see {@link HeadsUpQueue#getPriority}, computed once
+     * when the notification was posted.
+     */
+    protected void setPriority(int priority) {
+        mPriority = priority;
+    }
+
+    protected int getPriority() {
+        return mPriority;
+    }
+
+    /**
+     * Ranking the notification was last shown with, or {@code null} if it does not alert.
+     */
+    protected void setRankingMap(@Nullable NotificationListenerService.RankingMap rankingMap) {
+        mRankingMap = rankingMap;
+    }
+
+    @Nullable
+    protected NotificationListenerService.RankingMap getRankingMap() {
+        return mRankingMap;
+    }
+
     protected CarNotificationBaseViewHolder getViewHolder() {
         return mCarNotificationBaseViewHolder;
     }
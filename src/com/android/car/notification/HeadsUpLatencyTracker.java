@@ -0,0 +1,278 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.notification;
+
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.ArrayMap;
+
+import com.android.internal.annotations.GuardedBy;
+import com.android.internal.annotations.VisibleForTesting;
+
+import java.io.PrintWriter;
+
+/**
+ * Measures how long it takes for a heads-up notification to be drawn after it has been posted,
+ * broken down into the stages it goes through.
+ *
+ * <p> Timestamps are recorded per notification key as the notification passes each stage. Once
+ * the first frame of a new heads-up notification has been drawn, the time spent in each stage is
+ * added to a histogram of the notification's priority class. Percentiles of the histograms are
+ * printed by {@code dumpsys} and, while tracing, the percentiles of the total latency are exported
+ * as trace counters so that replays can catch regressions.
+ *
+ * <p> Updates to a heads-up notification that is already shown are not measured.
+ */
+public class HeadsUpLatencyTracker {
+    private static final String TAG = "HeadsUpLatency";
+
+    /** The notification was received by the notification listener. */
+    static final int STAGE_INGEST = 0;
+    /** The notification was found to be shown as a heads-up notification. */
+    static final int STAGE_SHOULD_SHOW = 1;
+    /** A view was inflated or taken from the pool, including any time spent in the queue. */
+    static final int STAGE_INFLATE = 2;
+    /** The view was attached to the heads-up panel. */
+    static final int STAGE_ATTACH = 3;
+    /** The notification was bound to the view. */
+    static final int STAGE_BIND = 4;
+    /** The view was laid out for the first time. */
+    static final int STAGE_LAYOUT = 5;
+    /** The enter animation was started. */
+    static final int STAGE_ANIMATION_START = 6;
+    /** The first frame of the view was drawn. */
+    static final int STAGE_FIRST_FRAME = 7;
+    private static final int STAGE_COUNT = 8;
+    // histogram index of the time from ingest to the first frame
+    private static final int TOTAL = STAGE_COUNT;
+
+    private static final String[] STAGE_NAMES = {
+            "ingest", "shouldShow", "inflate", "attach", "bind", "layout", "animationStart",
+            "firstFrame", "total"};
+    private static final String[] PRIORITY_NAMES = {
+            "other", "message", "navigation", "call", "emergency"};
+    private static final int PRIORITY_COUNT = PRIORITY_NAMES.length;
+
+    /** Upper bounds, in milliseconds, of the histogram buckets. The last bucket is unbounded. */
+    private static final int[] BUCKET_UPPER_BOUNDS_MS = {
+            1, 2, 3, 4, 6, 8, 12, 16, 24, 32, 48, 64, 96, 128, 192, 256, 384, 512, 768, 1024,
+            1536, 2048, 4096, 8192};
+    private static final int BUCKET_COUNT = BUCKET_UPPER_BOUNDS_MS.length + 1;
+    private static final int[] PERCENTILES = {50, 90, 99};
+    /** Maximum number of notifications measured at the same time. */
+    private static final int MAX_IN_FLIGHT = 32;
+
+    private static HeadsUpLatencyTracker sInstance;
+
+    private final Object mLock = new Object();
+    @GuardedBy("mLock")
+    private final ArrayMap<String, long[]> mInFlight = new ArrayMap<>();
+    // [priority][stage or TOTAL][bucket]
+    @GuardedBy("mLock")
+    private final int[][][] mHistograms = new int[PRIORITY_COUNT][STAGE_COUNT + 1][BUCKET_COUNT];
+    // trace counter names, [priority][percentile]
+    private final String[][] mCounterNames = new String[PRIORITY_COUNT][PERCENTILES.length];
+
+    public static HeadsUpLatencyTracker getInstance() {
+        if (sInstance == null) {
+            sInstance = new HeadsUpLatencyTracker();
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    HeadsUpLatencyTracker() {
+        for (int priority = 0; priority < PRIORITY_COUNT; priority++) {
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                mCounterNames[priority][i] =
+                        TAG + "." + PRIORITY_NAMES[priority] + ".p" + PERCENTILES[i];
+            }
+        }
+    }
+
+    /**
+     * Starts measuring a posted notification, replacing an unfinished measurement of the same key.
+     */
+    public void onNotificationPosted(String key) {
+        synchronized (mLock) {
+            if (mInFlight.size() >= MAX_IN_FLIGHT && !mInFlight.containsKey(key)) {
+                // the oldest measurements never finished, most likely they were not heads-up
+                mInFlight.removeAt(0);
+            }
+            long[] timestamps = new long[STAGE_COUNT];
+            timestamps[STAGE_INGEST] = now();
+            mInFlight.put(key, timestamps);
+        }
+    }
+
+    /**
+     * Records that the notification with the given key reached a stage. Does nothing if the
+     * notification is not measured.
+     */
+    void onStage(String key, int stage) {
+        synchronized (mLock) {
+            long[] timestamps = mInFlight.get(key);
+            if (timestamps != null && timestamps[stage] == 0) {
+                timestamps[stage] = now();
+            }
+        }
+    }
+
+    /**
+     * Stops measuring the notification with the given key, e.g. because it is not shown as a new
+     * heads-up notification.
+     */
+    void cancel(String key) {
+        synchronized (mLock) {
+            mInFlight.remove(key);
+        }
+    }
+
+    /**
+     * Records that the first frame of the notification has been drawn and adds its measurement to
+     * the histograms of its priority class.
+     */
+    void onFirstFrame(String key, int priority) {
+        int[] percentiles = null;
+        synchronized (mLock) {
+            long[] timestamps = mInFlight.remove(key);
+            if (timestamps == null) {
+                return;
+            }
+            timestamps[STAGE_FIRST_FRAME] = now();
+            int[][] histograms = mHistograms[priority];
+            long previous = timestamps[STAGE_INGEST];
+            for (int stage = STAGE_INGEST + 1; stage < STAGE_COUNT; stage++) {
+                if (timestamps[stage] == 0) {
+                    // skipped stage, e.g. no enter animation
+                    continue;
+                }
+                add(histograms[stage], timestamps[stage] - previous);
+                previous = timestamps[stage];
+            }
+            add(histograms[TOTAL], timestamps[STAGE_FIRST_FRAME] - timestamps[STAGE_INGEST]);
+            if (Trace.isEnabled()) {
+                percentiles = new int[PERCENTILES.length];
+                for (int i = 0; i < PERCENTILES.length; i++) {
+                    percentiles[i] = getPercentile(histograms[TOTAL], PERCENTILES[i]);
+                }
+            }
+        }
+        if (percentiles != null) {
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                Trace.setCounter(mCounterNames[priority][i], percentiles[i]);
+            }
+        }
+    }
+
+    /**
+     * Prints the number of measured heads-up notifications and the latency percentiles of each
+     * stage, per priority class.
+     */
+    public void dump(PrintWriter pw) {
+        pw.println(TAG + ": percentiles " + formatPercentileNames() + " in ms");
+        synchronized (mLock) {
+            for (int priority = 0; priority < PRIORITY_COUNT; priority++) {
+                int[][] histograms = mHistograms[priority];
+                int count = getCount(histograms[TOTAL]);
+                if (count == 0) {
+                    continue;
+                }
+                pw.println("  " + PRIORITY_NAMES[priority] + ": count=" + count);
+                for (int stage = STAGE_INGEST + 1; stage <= TOTAL; stage++) {
+                    if (getCount(histograms[stage]) == 0) {
+                        continue;
+                    }
+                    StringBuilder line = new StringBuilder("    ").append(STAGE_NAMES[stage]);
+                    for (int percentile : PERCENTILES) {
+                        line.append(' ').append(formatBound(
+                                getPercentile(histograms[stage], percentile)));
+                    }
+                    pw.println(line);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the given percentile of the total latency of a priority class, in milliseconds, as
+     * the upper bound of the bucket it falls in.
+     */
+    @VisibleForTesting
+    int getTotalPercentile(int priority, int percentile) {
+        synchronized (mLock) {
+            return getPercentile(mHistograms[priority][TOTAL], percentile);
+        }
+    }
+
+    private static void add(int[] histogram, long latencyNanos) {
+        long latencyMs = latencyNanos / 1_000_000;
+        int bucket = 0;
+        while (bucket < BUCKET_UPPER_BOUNDS_MS.length
+                && latencyMs >= BUCKET_UPPER_BOUNDS_MS[bucket]) {
+            bucket++;
+        }
+        histogram[bucket]++;
+    }
+
+    private static int getCount(int[] histogram) {
+        int count = 0;
+        for (int bucketCount : histogram) {
+            count += bucketCount;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the upper bound of the bucket the percentile falls in, {@link Integer#MAX_VALUE} for
+     * the unbounded bucket, or 0 if the histogram is empty.
+     */
+    private static int getPercentile(int[] histogram, int percentile) {
+        int count = getCount(histogram);
+        if (count == 0) {
+            return 0;
+        }
+        // rank of the sample at the percentile, rounded up
+        int rank = (count * percentile + 99) / 100;
+        int seen = 0;
+        for (int bucket = 0; bucket < BUCKET_UPPER_BOUNDS_MS.length; bucket++) {
+            seen += histogram[bucket];
+            if (seen >= rank) {
+                return BUCKET_UPPER_BOUNDS_MS[bucket];
+            }
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    private static String formatBound(int bound) {
+        return bound == Integer.MAX_VALUE
+                ? ">" + BUCKET_UPPER_BOUNDS_MS[BUCKET_UPPER_BOUNDS_MS.length - 1]
+                : "<" + bound;
+    }
+
+    private static String formatPercentileNames() {
+        StringBuilder names = new StringBuilder();
+        for (int percentile : PERCENTILES) {
+            names.append(names.length() == 0 ? "" : "/").append('p').append(percentile);
+        }
+        return names.toString();
+    }
+
+    private static long now() {
+        return SystemClock.elapsedRealtimeNanos();
+    }
+}
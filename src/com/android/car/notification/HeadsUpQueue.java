@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.notification;
+
+import static com.android.car.assist.client.CarAssistUtils.isCarCompatibleMessagingNotification;
+
+import android.annotation.Nullable;
+import android.app.Notification;
+import android.service.notification.NotificationListenerService;
+import android.service.notification.StatusBarNotification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Heads-up notifications waiting for a free slot on the heads-up panel.
+ *
+ * <p> Notifications are ordered by priority class and, within a class, by the time they were first
+ * queued, so an update to a queued notification keeps its place. Each notification may have a
+ * deadline after which it is no longer worth showing on its own.
+ */
+class HeadsUpQueue {
+    static final int PRIORITY_OTHER = 0;
+    static final int PRIORITY_MESSAGE = 1;
+    static final int PRIORITY_NAVIGATION = 2;
+    static final int PRIORITY_CALL = 3;
+    static final int PRIORITY_CAR_EMERGENCY = 4;
+
+    /** Deadline of notifications that never expire. */
+    static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    // sorted by descending priority, then by ascending sequence number
+    private final List<PendingHeadsUp> mPendingHeadsUps = new ArrayList<>();
+    private long mNextSequenceNumber;
+
+    /**
+     * Returns the priority class of a heads-up notification. This may query the assistant, so it
+     * is computed once per posted notification and kept with it.
+     */
+    static int getPriority(StatusBarNotification statusBarNotification) {
+        String category = statusBarNotification.getNotification().category;
+        if (category != null) {
+            switch (category) {
+                case Notification.CATEGORY_CAR_EMERGENCY:
+                    return PRIORITY_CAR_EMERGENCY;
+                case Notification.CATEGORY_CALL:
+                    return PRIORITY_CALL;
+                case Notification.CATEGORY_NAVIGATION:
+                    return PRIORITY_NAVIGATION;
+                case Notification.CATEGORY_MESSAGE:
+                    return PRIORITY_MESSAGE;
+                default:
+                    break;
+            }
+        }
+        if (isCarCompatibleMessagingNotification(statusBarNotification)) {
+            return PRIORITY_MESSAGE;
+        }
+        return PRIORITY_OTHER;
+    }
+
+    /**
+     * Queues a heads-up notification, replacing a queued notification with the same key.
+     *
+     * @param rankingMap ranking used to alert the user once shown, or {@code null} if the
+     * notification does not alert.
+     * @param priority priority class of the notification, see {@link #getPriority}.
+     * @param hasAlerted whether the user has already been alerted of the notification, in which
+     * case it does not alert again once shown.
+     * @param deadline uptime after which the notification expires, or {@link #NO_DEADLINE}.
+     */
+    void enqueue(StatusBarNotification statusBarNotification,
+            @Nullable NotificationListenerService.RankingMap rankingMap, int priority,
+            boolean hasAlerted, long deadline) {
+        PendingHeadsUp previous = remove(statusBarNotification.getKey());
+        PendingHeadsUp pendingHeadsUp = new PendingHeadsUp(statusBarNotification, rankingMap,
+                priority, hasAlerted,
+                previous != null ? previous.mSequenceNumber : mNextSequenceNumber++, deadline);
+        int index = 0;
+        while (index < mPendingHeadsUps.size()
+                && !pendingHeadsUp.isBefore(mPendingHeadsUps.get(index))) {
+            index++;
+        }
+        mPendingHeadsUps.add(index, pendingHeadsUp);
+    }
+
+    /**
+     * Removes the queued notification with the given key, if any.
+     */
+    @Nullable
+    PendingHeadsUp remove(String key) {
+        for (int i = 0; i < mPendingHeadsUps.size(); i++) {
+            if (mPendingHeadsUps.get(i).getStatusBarNotification().getKey().equals(key)) {
+                return mPendingHeadsUps.remove(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the queued notification with the given key, if any.
+     */
+    @Nullable
+    PendingHeadsUp get(String key) {
+        for (int i = 0; i < mPendingHeadsUps.size(); i++) {
+            if (mPendingHeadsUps.get(i).getStatusBarNotification().getKey().equals(key)) {
+                return mPendingHeadsUps.get(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns true if a notification with the given key is queued.
+     */
+    boolean contains(String key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Removes and returns the queued notification with the highest priority, if any.
+     */
+    @Nullable
+    PendingHeadsUp poll() {
+        return mPendingHeadsUps.isEmpty() ? null : mPendingHeadsUps.remove(0);
+    }
+
+    /**
+     * Removes the notifications whose deadline is at or before {@code now} and adds them to
+     * {@code expired}, in queue order.
+     */
+    void removeExpired(long now, List<PendingHeadsUp> expired) {
+        for (int i = 0; i < mPendingHeadsUps.size(); ) {
+            if (mPendingHeadsUps.get(i).getDeadline() <= now) {
+                expired.add(mPendingHeadsUps.remove(i));
+            } else {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Returns the earliest deadline of the queued notifications, or {@link #NO_DEADLINE}.
+     */
+    long getNextDeadline() {
+        long deadline = NO_DEADLINE;
+        for (int i = 0; i < mPendingHeadsUps.size(); i++) {
+            deadline = Math.min(deadline, mPendingHeadsUps.get(i).getDeadline());
+        }
+        return deadline;
+    }
+
+    int size() {
+        return mPendingHeadsUps.size();
+    }
+
+    void clear() {
+        mPendingHeadsUps.clear();
+    }
+
+    /**
+     * A heads-up notification waiting in the queue.
+     */
+    static class PendingHeadsUp {
+        private final StatusBarNotification mStatusBarNotification;
+        @Nullable
+        private final NotificationListenerService.RankingMap mRankingMap;
+        private final int mPriority;
+        private final boolean mHasAlerted;
+        private final long mSequenceNumber;
+        private final long mDeadline;
+
+        private PendingHeadsUp(StatusBarNotification statusBarNotification,
+                @Nullable NotificationListenerService.RankingMap rankingMap, int priority,
+                boolean hasAlerted, long sequenceNumber, long deadline) {
+            mStatusBarNotification = statusBarNotification;
+            mRankingMap = rankingMap;
+            mPriority = priority;
+            mHasAlerted = hasAlerted;
+            mSequenceNumber = sequenceNumber;
+            mDeadline = deadline;
+        }
+
+        StatusBarNotification getStatusBarNotification() {
+            return mStatusBarNotification;
+        }
+
+        @Nullable
+        NotificationListenerService.RankingMap getRankingMap() {
+            return mRankingMap;
+        }
+
+        int getPriority() {
+            return mPriority;
+        }
+
+        boolean hasAlerted() {
+            return mHasAlerted;
+        }
+
+        long getDeadline() {
+            return mDeadline;
+        }
+
+        private boolean isBefore(PendingHeadsUp other) {
+            if (mPriority != other.mPriority) {
+                return mPriority > other.mPriority;
+            }
+            return mSequenceNumber < other.mSequenceNumber;
+        }
+    }
+}
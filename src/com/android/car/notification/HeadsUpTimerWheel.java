@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.notification;
+
+import android.annotation.Nullable;
+import android.os.Handler;
+import android.os.SystemClock;
+
+import com.android.internal.annotations.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hashed timer wheel that runs all heads-up notification deadlines from a single handler
+ * callback, on the thread of the given handler.
+ *
+ * <p> Deadlines are measured with a monotonic clock and rounded up to the next tick, so a task
+ * never runs early and runs at most one tick late. Scheduling and cancelling a task are O(1):
+ * a task is linked into the slot of its deadline tick and unlinked from it. The handler is only
+ * woken up for slots that hold tasks, and not at all while the wheel is empty.
+ *
+ * <p> A task is released as soon as it runs or is cancelled, so a {@link Timeout} kept by a
+ * heads-up entry never keeps a view alive.
+ */
+class HeadsUpTimerWheel {
+    @VisibleForTesting
+    static final long TICK_MILLIS = 100;
+    // must be a power of two
+    private static final int WHEEL_SIZE = 128;
+    private static final int SLOT_MASK = WHEEL_SIZE - 1;
+    private static final long NO_TICK = Long.MAX_VALUE;
+
+    /**
+     * Source of monotonic time in milliseconds.
+     */
+    interface Clock {
+        long uptimeMillis();
+    }
+
+    private final Handler mHandler;
+    private final Clock mClock;
+    private final Timeout[] mSlots = new Timeout[WHEEL_SIZE];
+    private final Runnable mTickRunnable = this::tick;
+    private final List<Timeout> mExpiredTimeouts = new ArrayList<>();
+
+    // last tick whose slot has been processed
+    private long mCurrentTick;
+    // tick the handler callback is posted for, or NO_TICK
+    private long mScheduledTick = NO_TICK;
+    private int mPendingCount;
+
+    HeadsUpTimerWheel() {
+        this(new Handler(), SystemClock::uptimeMillis);
+    }
+
+    @VisibleForTesting
+    HeadsUpTimerWheel(Handler handler, Clock clock) {
+        mHandler = handler;
+        mClock = clock;
+        mCurrentTick = mClock.uptimeMillis() / TICK_MILLIS;
+    }
+
+    /**
+     * Returns the current time of the clock the deadlines are measured with.
+     */
+    long uptimeMillis() {
+        return mClock.uptimeMillis();
+    }
+
+    /**
+     * Runs the task after the given delay, unless the returned timeout is cancelled first.
+     */
+    Timeout schedule(Runnable task, long delayMillis) {
+        long now = mClock.uptimeMillis();
+        if (mPendingCount == 0) {
+            // nothing was due while the wheel was empty
+            mCurrentTick = Math.max(mCurrentTick, now / TICK_MILLIS);
+        }
+        long deadline = now + Math.max(delayMillis, 0);
+        // round up so the task never runs before its deadline
+        long deadlineTick = Math.max((deadline + TICK_MILLIS - 1) / TICK_MILLIS,
+                mCurrentTick + 1);
+        Timeout timeout = new Timeout(this, task, deadline, deadlineTick);
+        int slot = (int) (deadlineTick & SLOT_MASK);
+        timeout.mNext = mSlots[slot];
+        if (timeout.mNext != null) {
+            timeout.mNext.mPrevious = timeout;
+        }
+        mSlots[slot] = timeout;
+        mPendingCount++;
+        if (deadlineTick < mScheduledTick) {
+            postTick(deadlineTick);
+        }
+        return timeout;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.mPrevious != null) {
+            timeout.mPrevious.mNext = timeout.mNext;
+        } else {
+            mSlots[(int) (timeout.mDeadlineTick & SLOT_MASK)] = timeout.mNext;
+        }
+        if (timeout.mNext != null) {
+            timeout.mNext.mPrevious = timeout.mPrevious;
+        }
+        timeout.mPrevious = null;
+        timeout.mNext = null;
+        timeout.mTask = null;
+        mPendingCount--;
+        if (mPendingCount == 0) {
+            mHandler.removeCallbacks(mTickRunnable);
+            mScheduledTick = NO_TICK;
+        }
+    }
+
+    /**
+     * Runs the tasks whose deadline has passed and posts the next tick. Called from the handler.
+     */
+    @VisibleForTesting
+    void tick() {
+        mScheduledTick = NO_TICK;
+        long nowTick = mClock.uptimeMillis() / TICK_MILLIS;
+        // visiting more than one revolution of slots would only revisit the same slots
+        long firstTick = Math.max(mCurrentTick + 1, nowTick - WHEEL_SIZE + 1);
+        for (long tick = firstTick; tick <= nowTick; tick++) {
+            for (Timeout timeout = mSlots[(int) (tick & SLOT_MASK)]; timeout != null;
+                    timeout = timeout.mNext) {
+                if (timeout.mDeadlineTick <= nowTick) {
+                    mExpiredTimeouts.add(timeout);
+                }
+            }
+        }
+        mCurrentTick = Math.max(mCurrentTick, nowTick);
+
+        // run the tasks once the slots are no longer iterated, as they may schedule or cancel
+        for (int i = 0; i < mExpiredTimeouts.size(); i++) {
+            Timeout timeout = mExpiredTimeouts.get(i);
+            Runnable task = timeout.mTask;
+            if (task != null) {
+                unlink(timeout);
+                task.run();
+            }
+        }
+        mExpiredTimeouts.clear();
+
+        if (mPendingCount > 0 && mScheduledTick == NO_TICK) {
+            postTick(findNextOccupiedTick());
+        }
+    }
+
+    /**
+     * Returns the next tick within one revolution whose slot holds a task. The task may belong to
+     * a later revolution, in which case the tick only moves the wheel forward.
+     */
+    private long findNextOccupiedTick() {
+        for (long tick = mCurrentTick + 1; tick <= mCurrentTick + WHEEL_SIZE; tick++) {
+            if (mSlots[(int) (tick & SLOT_MASK)] != null) {
+                return tick;
+            }
+        }
+        return mCurrentTick + WHEEL_SIZE;
+    }
+
+    private void postTick(long tick) {
+        mHandler.removeCallbacks(mTickRunnable);
+        mScheduledTick = tick;
+        mHandler.postDelayed(mTickRunnable,
+                Math.max(tick * TICK_MILLIS - mClock.uptimeMillis(), 0));
+    }
+
+    /**
+     * Handle of a task scheduled on the wheel.
+     */
+    static final class Timeout {
+        private final HeadsUpTimerWheel mWheel;
+        private final long mDeadline;
+        private final long mDeadlineTick;
+        @Nullable
+        private Runnable mTask;
+        @Nullable
+        private Timeout mPrevious;
+        @Nullable
+        private Timeout mNext;
+
+        private Timeout(HeadsUpTimerWheel wheel, Runnable task, long deadline,
+                long deadlineTick) {
+            mWheel = wheel;
+            mTask = task;
+            mDeadline = deadline;
+            mDeadlineTick = deadlineTick;
+        }
+
+        /**
+         * Returns the time, on the wheel's clock, after which the task runs.
+         */
+        long getDeadline() {
+            return mDeadline;
+        }
+
+        /**
+         * Returns true if the task has neither run nor been cancelled yet.
+         */
+        boolean isPending() {
+            return mTask != null;
+        }
+
+        /**
+         * Prevents the task from running. Does nothing if it has already run or been cancelled.
+         */
+        void cancel() {
+            if (mTask != null) {
+                mWheel.unlink(this);
+            }
+        }
+    }
+}
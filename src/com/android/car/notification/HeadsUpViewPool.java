@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.notification;
+
+import android.content.Context;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.util.ArrayMap;
+import android.util.Log;
+import android.util.SparseArray;
+import android.view.LayoutInflater;
+import android.view.View;
+
+import androidx.annotation.MainThread;
+
+import com.android.car.notification.template.BasicNotificationViewHolder;
+import com.android.car.notification.template.CallNotificationViewHolder;
+import com.android.car.notification.template.CarNotificationBaseViewHolder;
+import com.android.car.notification.template.EmergencyNotificationViewHolder;
+import com.android.car.notification.template.InboxNotificationViewHolder;
+import com.android.car.notification.template.MessageNotificationViewHolder;
+import com.android.car.notification.template.NavigationNotificationViewHolder;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+
+/**
+ * Keeps a few inflated heads-up templates per view type so that showing a heads-up notification
+ * only binds and attaches a view instead of inflating one.
+ *
+ * <p> Views are returned to the pool once their heads-up notification has been removed from the
+ * panel, and the pool is topped up to {@code R.integer.config_headsUpViewPoolSize} views per type
+ * while the main thread is idle, one inflation per idle callback.
+ */
+class HeadsUpViewPool implements MessageQueue.IdleHandler {
+    private static final String TAG = "HeadsUpViewPool";
+    private static final boolean DEBUG = false;
+
+    /** View types that are inflated ahead of time, most urgent first. */
+    private static final int[] WARM_UP_VIEW_TYPES = {
+            NotificationViewType.CAR_EMERGENCY_HEADSUP,
+            NotificationViewType.CALL,
+            NotificationViewType.NAVIGATION,
+            NotificationViewType.MESSAGE_HEADSUP,
+            NotificationViewType.BASIC_HEADSUP,
+            NotificationViewType.INBOX_HEADSUP,
+            NotificationViewType.CAR_WARNING_HEADSUP,
+            NotificationViewType.CAR_INFORMATION_HEADSUP,
+    };
+
+    private final LayoutInflater mInflater;
+    private final int mPoolSize;
+    private final SparseArray<ArrayDeque<CarNotificationBaseViewHolder>> mPool =
+            new SparseArray<>();
+    // view holders handed out since the click handler factory was last set, and their view types
+    private final Map<CarNotificationBaseViewHolder, Integer> mInUse = new ArrayMap<>();
+
+    private NotificationClickHandlerFactory mClickHandlerFactory;
+    private boolean mIsWarmingUp;
+
+    HeadsUpViewPool(Context context, NotificationClickHandlerFactory clickHandlerFactory) {
+        mInflater = LayoutInflater.from(context);
+        mPoolSize = context.getResources().getInteger(R.integer.config_headsUpViewPoolSize);
+        mClickHandlerFactory = clickHandlerFactory;
+    }
+
+    /**
+     * Drops all pooled view holders, since they keep a reference to the factory they were created
+     * with, and starts preparing new ones for the given factory.
+     */
+    @MainThread
+    void setClickHandlerFactory(NotificationClickHandlerFactory clickHandlerFactory) {
+        mClickHandlerFactory = clickHandlerFactory;
+        mPool.clear();
+        mInUse.clear();
+        start();
+    }
+
+    /**
+     * Starts inflating view holders whenever the main thread becomes idle, until every heads-up
+     * view type has its share.
+     */
+    @MainThread
+    void start() {
+        if (mIsWarmingUp || mPoolSize <= 0) {
+            return;
+        }
+        mIsWarmingUp = true;
+        Looper.myQueue().addIdleHandler(this);
+    }
+
+    /**
+     * Returns a view holder for the given view type, inflating one if none is pooled.
+     */
+    @MainThread
+    CarNotificationBaseViewHolder obtain(@NotificationViewType int viewType) {
+        ArrayDeque<CarNotificationBaseViewHolder> viewHolders = mPool.get(viewType);
+        CarNotificationBaseViewHolder viewHolder =
+                viewHolders != null ? viewHolders.poll() : null;
+        if (viewHolder == null) {
+            if (DEBUG) {
+                Log.d(TAG, "Pool miss for view type " + viewType);
+            }
+            viewHolder = createViewHolder(viewType);
+        }
+        mInUse.put(viewHolder, viewType);
+        start();
+        return viewHolder;
+    }
+
+    /**
+     * Returns a view holder obtained from this pool once its view has been detached. View holders
+     * created for a previous click handler factory, or beyond the pool size, are dropped.
+     */
+    @MainThread
+    void release(CarNotificationBaseViewHolder viewHolder) {
+        Integer viewType = mInUse.remove(viewHolder);
+        if (viewType == null) {
+            return;
+        }
+        ArrayDeque<CarNotificationBaseViewHolder> viewHolders = getViewHolders(viewType);
+        if (viewHolders.size() >= mPoolSize) {
+            return;
+        }
+        viewHolder.unbind();
+        View view = viewHolder.itemView;
+        view.setTranslationY(0f);
+        view.setOnTouchListener(null);
+        View cardView = view.findViewById(R.id.card_view);
+        if (cardView != null) {
+            cardView.setOnTouchListener(null);
+        }
+        viewHolders.add(viewHolder);
+    }
+
+    /**
+     * Inflates at most one view holder per idle callback so that a single idle slot is never
+     * turned into a long frame.
+     */
+    @Override
+    public boolean queueIdle() {
+        for (int viewType : WARM_UP_VIEW_TYPES) {
+            ArrayDeque<CarNotificationBaseViewHolder> viewHolders = getViewHolders(viewType);
+            if (viewHolders.size() < mPoolSize) {
+                viewHolders.add(createViewHolder(viewType));
+                if (DEBUG) {
+                    Log.d(TAG, "Prewarmed view type " + viewType);
+                }
+                return true;
+            }
+        }
+        mIsWarmingUp = false;
+        return false;
+    }
+
+    private ArrayDeque<CarNotificationBaseViewHolder> getViewHolders(int viewType) {
+        ArrayDeque<CarNotificationBaseViewHolder> viewHolders = mPool.get(viewType);
+        if (viewHolders == null) {
+            viewHolders = new ArrayDeque<>(mPoolSize);
+            mPool.put(viewType, viewHolders);
+        }
+        return viewHolders;
+    }
+
+    /**
+     * Inflates the heads-up template for the view type. Note that the template chosen can be
+     * different for the same notification in the notification center.
+     */
+    private CarNotificationBaseViewHolder createViewHolder(@NotificationViewType int viewType) {
+        switch (viewType) {
+            case NotificationViewType.CAR_EMERGENCY_HEADSUP:
+                return new EmergencyNotificationViewHolder(
+                        inflate(R.layout.car_emergency_headsup_notification_template),
+                        mClickHandlerFactory);
+            case NotificationViewType.NAVIGATION:
+                return new NavigationNotificationViewHolder(
+                        inflate(R.layout.navigation_headsup_notification_template),
+                        mClickHandlerFactory);
+            case NotificationViewType.CALL:
+                return new CallNotificationViewHolder(
+                        inflate(R.layout.call_headsup_notification_template),
+                        mClickHandlerFactory);
+            case NotificationViewType.CAR_WARNING_HEADSUP:
+                // Using the basic view holder because they share the same view binding logic
+                // OEMs should create view holders if needed
+                return new BasicNotificationViewHolder(
+                        inflate(R.layout.car_warning_headsup_notification_template),
+                        mClickHandlerFactory);
+            case NotificationViewType.CAR_INFORMATION_HEADSUP:
+                // Using the basic view holder because they share the same view binding logic
+                // OEMs should create view holders if needed
+                return new BasicNotificationViewHolder(
+                        inflate(R.layout.car_information_headsup_notification_template),
+                        mClickHandlerFactory);
+            case NotificationViewType.MESSAGE_HEADSUP:
+                return new MessageNotificationViewHolder(
+                        inflate(R.layout.message_headsup_notification_template),
+                        mClickHandlerFactory);
+            case NotificationViewType.INBOX_HEADSUP:
+                return new InboxNotificationViewHolder(
+                        inflate(R.layout.inbox_headsup_notification_template),
+                        mClickHandlerFactory);
+            case NotificationViewType.BASIC_HEADSUP:
+            default:
+                return new BasicNotificationViewHolder(
+                        inflate(R.layout.basic_headsup_notification_template),
+                        mClickHandlerFactory);
+        }
+    }
+
+    private View inflate(int layout) {
+        return mInflater.inflate(layout, /* root= */ null);
+    }
+}
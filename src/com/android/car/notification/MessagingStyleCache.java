@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.notification;
+
+import android.annotation.Nullable;
+import android.app.Notification;
+import android.app.Person;
+import android.content.Context;
+import android.graphics.drawable.Icon;
+import android.os.Parcelable;
+import android.service.notification.StatusBarNotification;
+import android.util.LruCache;
+
+import com.android.internal.annotations.VisibleForTesting;
+
+import java.util.List;
+
+/**
+ * Cache of the parts of a {@link Notification.MessagingStyle} notification that are shown by the
+ * notification templates: the latest message, its sender and the number of messages.
+ *
+ * <p> Unparceling the message history of a notification is expensive, so it is done once per
+ * notification key and post time, when the notification is posted, and shared by the notification
+ * list, the heads-up notifications and the group summaries.
+ */
+public class MessagingStyleCache {
+    private static MessagingStyleCache sInstance;
+
+    private final LruCache<String, LatestMessage> mLatestMessages;
+
+    @VisibleForTesting
+    MessagingStyleCache(int maxSize) {
+        mLatestMessages = new LruCache<>(maxSize);
+    }
+
+    public static MessagingStyleCache getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new MessagingStyleCache(context.getResources().getInteger(
+                    R.integer.config_messagingStyleCacheSize));
+        }
+        return sInstance;
+    }
+
+    /**
+     * Returns the latest message of a messaging style notification, parsing it if the
+     * notification has not been parsed since it was last posted.
+     *
+     * @return the latest message, or {@code null} if the notification has no messages.
+     */
+    @Nullable
+    public LatestMessage getLatestMessage(StatusBarNotification statusBarNotification) {
+        LatestMessage latestMessage = mLatestMessages.get(statusBarNotification.getKey());
+        if (latestMessage != null
+                && latestMessage.mPostTime == statusBarNotification.getPostTime()) {
+            return latestMessage;
+        }
+
+        latestMessage = parse(statusBarNotification);
+        if (latestMessage != null) {
+            mLatestMessages.put(statusBarNotification.getKey(), latestMessage);
+        } else {
+            mLatestMessages.remove(statusBarNotification.getKey());
+        }
+        return latestMessage;
+    }
+
+    /**
+     * Drops the cached message of a notification.
+     */
+    public void remove(String key) {
+        mLatestMessages.remove(key);
+    }
+
+    @Nullable
+    private static LatestMessage parse(StatusBarNotification statusBarNotification) {
+        Parcelable[] messagesData = statusBarNotification.getNotification().extras
+                .getParcelableArray(Notification.EXTRA_MESSAGES);
+        if (messagesData == null) {
+            return null;
+        }
+        List<Notification.MessagingStyle.Message> messages =
+                Notification.MessagingStyle.Message.getMessagesFromBundleArray(messagesData);
+        if (messages == null || messages.isEmpty()) {
+            return null;
+        }
+
+        // Use the latest message
+        Notification.MessagingStyle.Message message = messages.get(messages.size() - 1);
+        Person sender = message.getSenderPerson();
+        return new LatestMessage(
+                message.getText(),
+                sender != null ? sender.getName() : message.getSender(),
+                sender != null ? sender.getIcon() : null,
+                messages.size(),
+                statusBarNotification.getPostTime());
+    }
+
+    /**
+     * The latest message of a messaging style notification.
+     */
+    public static final class LatestMessage {
+        private final CharSequence mText;
+        private final CharSequence mSenderName;
+        private final Icon mAvatar;
+        private final int mMessageCount;
+        private final long mPostTime;
+
+        private LatestMessage(CharSequence text, CharSequence senderName, Icon avatar,
+                int messageCount, long postTime) {
+            mText = text;
+            mSenderName = senderName;
+            mAvatar = avatar;
+            mMessageCount = messageCount;
+            mPostTime = postTime;
+        }
+
+        /**
+         * Returns the text of the latest message.
+         */
+        @Nullable
+        public CharSequence getText() {
+            return mText;
+        }
+
+        /**
+         * Returns the name of the sender of the latest message.
+         */
+        @Nullable
+        public CharSequence getSenderName() {
+            return mSenderName;
+        }
+
+        /**
+         * Returns the icon of the sender of the latest message.
+         */
+        @Nullable
+        public Icon getAvatar() {
+            return mAvatar;
+        }
+
+        /**
+         * Returns the number of messages in the notification.
+         */
+        public int getMessageCount() {
+            return mMessageCount;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.notification;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.util.LongSparseArray;
+
+import java.util.ArrayDeque;
+
+/**
+ * Pool of view-sized bitmaps that large icons and avatars are scaled into.
+ *
+ * <p> Notification templates show images at a handful of fixed sizes, so bitmaps released by a
+ * recycled view can be handed to the next image of the same size instead of being garbage
+ * collected. The number of free bitmaps kept is bounded by {@code maxSize}. This class is thread
+ * safe.
+ */
+class NotificationBitmapPool {
+
+    private final LongSparseArray<ArrayDeque<Bitmap>> mFreeBitmaps = new LongSparseArray<>();
+    private final int mMaxSize;
+    private int mSize;
+
+    NotificationBitmapPool(int maxSize) {
+        mMaxSize = maxSize;
+    }
+
+    /**
+     * Returns a cleared bitmap of the given size, reusing a released one when possible.
+     */
+    Bitmap obtain(int width, int height) {
+        Bitmap bitmap = null;
+        synchronized (this) {
+            ArrayDeque<Bitmap> bitmaps = mFreeBitmaps.get(getKey(width, height));
+            if (bitmaps != null && !bitmaps.isEmpty()) {
+                bitmap = bitmaps.pop();
+                mSize--;
+            }
+        }
+        if (bitmap == null) {
+            return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        }
+        bitmap.eraseColor(Color.TRANSPARENT);
+        return bitmap;
+    }
+
+    /**
+     * Returns a bitmap obtained from {@link #obtain} to the pool. The bitmap must no longer be
+     * drawn by any view.
+     */
+    synchronized void release(Bitmap bitmap) {
+        if (mSize >= mMaxSize || !bitmap.isMutable() || bitmap.isRecycled()) {
+            return;
+        }
+        long key = getKey(bitmap.getWidth(), bitmap.getHeight());
+        ArrayDeque<Bitmap> bitmaps = mFreeBitmaps.get(key);
+        if (bitmaps == null) {
+            bitmaps = new ArrayDeque<>();
+            mFreeBitmaps.put(key, bitmaps);
+        }
+        bitmaps.push(bitmap);
+        mSize++;
+    }
+
+    /**
+     * Returns the number of free bitmaps in the pool.
+     */
+    synchronized int size() {
+        return mSize;
+    }
+
+    private static long getKey(int width, int height) {
+        return ((long) width << 32) | height;
+    }
+}
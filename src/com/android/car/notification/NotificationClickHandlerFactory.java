@@ -44,6 +44,15 @@ import com.android.internal.statusbar.NotificationVisibility;
 public class NotificationClickHandlerFactory {
     private static final String TAG = "NotificationClickHandlerFactory";
 
+    /**
+     * Boolean extra of notifications that are built by this app instead of being posted to the
+     * notification manager, such as the heads-up notifications that stand in for several others.
+     * Clicking such a notification only sends its content intent, as the status bar service does
+     * not know its key.
+     */
+    public static final String EXTRA_LOCAL_NOTIFICATION =
+            "com.android.car.notification.EXTRA_LOCAL_NOTIFICATION";
+
     private final IStatusBarService mBarService;
     private final Callback mCallback;
     private CarAssistUtils mCarAssistUtils;
@@ -102,6 +111,10 @@ public class NotificationClickHandlerFactory {
                 // Do not take down the app over this
                 Log.w(TAG, "Sending contentIntent failed: " + e);
             }
+            if (notification.extras.getBoolean(EXTRA_LOCAL_NOTIFICATION)) {
+                mCallback.onNotificationClicked(result);
+                return;
+            }
             NotificationVisibility notificationVisibility = NotificationVisibility.obtain(
                     statusBarNotification.getKey(),
                     /* rank= */ -1, /* count= */ -1, /* visible= */ true);
@@ -141,46 +154,59 @@ public class NotificationClickHandlerFactory {
      */
     public View.OnClickListener getActionClickHandler(
             StatusBarNotification statusBarNotification, int index) {
-        return v -> {
-            Notification notification = statusBarNotification.getNotification();
-            Notification.Action action = notification.actions[index];
-            NotificationVisibility notificationVisibility = NotificationVisibility.obtain(
-                    statusBarNotification.getKey(),
-                    /* rank= */ -1, /* count= */ -1, /* visible= */ true);
-            boolean canceledExceptionThrown = false;
-            int semanticAction = action.getSemanticAction();
-            if (CarAssistUtils.isCarCompatibleMessagingNotification(statusBarNotification)) {
-                if (semanticAction == Notification.Action.SEMANTIC_ACTION_REPLY) {
-                    Context context = v.getContext().getApplicationContext();
-                    Intent resultIntent = addCannedReplyMessage(action, context);
-                    int result = sendPendingIntent(action.actionIntent, context, resultIntent);
-                    if (result == ActivityManager.START_SUCCESS) {
-                        showToast(context, R.string.toast_message_sent_success);
-                    } else if (result == ActivityManager.START_ABORTED) {
-                        canceledExceptionThrown = true;
-                    }
-                }
-            } else {
-                int result = sendPendingIntent(action.actionIntent, /* context= */ null,
-                        /* resultIntent= */ null);
-                if (result == ActivityManager.START_ABORTED) {
+        return v -> handleActionClick(v, statusBarNotification, index);
+    }
+
+    /**
+     * Fires the {@link android.app.Notification.Action} at the given index of the
+     * {@link StatusBarNotification}. Views that are rebound can call this from a click listener
+     * that resolves the notification at click time instead of using
+     * {@link #getActionClickHandler}.
+     *
+     * @param view the clicked view.
+     * @param statusBarNotification that contains the clicked action.
+     * @param index the index of the action clicked
+     */
+    public void handleActionClick(View view, StatusBarNotification statusBarNotification,
+            int index) {
+        Notification notification = statusBarNotification.getNotification();
+        Notification.Action action = notification.actions[index];
+        NotificationVisibility notificationVisibility = NotificationVisibility.obtain(
+                statusBarNotification.getKey(),
+                /* rank= */ -1, /* count= */ -1, /* visible= */ true);
+        boolean canceledExceptionThrown = false;
+        int semanticAction = action.getSemanticAction();
+        if (CarAssistUtils.isCarCompatibleMessagingNotification(statusBarNotification)) {
+            if (semanticAction == Notification.Action.SEMANTIC_ACTION_REPLY) {
+                Context context = view.getContext().getApplicationContext();
+                Intent resultIntent = addCannedReplyMessage(action, context);
+                int result = sendPendingIntent(action.actionIntent, context, resultIntent);
+                if (result == ActivityManager.START_SUCCESS) {
+                    showToast(context, R.string.toast_message_sent_success);
+                } else if (result == ActivityManager.START_ABORTED) {
                     canceledExceptionThrown = true;
                 }
-                mCallback.onNotificationClicked(result);
             }
-            if (!canceledExceptionThrown) {
-                try {
-                    mBarService.onNotificationActionClick(
-                            statusBarNotification.getKey(),
-                            index,
-                            action,
-                            notificationVisibility,
-                            /* generatedByAssistant= */ false);
-                } catch (RemoteException e) {
-                    Log.e(TAG, "Remote exception in getActionClickHandler", e);
-                }
+        } else {
+            int result = sendPendingIntent(action.actionIntent, /* context= */ null,
+                    /* resultIntent= */ null);
+            if (result == ActivityManager.START_ABORTED) {
+                canceledExceptionThrown = true;
             }
-        };
+            mCallback.onNotificationClicked(result);
+        }
+        if (!canceledExceptionThrown) {
+            try {
+                mBarService.onNotificationActionClick(
+                        statusBarNotification.getKey(),
+                        index,
+                        action,
+                        notificationVisibility,
+                        /* generatedByAssistant= */ false);
+            } catch (RemoteException e) {
+                Log.e(TAG, "Remote exception in handleActionClick", e);
+            }
+        }
     }
 
     /**
@@ -189,25 +215,34 @@ public class NotificationClickHandlerFactory {
      * pending intent should be returned to the messaging app, so it can mark it as read.
      */
     public View.OnClickListener getPlayClickHandler(StatusBarNotification messageNotification) {
-        return view -> {
-            if (!CarAssistUtils.isCarCompatibleMessagingNotification(messageNotification)) {
-                return;
-            }
-            Context context = view.getContext().getApplicationContext();
-            if (mCarAssistUtils == null) {
-                mCarAssistUtils = new CarAssistUtils(context);
+        return view -> handlePlayClick(view, messageNotification);
+    }
+
+    /**
+     * Requests the assistant to read the {@param messageNotification} aloud. Once the message is
+     * read aloud, the pending intent should be returned to the messaging app, so it can mark it as
+     * read.
+     *
+     * @param view the clicked play button.
+     */
+    public void handlePlayClick(View view, StatusBarNotification messageNotification) {
+        if (!CarAssistUtils.isCarCompatibleMessagingNotification(messageNotification)) {
+            return;
+        }
+        Context context = view.getContext().getApplicationContext();
+        if (mCarAssistUtils == null) {
+            mCarAssistUtils = new CarAssistUtils(context);
+        }
+        CarAssistUtils.ActionRequestCallback requestCallback = resultState -> {
+            if (CarAssistUtils.ActionRequestCallback.RESULT_FAILED.equals(resultState)) {
+                showToast(context, R.string.assist_action_failed_toast);
+                Log.e(TAG, "Assistant failed to read aloud the message");
             }
-            CarAssistUtils.ActionRequestCallback requestCallback = resultState -> {
-                if (CarAssistUtils.ActionRequestCallback.RESULT_FAILED.equals(resultState)) {
-                    showToast(context, R.string.assist_action_failed_toast);
-                    Log.e(TAG, "Assistant failed to read aloud the message");
-                }
-                // Don't trigger mCallback so the shade remains open.
-            };
-            mCarAssistUtils.requestAssistantVoiceAction(messageNotification,
-                    CarVoiceInteractionSession.VOICE_ACTION_READ_NOTIFICATION,
-                    requestCallback);
+            // Don't trigger mCallback so the shade remains open.
         };
+        mCarAssistUtils.requestAssistantVoiceAction(messageNotification,
+                CarVoiceInteractionSession.VOICE_ACTION_READ_NOTIFICATION,
+                requestCallback);
     }
 
     /**
@@ -216,19 +251,25 @@ public class NotificationClickHandlerFactory {
      */
     public View.OnClickListener getMuteClickHandler(
             Button muteButton, StatusBarNotification messageNotification) {
-        return v -> {
-            if (mNotificationDataManager != null) {
-                mNotificationDataManager.toggleMute(messageNotification);
-                Context context = v.getContext().getApplicationContext();
-                muteButton.setText(
-                        (mNotificationDataManager.isMessageNotificationMuted(messageNotification))
-                                ? context.getString(R.string.action_unmute_long)
-                                : context.getString(R.string.action_mute_long));
-                // Don't trigger mCallback so the shade remains open.
-            } else {
-              Log.d(TAG, "Could not set mute click handler as NotificationDataManager is null");
-            }
-        };
+        return v -> handleMuteClick(muteButton, messageNotification);
+    }
+
+    /**
+     * Toggles whether the {@param messageNotification} is muted and updates the label of its
+     * {@param muteButton}.
+     */
+    public void handleMuteClick(Button muteButton, StatusBarNotification messageNotification) {
+        if (mNotificationDataManager != null) {
+            mNotificationDataManager.toggleMute(messageNotification);
+            Context context = muteButton.getContext().getApplicationContext();
+            muteButton.setText(
+                    (mNotificationDataManager.isMessageNotificationMuted(messageNotification))
+                            ? context.getString(R.string.action_unmute_long)
+                            : context.getString(R.string.action_mute_long));
+            // Don't trigger mCallback so the shade remains open.
+        } else {
+          Log.d(TAG, "Could not set mute click handler as NotificationDataManager is null");
+        }
     }
 
     private int sendPendingIntent(PendingIntent pendingIntent, Context context,
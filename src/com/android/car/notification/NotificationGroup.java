@@ -18,6 +18,7 @@ package com.android.car.notification;
 import android.annotation.NonNull;
 import android.annotation.Nullable;
 import android.app.Notification;
+import android.content.Context;
 import android.os.Bundle;
 import android.service.notification.StatusBarNotification;
 
@@ -42,9 +43,6 @@ public class NotificationGroup {
     @Nullable
     private StatusBarNotification mGroupSummaryNotification;
 
-    private boolean mIsHeader;
-    private boolean mIsFooter;
-
     public NotificationGroup() {
     }
 
@@ -91,34 +89,6 @@ public class NotificationGroup {
         return mGroupSummaryNotification != null && getChildCount() > 1;
     }
 
-    /**
-     * Return true if the header is set to be displayed.
-     */
-    public boolean isHeader() {
-        return mIsHeader;
-    }
-
-    /**
-     * Set this to true if a header needs to be displayed with a title and a clear all button.
-     */
-    public void setHeader(boolean header) {
-        mIsHeader = header;
-    }
-
-    /**
-     * Return true if the header is set to be displayed.
-     */
-    public boolean isFooter() {
-        return mIsFooter;
-    }
-
-    /**
-     * Set this to true if a footer needs to be displayed with a clear all button.
-     */
-    public void setFooter(boolean footer) {
-        mIsFooter = footer;
-    }
-
     /**
      * Returns true if all of the notifications this group holds is dismissible by user action.
      */
@@ -167,7 +137,7 @@ public class NotificationGroup {
     /**
      * Generates the list of the child notification titles for a group summary notification.
      */
-    public List<String> generateChildTitles() {
+    public List<String> generateChildTitles(Context context) {
         List<String> titles = new ArrayList<>();
 
         for (StatusBarNotification notification : mNotifications) {
@@ -179,11 +149,11 @@ public class NotificationGroup {
                 titles.add(extras.getString(Notification.EXTRA_TITLE_BIG));
 
             } else if (extras.containsKey(Notification.EXTRA_MESSAGES)) {
-                List<Notification.MessagingStyle.Message> messages =
-                        Notification.MessagingStyle.Message.getMessagesFromBundleArray(
-                                extras.getParcelableArray(Notification.EXTRA_MESSAGES));
-                Notification.MessagingStyle.Message lastMessage = messages.get(messages.size() - 1);
-                titles.add(lastMessage.getSenderPerson().getName().toString());
+                MessagingStyleCache.LatestMessage latestMessage =
+                        MessagingStyleCache.getInstance(context).getLatestMessage(notification);
+                if (latestMessage != null && latestMessage.getSenderName() != null) {
+                    titles.add(latestMessage.getSenderName().toString());
+                }
 
             } else if (extras.containsKey(Notification.EXTRA_SUB_TEXT)) {
                 titles.add(extras.getString(Notification.EXTRA_SUB_TEXT));
@@ -0,0 +1,327 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.notification;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.ImageDecoder;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.Icon;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.service.notification.StatusBarNotification;
+import android.util.Log;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.android.internal.annotations.VisibleForTesting;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Loads notification icons and avatars on a background thread pool.
+ *
+ * <p> While an image is loading its target view shows a placeholder. The pending load is kept as a
+ * tag on the target view, so a loaded image is only delivered if the view has not been rebound or
+ * reset in the meantime. View holders should call {@link #cancel(ImageView)} when they are reset
+ * so that loads for recycled views do not keep running.
+ *
+ * <p> Large icons and avatars are scaled to the size of their target view into bitmaps from a
+ * {@link NotificationBitmapPool} shared by all templates, including heads-up notifications. URI
+ * icons are decoded directly at that size. The pooled bitmap shown by a view is returned to the
+ * pool when the view is cancelled, so views must not be drawn with it afterwards.
+ *
+ * <p> Icons that are already decoded, such as bitmap icons, are set synchronously.
+ */
+public class NotificationImageLoader {
+    private static final String TAG = "NotificationImageLoader";
+    private static final boolean DEBUG = false;
+    private static final int THREAD_COUNT = 2;
+
+    private static NotificationImageLoader sInstance;
+
+    private final AppResourceCache mAppResourceCache;
+    private final NotificationBitmapPool mBitmapPool;
+    private final ExecutorService mExecutor;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    private NotificationImageLoader(Context context) {
+        this(context,
+                new NotificationBitmapPool(context.getResources().getInteger(
+                        R.integer.config_notificationBitmapPoolSize)),
+                Executors.newFixedThreadPool(THREAD_COUNT, runnable -> new Thread(() -> {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }, TAG)));
+    }
+
+    @VisibleForTesting
+    NotificationImageLoader(Context context, NotificationBitmapPool bitmapPool,
+            ExecutorService executor) {
+        mAppResourceCache = AppResourceCache.getInstance(context);
+        mBitmapPool = bitmapPool;
+        mExecutor = executor;
+    }
+
+    public static NotificationImageLoader getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new NotificationImageLoader(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * Loads the small icon of a notification into the given view. Icons that are cached by
+     * {@link AppResourceCache} are set synchronously.
+     */
+    @MainThread
+    public void loadSmallIcon(ImageView view, StatusBarNotification statusBarNotification) {
+        cancel(view);
+        Icon icon = statusBarNotification.getNotification().getSmallIcon();
+        Drawable drawable = mAppResourceCache.getCachedIcon(statusBarNotification, icon);
+        if (drawable != null) {
+            view.setImageDrawable(drawable);
+            return;
+        }
+        if (!needsBackgroundLoad(icon)) {
+            view.setImageDrawable(
+                    icon.loadDrawable(statusBarNotification.getPackageContext(view.getContext())));
+            return;
+        }
+        start(view, () -> mAppResourceCache.loadIcon(statusBarNotification, icon),
+                /* isPooled= */ false);
+    }
+
+    /**
+     * Loads an icon, such as a large icon or an avatar, into the given view. If the size of the
+     * view is known the icon is scaled to it.
+     *
+     * @param view the view to show the icon in.
+     * @param icon the icon to be loaded.
+     * @param context the context used to load resource icons.
+     */
+    @MainThread
+    public void loadIcon(ImageView view, Icon icon, Context context) {
+        cancel(view);
+        int width = getTargetWidth(view);
+        int height = getTargetHeight(view);
+        if (width <= 0 || height <= 0) {
+            if (!needsBackgroundLoad(icon)) {
+                view.setImageIcon(icon);
+                return;
+            }
+            start(view, () -> icon.loadDrawable(context), /* isPooled= */ false);
+            return;
+        }
+
+        if (!needsBackgroundLoad(icon)) {
+            setPooledBitmap(view, scale(icon.loadDrawable(context), width, height));
+            return;
+        }
+        start(view, () -> {
+            Drawable drawable = icon.getType() == Icon.TYPE_URI
+                    ? decodeUri(icon, context, width, height)
+                    : icon.loadDrawable(context);
+            Bitmap bitmap = scale(drawable, width, height);
+            return bitmap != null ? new BitmapDrawable(context.getResources(), bitmap) : null;
+        }, /* isPooled= */ true);
+    }
+
+    /**
+     * Cancels the pending load of the given view, if any, and clears the view. A pooled bitmap
+     * shown by the view is returned to the pool.
+     */
+    @MainThread
+    public void cancel(ImageView view) {
+        LoadRequest request = (LoadRequest) view.getTag(R.id.image_load_request);
+        if (request != null) {
+            request.cancel();
+            view.setTag(R.id.image_load_request, null);
+        }
+        Bitmap pooledBitmap = (Bitmap) view.getTag(R.id.pooled_bitmap);
+        if (pooledBitmap != null) {
+            // the pool may hand the bitmap out right away, so the view must stop drawing it first
+            view.setImageDrawable(null);
+            view.setTag(R.id.pooled_bitmap, null);
+            mBitmapPool.release(pooledBitmap);
+        }
+    }
+
+    private void start(ImageView view, Supplier<Drawable> loader, boolean isPooled) {
+        LoadRequest request = new LoadRequest(view, loader, isPooled);
+        view.setTag(R.id.image_load_request, request);
+        view.setImageResource(R.drawable.image_placeholder);
+        request.mFuture = mExecutor.submit(request);
+    }
+
+    private void setPooledBitmap(ImageView view, @Nullable Bitmap bitmap) {
+        view.setImageBitmap(bitmap);
+        view.setTag(R.id.pooled_bitmap, bitmap);
+    }
+
+    /**
+     * Draws the drawable into a pooled bitmap of the given size, cropping it to the center if
+     * its aspect ratio differs.
+     */
+    @VisibleForTesting
+    @Nullable
+    Bitmap scale(@Nullable Drawable drawable, int width, int height) {
+        if (drawable == null) {
+            return null;
+        }
+        Bitmap bitmap = mBitmapPool.obtain(width, height);
+        int intrinsicWidth = drawable.getIntrinsicWidth();
+        int intrinsicHeight = drawable.getIntrinsicHeight();
+        if (intrinsicWidth <= 0 || intrinsicHeight <= 0) {
+            drawable.setBounds(0, 0, width, height);
+        } else {
+            float scale = Math.max((float) width / intrinsicWidth,
+                    (float) height / intrinsicHeight);
+            int scaledWidth = Math.round(intrinsicWidth * scale);
+            int scaledHeight = Math.round(intrinsicHeight * scale);
+            int left = (width - scaledWidth) / 2;
+            int top = (height - scaledHeight) / 2;
+            drawable.setBounds(left, top, left + scaledWidth, top + scaledHeight);
+        }
+        drawable.draw(new Canvas(bitmap));
+        return bitmap;
+    }
+
+    /**
+     * Decodes a URI icon at roughly the given size instead of its full resolution.
+     */
+    @WorkerThread
+    private static Drawable decodeUri(Icon icon, Context context, int width, int height) {
+        ImageDecoder.Source source =
+                ImageDecoder.createSource(context.getContentResolver(), icon.getUri());
+        try {
+            return ImageDecoder.decodeDrawable(source, (decoder, info, src) -> {
+                float scale = Math.max((float) width / info.getSize().getWidth(),
+                        (float) height / info.getSize().getHeight());
+                if (scale < 1) {
+                    decoder.setTargetSize(
+                            Math.max(1, Math.round(info.getSize().getWidth() * scale)),
+                            Math.max(1, Math.round(info.getSize().getHeight() * scale)));
+                }
+                decoder.setAllocator(ImageDecoder.ALLOCATOR_SOFTWARE);
+            });
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to decode " + icon.getUri(), e);
+            return null;
+        }
+    }
+
+    private static int getTargetWidth(ImageView view) {
+        ViewGroup.LayoutParams layoutParams = view.getLayoutParams();
+        int width = layoutParams != null && layoutParams.width > 0
+                ? layoutParams.width : view.getWidth();
+        return width - view.getPaddingLeft() - view.getPaddingRight();
+    }
+
+    private static int getTargetHeight(ImageView view) {
+        ViewGroup.LayoutParams layoutParams = view.getLayoutParams();
+        int height = layoutParams != null && layoutParams.height > 0
+                ? layoutParams.height : view.getHeight();
+        return height - view.getPaddingTop() - view.getPaddingBottom();
+    }
+
+    /**
+     * Returns true if loading the icon requires reading from another package, a content provider
+     * or decoding compressed data.
+     */
+    private static boolean needsBackgroundLoad(Icon icon) {
+        switch (icon.getType()) {
+            case Icon.TYPE_RESOURCE:
+            case Icon.TYPE_URI:
+            case Icon.TYPE_DATA:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private class LoadRequest implements Runnable {
+        private final ImageView mView;
+        private final Supplier<Drawable> mLoader;
+        // whether the loaded drawable wraps a bitmap obtained from the bitmap pool
+        private final boolean mIsPooled;
+        private volatile boolean mIsCancelled;
+        private Future<?> mFuture;
+
+        LoadRequest(ImageView view, Supplier<Drawable> loader, boolean isPooled) {
+            mView = view;
+            mLoader = loader;
+            mIsPooled = isPooled;
+        }
+
+        @WorkerThread
+        @Override
+        public void run() {
+            if (mIsCancelled) {
+                return;
+            }
+            Drawable drawable;
+            try {
+                drawable = mLoader.get();
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Unable to load image", e);
+                drawable = null;
+            }
+            Drawable result = drawable;
+            mMainHandler.post(() -> deliver(result));
+        }
+
+        @MainThread
+        private void deliver(Drawable drawable) {
+            Bitmap pooledBitmap = drawable instanceof BitmapDrawable
+                    ? ((BitmapDrawable) drawable).getBitmap() : null;
+            if (mIsCancelled || mView.getTag(R.id.image_load_request) != this) {
+                if (DEBUG) {
+                    Log.d(TAG, "Dropped image for a rebound view");
+                }
+                if (mIsPooled && pooledBitmap != null) {
+                    mBitmapPool.release(pooledBitmap);
+                }
+                return;
+            }
+            mView.setTag(R.id.image_load_request, null);
+            mView.setImageDrawable(drawable);
+            if (mIsPooled && pooledBitmap != null) {
+                mView.setTag(R.id.pooled_bitmap, pooledBitmap);
+            }
+        }
+
+        @MainThread
+        void cancel() {
+            mIsCancelled = true;
+            if (mFuture != null) {
+                mFuture.cancel(/* mayInterruptIfRunning= */ false);
+            }
+        }
+    }
+}
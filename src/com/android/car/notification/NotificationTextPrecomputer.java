@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.notification;
+
+import android.annotation.Nullable;
+import android.content.Context;
+import android.os.Process;
+import android.text.PrecomputedText;
+import android.text.Spanned;
+import android.text.TextUtils;
+import android.util.LruCache;
+import android.util.SparseArray;
+import android.widget.TextView;
+
+import androidx.annotation.MainThread;
+
+import com.android.internal.annotations.VisibleForTesting;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Measures notification texts ahead of time with {@link PrecomputedText} on a background thread.
+ *
+ * <p> The text metrics params of each text view are learned by id the first time text is set
+ * through {@link #setText}. Texts passed to {@link #prefetch} are then measured in the background
+ * with those params, so that the next bind of the same text only attaches the precomputed
+ * measurement instead of measuring on the main thread. Texts with spans are not precomputed since
+ * their styling would be lost in the cache key.
+ */
+public class NotificationTextPrecomputer {
+    private static final String TAG = "NotificationTextPrecomputer";
+
+    private static NotificationTextPrecomputer sInstance;
+
+    private final LruCache<Key, PrecomputedText> mPrecomputedTexts;
+    private final SparseArray<PrecomputedText.Params> mParams = new SparseArray<>();
+    private final Executor mExecutor;
+
+    private NotificationTextPrecomputer(Context context) {
+        this(context, Executors.newSingleThreadExecutor(
+                runnable -> new Thread(() -> {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }, TAG)));
+    }
+
+    @VisibleForTesting
+    NotificationTextPrecomputer(Context context, Executor executor) {
+        mPrecomputedTexts = new LruCache<>(
+                context.getResources().getInteger(R.integer.config_precomputedTextCacheSize));
+        mExecutor = executor;
+    }
+
+    public static NotificationTextPrecomputer getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new NotificationTextPrecomputer(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * Sets the text of the given view, using a precomputed measurement of it if available.
+     */
+    @MainThread
+    public void setText(TextView view, @Nullable CharSequence text) {
+        if (view.getId() == TextView.NO_ID || !isPrecomputable(text)) {
+            view.setText(text);
+            return;
+        }
+        PrecomputedText.Params params = view.getTextMetricsParams();
+        mParams.put(view.getId(), params);
+
+        Key key = new Key(text.toString(), params);
+        PrecomputedText precomputedText = mPrecomputedTexts.get(key);
+        if (precomputedText != null) {
+            view.setText(precomputedText);
+            return;
+        }
+        view.setText(text);
+        // the same text is likely bound again, e.g. when scrolling back or as a heads-up
+        precompute(key);
+    }
+
+    /**
+     * Measures a text in the background for the text view with the given id. Does nothing until
+     * text has been set on a view with that id through {@link #setText}.
+     */
+    @MainThread
+    public void prefetch(int viewId, @Nullable CharSequence text) {
+        if (!isPrecomputable(text)) {
+            return;
+        }
+        PrecomputedText.Params params = mParams.get(viewId);
+        if (params == null) {
+            return;
+        }
+        Key key = new Key(text.toString(), params);
+        if (mPrecomputedTexts.get(key) == null) {
+            precompute(key);
+        }
+    }
+
+    private void precompute(Key key) {
+        mExecutor.execute(() -> {
+            if (mPrecomputedTexts.get(key) == null) {
+                mPrecomputedTexts.put(key, PrecomputedText.create(key.mText, key.mParams));
+            }
+        });
+    }
+
+    private static boolean isPrecomputable(@Nullable CharSequence text) {
+        return !TextUtils.isEmpty(text) && !(text instanceof Spanned);
+    }
+
+    private static final class Key {
+        private final String mText;
+        private final PrecomputedText.Params mParams;
+
+        Key(String text, PrecomputedText.Params params) {
+            mText = text;
+            mParams = params;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return mText.equals(key.mText) && mParams.equals(key.mParams);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mText, mParams);
+        }
+    }
+}
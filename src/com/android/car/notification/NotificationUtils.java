@@ -16,6 +16,7 @@
 
 package com.android.car.notification;
 
+import android.annotation.UserIdInt;
 import android.car.userlib.CarUserManagerHelper;
 import android.content.Context;
 import android.content.pm.PackageInfo;
@@ -99,17 +100,38 @@ public class NotificationUtils {
         return packageInfo.applicationInfo.isSignedWithPlatformKey();
     }
 
+    /**
+     * Validates if the given package of the given user meets at least one of the below
+     * conditions.
+     *
+     * <ul>
+     * <li>application is signed with platform key.
+     * <li>application is a system and privileged app.
+     * </ul>
+     */
+    public static boolean isSystemPrivilegedOrPlatformKey(Context context, String packageName,
+            @UserIdInt int userId) {
+        return isSystemPrivilegedOrPlatformKeyInner(context, packageName, userId,
+                /* checkForPrivilegedApp= */ true);
+    }
+
     private static boolean isSystemPrivilegedOrPlatformKeyInner(Context context,
             StatusBarNotification statusBarNotification, boolean checkForPrivilegedApp) {
-        PackageManager packageManager = context.getPackageManager();
         CarUserManagerHelper carUserManagerHelper = new CarUserManagerHelper(context);
+        return isSystemPrivilegedOrPlatformKeyInner(context,
+                statusBarNotification.getPackageName(),
+                carUserManagerHelper.getCurrentForegroundUserId(), checkForPrivilegedApp);
+    }
+
+    private static boolean isSystemPrivilegedOrPlatformKeyInner(Context context,
+            String packageName, @UserIdInt int userId, boolean checkForPrivilegedApp) {
+        PackageManager packageManager = context.getPackageManager();
         PackageInfo packageInfo = null;
         try {
-            packageInfo = packageManager.getPackageInfoAsUser(
-                    statusBarNotification.getPackageName(), /* flags= */ 0,
-                    carUserManagerHelper.getCurrentForegroundUserId());
+            packageInfo = packageManager.getPackageInfoAsUser(packageName, /* flags= */ 0,
+                    userId);
         } catch (PackageManager.NameNotFoundException ex) {
-            Log.e(TAG, "package not found: " + statusBarNotification.getPackageName());
+            Log.e(TAG, "package not found: " + packageName);
         }
         if (packageInfo == null) return false;
 
@@ -85,10 +85,14 @@ public class NotificationViewController {
      */
     public void setIsInForeground(boolean isInForeground) {
         mIsInForeground = isInForeground;
+        RelativeTimeScheduler.getInstance().setIsInForeground(mIsInForeground);
         // Reset and collapse all groups when notification view disappears.
         if (!mIsInForeground) {
             resetNotifications(mShowLessImportantNotifications);
-            mCarNotificationView.collapseAllGroups();
+            if (!mCarNotificationView.getResources().getBoolean(
+                    R.bool.config_keepGroupExpansionState)) {
+                mCarNotificationView.collapseAllGroups();
+            }
         }
     }
 
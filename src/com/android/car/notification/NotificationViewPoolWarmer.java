@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.notification;
+
+import android.content.Context;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.util.Log;
+import android.util.SparseIntArray;
+
+import androidx.annotation.MainThread;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.android.internal.annotations.VisibleForTesting;
+
+/**
+ * Inflates notification templates into the shared {@link RecyclerView.RecycledViewPool} while the
+ * main thread is idle, so that the first bind of each template does not pay for the inflation.
+ *
+ * <p> The number of view holders prepared for each view type starts at
+ * {@code R.integer.config_viewPoolPrewarmCount} and is tuned after each session from the pool
+ * hits and misses recorded by {@link UsageTrackingViewPool}. The tuned counts live as long as the
+ * process does, so that the next time the notification center is opened the pool matches what was
+ * actually used.
+ */
+class NotificationViewPoolWarmer implements MessageQueue.IdleHandler {
+    private static final String TAG = "NotificationPoolWarmer";
+    private static final boolean DEBUG = false;
+    // RecyclerView.RecycledViewPool.DEFAULT_MAX_SCRAP
+    private static final int DEFAULT_MAX_SCRAP = 5;
+
+    /**
+     * View types that are inflated ahead of time, most commonly used first. Header and footer are
+     * always on screen as soon as the list is shown and therefore are not included.
+     */
+    private static final int[] WARM_UP_VIEW_TYPES = {
+            NotificationViewType.BASIC,
+            NotificationViewType.MESSAGE,
+            NotificationViewType.GROUP_COLLAPSED,
+            NotificationViewType.BASIC_IN_GROUP,
+            NotificationViewType.MESSAGE_IN_GROUP,
+            NotificationViewType.GROUP_SUMMARY,
+            NotificationViewType.PROGRESS,
+            NotificationViewType.INBOX,
+            NotificationViewType.CALL,
+            NotificationViewType.CAR_EMERGENCY,
+            NotificationViewType.CAR_WARNING,
+            NotificationViewType.CAR_INFORMATION,
+            NotificationViewType.PROGRESS_IN_GROUP,
+            NotificationViewType.INBOX_IN_GROUP,
+            NotificationViewType.CAR_INFORMATION_IN_GROUP,
+    };
+
+    /** Number of view holders to prepare per view type, tuned across sessions. */
+    private static final SparseIntArray sTunedCounts = new SparseIntArray();
+
+    private final CarNotificationViewAdapter mAdapter;
+    private final RecyclerView mParent;
+    private final UsageTrackingViewPool mViewPool;
+    private final int mDefaultCount;
+    private final int mMaxCount;
+
+    private boolean mIsWarmingUp;
+    private int mNextViewTypeIndex;
+
+    NotificationViewPoolWarmer(Context context, CarNotificationViewAdapter adapter,
+            RecyclerView parent) {
+        mAdapter = adapter;
+        mParent = parent;
+        mViewPool = (UsageTrackingViewPool) adapter.getViewPool();
+        mDefaultCount = context.getResources().getInteger(R.integer.config_viewPoolPrewarmCount);
+        mMaxCount = context.getResources().getInteger(R.integer.config_viewPoolMaxPrewarmCount);
+    }
+
+    /**
+     * Starts inflating view holders whenever the main thread becomes idle. Must be called after a
+     * {@link NotificationClickHandlerFactory} has been set on the adapter because the view holders
+     * keep a reference to it.
+     */
+    @MainThread
+    void start() {
+        if (mIsWarmingUp) {
+            return;
+        }
+        for (int viewType : WARM_UP_VIEW_TYPES) {
+            int count = getTargetCount(viewType);
+            if (count > DEFAULT_MAX_SCRAP) {
+                mViewPool.setMaxRecycledViews(viewType, count);
+            }
+        }
+        mNextViewTypeIndex = 0;
+        mIsWarmingUp = true;
+        Looper.myQueue().addIdleHandler(this);
+    }
+
+    /**
+     * Stops any pending inflation and folds the usage observed since {@link #start} into the
+     * counts used for the next session.
+     */
+    @MainThread
+    void stop() {
+        if (mIsWarmingUp) {
+            Looper.myQueue().removeIdleHandler(this);
+            mIsWarmingUp = false;
+        }
+        for (int viewType : WARM_UP_VIEW_TYPES) {
+            int hits = mViewPool.getHitCount(viewType);
+            int misses = mViewPool.getMissCount(viewType);
+            int count = getTargetCount(viewType);
+            if (misses > 0) {
+                // Holders had to be inflated on demand; prepare that many more next time.
+                count = Math.min(count + misses, mMaxCount);
+            } else if (hits == 0) {
+                // Nothing of this type was shown; stop paying for it one holder at a time.
+                count = Math.max(count - 1, 0);
+            }
+            sTunedCounts.put(viewType, count);
+        }
+        mViewPool.resetUsage();
+    }
+
+    /**
+     * Inflates at most one view holder per idle callback so that a single idle slot is never
+     * turned into a long frame.
+     */
+    @Override
+    public boolean queueIdle() {
+        while (mNextViewTypeIndex < WARM_UP_VIEW_TYPES.length) {
+            int viewType = WARM_UP_VIEW_TYPES[mNextViewTypeIndex];
+            if (mViewPool.getRecycledViewCount(viewType) >= getTargetCount(viewType)) {
+                mNextViewTypeIndex++;
+                continue;
+            }
+            mViewPool.putRecycledView(mAdapter.createViewHolder(mParent, viewType));
+            if (DEBUG) {
+                Log.d(TAG, "Prewarmed view type " + viewType);
+            }
+            return true;
+        }
+        mIsWarmingUp = false;
+        return false;
+    }
+
+    /** Forgets the counts tuned in previous sessions. */
+    @VisibleForTesting
+    static void resetTunedCounts() {
+        sTunedCounts.clear();
+    }
+
+    private int getTargetCount(int viewType) {
+        return Math.min(sTunedCounts.get(viewType, mDefaultCount), mMaxCount);
+    }
+
+    /**
+     * {@link RecyclerView.RecycledViewPool} that records how often a view type was served from the
+     * pool and how often it had to be inflated because the pool was empty.
+     */
+    static class UsageTrackingViewPool extends RecyclerView.RecycledViewPool {
+        private final SparseIntArray mHits = new SparseIntArray();
+        private final SparseIntArray mMisses = new SparseIntArray();
+
+        @Override
+        public RecyclerView.ViewHolder getRecycledView(int viewType) {
+            RecyclerView.ViewHolder viewHolder = super.getRecycledView(viewType);
+            SparseIntArray counts = viewHolder != null ? mHits : mMisses;
+            counts.put(viewType, counts.get(viewType) + 1);
+            return viewHolder;
+        }
+
+        @VisibleForTesting
+        int getHitCount(int viewType) {
+            return mHits.get(viewType);
+        }
+
+        @VisibleForTesting
+        int getMissCount(int viewType) {
+            return mMisses.get(viewType);
+        }
+
+        private void resetUsage() {
+            mHits.clear();
+            mMisses.clear();
+        }
+    }
+}
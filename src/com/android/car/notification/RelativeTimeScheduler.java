@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.notification;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.text.format.DateUtils;
+
+import androidx.annotation.MainThread;
+
+import com.android.internal.annotations.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Refreshes the relative timestamps of the notification cards once per minute.
+ *
+ * <p> Attached time views register themselves as listeners and are refreshed together in a single
+ * pass aligned to the start of each minute, instead of each view scheduling its own refresh. No
+ * refresh is scheduled while neither the notification list is in the foreground nor a heads-up
+ * notification is shown; the views are brought up to date in one pass when either comes back.
+ */
+public class RelativeTimeScheduler {
+    private static RelativeTimeScheduler sInstance;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final List<OnMinuteTickListener> mListeners = new ArrayList<>();
+    private final Runnable mTickRunnable = this::tick;
+    private boolean mIsInForeground;
+    private boolean mIsHeadsUpShown;
+
+    /**
+     * Listener for the minute ticks.
+     */
+    public interface OnMinuteTickListener {
+        /**
+         * Called on the main thread at the start of every minute while the notification list is
+         * in the foreground or a heads-up notification is shown.
+         *
+         * @param currentTimeMillis the current wall clock time, shared by all listeners.
+         */
+        void onMinuteTick(long currentTimeMillis);
+    }
+
+    @VisibleForTesting
+    RelativeTimeScheduler() {
+    }
+
+    public static RelativeTimeScheduler getInstance() {
+        if (sInstance == null) {
+            sInstance = new RelativeTimeScheduler();
+        }
+        return sInstance;
+    }
+
+    /**
+     * Adds a listener, typically when its view is attached to a window.
+     */
+    @MainThread
+    public void addListener(OnMinuteTickListener listener) {
+        if (mListeners.contains(listener)) {
+            return;
+        }
+        mListeners.add(listener);
+        if (mListeners.size() == 1) {
+            scheduleNextTick();
+        }
+    }
+
+    /**
+     * Removes a listener, typically when its view is detached from its window.
+     */
+    @MainThread
+    public void removeListener(OnMinuteTickListener listener) {
+        mListeners.remove(listener);
+        if (mListeners.isEmpty()) {
+            mHandler.removeCallbacks(mTickRunnable);
+        }
+    }
+
+    /**
+     * Pauses the ticks while the notification list is not in the foreground. Coming back to the
+     * foreground refreshes all listeners immediately.
+     */
+    @MainThread
+    public void setIsInForeground(boolean isInForeground) {
+        boolean wasTicking = isTicking();
+        mIsInForeground = isInForeground;
+        onTickingChanged(wasTicking);
+    }
+
+    /**
+     * Keeps the ticks running while heads-up notifications are shown, whether the notification
+     * list is in the foreground or not. Showing the first heads-up notification refreshes all
+     * listeners immediately.
+     */
+    @MainThread
+    public void setIsHeadsUpShown(boolean isHeadsUpShown) {
+        boolean wasTicking = isTicking();
+        mIsHeadsUpShown = isHeadsUpShown;
+        onTickingChanged(wasTicking);
+    }
+
+    private boolean isTicking() {
+        return mIsInForeground || mIsHeadsUpShown;
+    }
+
+    private void onTickingChanged(boolean wasTicking) {
+        if (wasTicking == isTicking()) {
+            return;
+        }
+        if (isTicking()) {
+            tick();
+        } else {
+            mHandler.removeCallbacks(mTickRunnable);
+        }
+    }
+
+    @VisibleForTesting
+    void tick() {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < mListeners.size(); i++) {
+            mListeners.get(i).onMinuteTick(now);
+        }
+        scheduleNextTick();
+    }
+
+    private void scheduleNextTick() {
+        mHandler.removeCallbacks(mTickRunnable);
+        if (!isTicking() || mListeners.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        mHandler.postDelayed(mTickRunnable,
+                DateUtils.MINUTE_IN_MILLIS - now % DateUtils.MINUTE_IN_MILLIS);
+    }
+}
@@ -17,7 +17,6 @@ package com.android.car.notification.template;
 
 import android.app.Notification;
 import android.graphics.drawable.Icon;
-import android.os.Bundle;
 import android.service.notification.StatusBarNotification;
 import android.view.View;
 
@@ -60,9 +59,9 @@ public class CallNotificationViewHolder extends CarNotificationBaseViewHolder {
      */
     private void bindBody(StatusBarNotification statusBarNotification) {
         Notification notification = statusBarNotification.getNotification();
-        Bundle extraData = notification.extras;
-        CharSequence title = extraData.getCharSequence(Notification.EXTRA_TITLE);
-        CharSequence text = extraData.getCharSequence(Notification.EXTRA_TEXT);
+        NotificationBindModel model = getBindModel();
+        CharSequence title = model.getTitle();
+        CharSequence text = model.getText();
         Icon icon = notification.getSmallIcon();
         mBodyView.bind(title, text, icon);
     }
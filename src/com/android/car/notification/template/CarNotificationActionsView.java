@@ -15,11 +15,14 @@
  */
 package com.android.car.notification.template;
 
+import android.annotation.ColorRes;
+import android.annotation.Nullable;
 import android.app.Notification;
 import android.content.Context;
+import android.content.res.ColorStateList;
+import android.content.res.Configuration;
 import android.content.res.TypedArray;
 import android.graphics.PorterDuff;
-import android.graphics.PorterDuffColorFilter;
 import android.graphics.drawable.Drawable;
 import android.service.notification.StatusBarNotification;
 import android.util.AttributeSet;
@@ -31,12 +34,16 @@ import com.android.car.assist.client.CarAssistUtils;
 import com.android.car.notification.NotificationClickHandlerFactory;
 import com.android.car.notification.NotificationDataManager;
 import com.android.car.notification.R;
+import com.android.internal.annotations.VisibleForTesting;
 
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Notification actions view that contains the buttons that fire actions.
+ *
+ * <p> The click listeners of the buttons are created once and resolve the bound notification at
+ * click time, so rebinding the view does not allocate listeners.
  */
 public class CarNotificationActionsView extends RelativeLayout {
 
@@ -46,11 +53,24 @@ public class CarNotificationActionsView extends RelativeLayout {
     private static final int MAX_NUM_ACTIONS = 3;
     private static final int PLAY_MESSAGE_ACTION_BUTTON_INDEX = 0;
     private static final int MUTE_MESSAGE_ACTION_BUTTON_INDEX = 1;
+    private static final int ACCEPT_CALL_ACTION_BUTTON_INDEX = 0;
+    private static final int DECLINE_CALL_ACTION_BUTTON_INDEX = 1;
+
+    // tinted call button backgrounds shared by all call templates, and the configuration they
+    // were loaded for
+    private static Drawable.ConstantState sAcceptButtonBackground;
+    private static Drawable.ConstantState sDeclineButtonBackground;
+    private static Configuration sCallButtonConfiguration;
 
     private final List<Button> mActionButtons = new ArrayList<>();
 
     private boolean mIsCategoryCall;
     private Context mContext;
+    @Nullable
+    private NotificationClickHandlerFactory mClickHandlerFactory;
+    @Nullable
+    private StatusBarNotification mStatusBarNotification;
+    private boolean mIsCarCompatibleMessage;
 
     public CarNotificationActionsView(Context context) {
         super(context);
@@ -93,6 +113,13 @@ public class CarNotificationActionsView extends RelativeLayout {
         mActionButtons.add(findViewById(R.id.action_1));
         mActionButtons.add(findViewById(R.id.action_2));
         mActionButtons.add(findViewById(R.id.action_3));
+        for (int i = 0; i < mActionButtons.size(); i++) {
+            int index = i;
+            mActionButtons.get(i).setOnClickListener(v -> onActionButtonClicked(v, index));
+        }
+        if (mIsCategoryCall) {
+            setCallButtonBackgrounds();
+        }
     }
 
     /**
@@ -111,9 +138,13 @@ public class CarNotificationActionsView extends RelativeLayout {
             return;
         }
 
-        if (CarAssistUtils.isCarCompatibleMessagingNotification(statusBarNotification)) {
-            createPlayButton(clickHandlerFactory, statusBarNotification);
-            createMuteButton(clickHandlerFactory, statusBarNotification);
+        mClickHandlerFactory = clickHandlerFactory;
+        mStatusBarNotification = statusBarNotification;
+        mIsCarCompatibleMessage =
+                CarAssistUtils.isCarCompatibleMessagingNotification(statusBarNotification);
+        if (mIsCarCompatibleMessage) {
+            createPlayButton();
+            createMuteButton();
             return;
         }
 
@@ -124,67 +155,105 @@ public class CarNotificationActionsView extends RelativeLayout {
             button.setVisibility(View.VISIBLE);
             // clear spannables and only use the text
             button.setText(action.title.toString());
+        }
+    }
 
-            if (action.actionIntent != null) {
-                button.setOnClickListener(clickHandlerFactory.getActionClickHandler(
-                        statusBarNotification, i));
+    private void onActionButtonClicked(View view, int index) {
+        if (mStatusBarNotification == null || mClickHandlerFactory == null) {
+            return;
+        }
+        if (mIsCarCompatibleMessage) {
+            if (index == PLAY_MESSAGE_ACTION_BUTTON_INDEX) {
+                mClickHandlerFactory.handlePlayClick(view, mStatusBarNotification);
+            } else if (index == MUTE_MESSAGE_ACTION_BUTTON_INDEX) {
+                mClickHandlerFactory.handleMuteClick((Button) view, mStatusBarNotification);
             }
+            return;
         }
+        // an action without an intent has nothing to fire
+        if (mStatusBarNotification.getNotification().actions[index].actionIntent != null) {
+            mClickHandlerFactory.handleActionClick(view, mStatusBarNotification, index);
+        }
+    }
 
-        if (mIsCategoryCall) {
-            Drawable acceptButton = mContext.getResources().getDrawable(
-                    R.drawable.call_action_button_background);
-            acceptButton.setColorFilter(
-                    new PorterDuffColorFilter(mContext.getColor(R.color.call_accept_button),
-                            PorterDuff.Mode.SRC_IN));
-            mActionButtons.get(0).setBackground(acceptButton);
-
-            Drawable declineButton = mContext.getResources().getDrawable(
-                    R.drawable.call_action_button_background);
-            declineButton.setColorFilter(
-                    new PorterDuffColorFilter(mContext.getColor(R.color.call_decline_button),
-                            PorterDuff.Mode.SRC_IN));
-            mActionButtons.get(1).setBackground(declineButton);
+    /**
+     * Sets the accept and decline backgrounds of the call buttons, loading and tinting them only
+     * once for all call templates.
+     */
+    private void setCallButtonBackgrounds() {
+        Configuration configuration = getResources().getConfiguration();
+        if (!configuration.equals(sCallButtonConfiguration)) {
+            sAcceptButtonBackground = createCallButtonBackground(R.color.call_accept_button);
+            sDeclineButtonBackground = createCallButtonBackground(R.color.call_decline_button);
+            sCallButtonConfiguration = new Configuration(configuration);
         }
+        mActionButtons.get(ACCEPT_CALL_ACTION_BUTTON_INDEX).setBackground(
+                sAcceptButtonBackground.newDrawable(getResources()));
+        mActionButtons.get(DECLINE_CALL_ACTION_BUTTON_INDEX).setBackground(
+                sDeclineButtonBackground.newDrawable(getResources()));
+    }
+
+    @VisibleForTesting
+    @Nullable
+    static Drawable.ConstantState getAcceptButtonBackground() {
+        return sAcceptButtonBackground;
+    }
+
+    @VisibleForTesting
+    @Nullable
+    static Drawable.ConstantState getDeclineButtonBackground() {
+        return sDeclineButtonBackground;
+    }
+
+    @VisibleForTesting
+    static void resetCallButtonBackgrounds() {
+        sAcceptButtonBackground = null;
+        sDeclineButtonBackground = null;
+        sCallButtonConfiguration = null;
+    }
+
+    private Drawable.ConstantState createCallButtonBackground(@ColorRes int color) {
+        Drawable background =
+                getContext().getDrawable(R.drawable.call_action_button_background).mutate();
+        background.setTintList(ColorStateList.valueOf(getContext().getColor(color)));
+        background.setTintMode(PorterDuff.Mode.SRC_IN);
+        return background.getConstantState();
     }
 
     /**
      * The Play button triggers the assistant to read the message aloud, optionally prompting the
      * user to reply to the message afterwards.
      */
-    private void createPlayButton(NotificationClickHandlerFactory clickHandlerFactory,
-            StatusBarNotification statusBarNotification) {
+    private void createPlayButton() {
         Button button = mActionButtons.get(PLAY_MESSAGE_ACTION_BUTTON_INDEX);
         button.setText(mContext.getString(R.string.assist_action_play_label));
         button.setVisibility(View.VISIBLE);
-        button.setOnClickListener(clickHandlerFactory.getPlayClickHandler(statusBarNotification));
     }
 
     /**
      * The Mute button allows users to toggle whether or not incoming notification with the same
      * statusBarNotification key will be shown with a HUN and trigger a notification sound.
      */
-    private void createMuteButton(NotificationClickHandlerFactory clickHandlerFactory,
-            StatusBarNotification statusBarNotification) {
+    private void createMuteButton() {
         Button button = mActionButtons.get(MUTE_MESSAGE_ACTION_BUTTON_INDEX);
-        NotificationDataManager manager = clickHandlerFactory.getNotificationDataManager();
+        NotificationDataManager manager = mClickHandlerFactory.getNotificationDataManager();
         button.setText((manager != null && manager.isMessageNotificationMuted(
-                statusBarNotification))
+                mStatusBarNotification))
                 ? mContext.getString(R.string.action_unmute_long)
                 : mContext.getString(R.string.action_mute_long));
         button.setVisibility(View.VISIBLE);
-        button.setOnClickListener(clickHandlerFactory.getMuteClickHandler(
-                button, statusBarNotification));
     }
 
     /**
      * Resets the notification actions empty for recycling.
      */
     public void reset() {
+        mClickHandlerFactory = null;
+        mStatusBarNotification = null;
+        mIsCarCompatibleMessage = false;
         for (Button button : mActionButtons) {
             button.setVisibility(View.GONE);
             button.setText(null);
-            button.setOnClickListener(null);
         }
     }
 }
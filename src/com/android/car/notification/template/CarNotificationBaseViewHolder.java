@@ -28,7 +28,6 @@ import androidx.cardview.widget.CardView;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.android.car.notification.NotificationClickHandlerFactory;
-import com.android.car.notification.NotificationUtils;
 import com.android.car.notification.R;
 import com.android.car.notification.ThemesUtil;
 
@@ -38,6 +37,7 @@ import com.android.car.notification.ThemesUtil;
 public abstract class CarNotificationBaseViewHolder extends RecyclerView.ViewHolder {
     private final Context mContext;
     private final NotificationClickHandlerFactory mClickHandlerFactory;
+    private final NotificationBindModelCache mBindModelCache;
 
     @Nullable
     private final CardView mCardView; // can be null for group child or group summary notification
@@ -68,11 +68,8 @@ public abstract class CarNotificationBaseViewHolder extends RecyclerView.ViewHol
     private int mBackgroundColor;
 
     private StatusBarNotification mStatusBarNotification;
+    private NotificationBindModel mBindModel;
     private boolean mIsAnimating;
-    private boolean mHasColor;
-    private boolean mIsColorized;
-    private boolean mEnableCardBackgroundColorForCategoryNavigation;
-    private boolean mEnableCardBackgroundColorForSystemApp;
     private boolean mEnableSmallIconAccentColor;
 
     /**
@@ -86,6 +83,7 @@ public abstract class CarNotificationBaseViewHolder extends RecyclerView.ViewHol
         super(itemView);
         mContext = itemView.getContext();
         mClickHandlerFactory = clickHandlerFactory;
+        mBindModelCache = NotificationBindModelCache.getInstance(mContext);
         mCardView = itemView.findViewById(R.id.card_view);
         mInnerView = itemView.findViewById(R.id.inner_template_view);
         mHeaderView = itemView.findViewById(R.id.notification_header);
@@ -95,12 +93,6 @@ public abstract class CarNotificationBaseViewHolder extends RecyclerView.ViewHol
         mDefaultCarAccentColor = ThemesUtil.getAttrColor(mContext, android.R.attr.colorAccent);
         mDefaultPrimaryForegroundColor = mContext.getColor(R.color.primary_text_color);
         mDefaultSecondaryForegroundColor = mContext.getColor(R.color.secondary_text_color);
-        mEnableCardBackgroundColorForCategoryNavigation =
-                mContext.getResources().getBoolean(
-                        R.bool.config_enableCardBackgroundColorForCategoryNavigation);
-        mEnableCardBackgroundColorForSystemApp =
-                mContext.getResources().getBoolean(
-                        R.bool.config_enableCardBackgroundColorForSystemApp);
         mEnableSmallIconAccentColor =
                 mContext.getResources().getBoolean(R.bool.config_enableSmallIconAccentColor);
     }
@@ -141,7 +133,7 @@ public abstract class CarNotificationBaseViewHolder extends RecyclerView.ViewHol
     void bindCardView(CardView cardView, boolean isInGroup) {
         initializeColors(isInGroup);
 
-        if (canChangeCardBackgroundColor() && mHasColor && mIsColorized && !isInGroup) {
+        if (getBindModel().isColorized() && !isInGroup) {
             cardView.setCardBackgroundColor(mBackgroundColor);
         }
     }
@@ -178,15 +170,12 @@ public abstract class CarNotificationBaseViewHolder extends RecyclerView.ViewHol
 
     private void initializeColors(boolean isInGroup) {
         if (mInitializedColors) return;
-        Notification notification = getStatusBarNotification().getNotification();
-
-        mHasColor = notification.color != Notification.COLOR_DEFAULT;
-        mIsColorized = notification.extras.getBoolean(Notification.EXTRA_COLORIZED, false);
+        NotificationBindModel model = getBindModel();
 
         mCalculatedPrimaryForegroundColor = mDefaultPrimaryForegroundColor;
         mCalculatedSecondaryForegroundColor = mDefaultSecondaryForegroundColor;
-        if (canChangeCardBackgroundColor() && mHasColor && mIsColorized && !isInGroup) {
-            mBackgroundColor = notification.color;
+        if (model.isColorized() && !isInGroup) {
+            mBackgroundColor = model.getColor();
             mCalculatedPrimaryForegroundColor = NotificationColorUtil.resolveContrastColor(
                     mDefaultPrimaryForegroundColor, mBackgroundColor);
             mCalculatedSecondaryForegroundColor = NotificationColorUtil.resolveContrastColor(
@@ -198,16 +187,14 @@ public abstract class CarNotificationBaseViewHolder extends RecyclerView.ViewHol
         mInitializedColors = true;
     }
 
-    private boolean canChangeCardBackgroundColor() {
-        Notification notification = getStatusBarNotification().getNotification();
-
-        boolean isSystemApp = mEnableCardBackgroundColorForSystemApp &&
-                NotificationUtils.isSystemApp(mContext, getStatusBarNotification());
-        boolean isSignedWithPlatformKey = NotificationUtils.isSignedWithPlatformKey(mContext,
-                getStatusBarNotification());
-        boolean isNavigationCategory = mEnableCardBackgroundColorForCategoryNavigation &&
-                Notification.CATEGORY_NAVIGATION.equals(notification.category);
-        return isSystemApp || isNavigationCategory || isSignedWithPlatformKey;
+    /**
+     * Returns the precomputed {@link NotificationBindModel} of the bound notification.
+     */
+    NotificationBindModel getBindModel() {
+        if (mBindModel == null) {
+            mBindModel = mBindModelCache.get(getStatusBarNotification());
+        }
+        return mBindModel;
     }
 
     /**
@@ -215,7 +202,7 @@ public abstract class CarNotificationBaseViewHolder extends RecyclerView.ViewHol
      */
     @ColorInt
     int getAccentColor() {
-        int color = getStatusBarNotification().getNotification().color;
+        int color = getBindModel().getColor();
         if (mEnableSmallIconAccentColor && color != Notification.COLOR_DEFAULT) {
             return color;
         }
@@ -238,6 +225,7 @@ public abstract class CarNotificationBaseViewHolder extends RecyclerView.ViewHol
     @CallSuper
     void reset() {
         mStatusBarNotification = null;
+        mBindModel = null;
         mBackgroundColor = mDefaultBackgroundColor;
         mInitializedColors = false;
 
@@ -262,6 +250,14 @@ public abstract class CarNotificationBaseViewHolder extends RecyclerView.ViewHol
         }
     }
 
+    /**
+     * Clears the bound notification so that the view holder can be kept for reuse outside of a
+     * {@link RecyclerView}, e.g. by the heads-up view pool.
+     */
+    public void unbind() {
+        reset();
+    }
+
     /**
      * Returns the current {@link StatusBarNotification} that this view holder is holding.
      * Note that any child class that is not calling {@link #bind} has to override this method.
@@ -28,6 +28,8 @@ import android.widget.ImageButton;
 import android.widget.RelativeLayout;
 import android.widget.TextView;
 
+import com.android.car.notification.NotificationImageLoader;
+import com.android.car.notification.NotificationTextPrecomputer;
 import com.android.car.notification.R;
 import com.android.car.notification.ThemesUtil;
 
@@ -37,15 +39,26 @@ import com.android.car.notification.ThemesUtil;
  *
  * <p> For example, for a messaging notification, the title is the sender's name,
  * the content is the message, and the image icon is the sender's avatar.
+ *
+ * <p> If flattened notification views are enabled, the title and content are drawn by a single
+ * {@link NotificationTextBlockView}.
  */
 public class CarNotificationBodyView extends RelativeLayout {
     @ColorInt
     private final int mDefaultPrimaryTextColor;
     @ColorInt
     private final int mDefaultSecondaryTextColor;
+    private final NotificationImageLoader mImageLoader;
+    private final NotificationTextPrecomputer mTextPrecomputer;
     private boolean mShowBigIcon;
+    // views of the default body
+    @Nullable
     private TextView mTitleView;
+    @Nullable
     private TextView mContentView;
+    // view of the flattened body
+    @Nullable
+    private NotificationTextBlockView mTextBlockView;
     private ImageButton mIconView;
 
     public CarNotificationBodyView(Context context) {
@@ -73,7 +86,13 @@ public class CarNotificationBodyView extends RelativeLayout {
                 ThemesUtil.getAttrColor(getContext(), android.R.attr.textColorPrimary);
         mDefaultSecondaryTextColor =
                 ThemesUtil.getAttrColor(getContext(), android.R.attr.textColorSecondary);
-        inflate(getContext(), R.layout.car_notification_body_view, /* root= */ this);
+        mImageLoader = NotificationImageLoader.getInstance(getContext());
+        mTextPrecomputer = NotificationTextPrecomputer.getInstance(getContext());
+        inflate(getContext(),
+                getResources().getBoolean(R.bool.config_useFlattenedNotificationViews)
+                        ? R.layout.car_notification_body_view_flat
+                        : R.layout.car_notification_body_view,
+                /* root= */ this);
     }
 
     private void init(AttributeSet attrs) {
@@ -90,6 +109,7 @@ public class CarNotificationBodyView extends RelativeLayout {
         super.onFinishInflate();
         mTitleView = findViewById(R.id.notification_body_title);
         mContentView = findViewById(R.id.notification_body_content);
+        mTextBlockView = findViewById(R.id.notification_body_text);
         mIconView = findViewById(R.id.notification_body_icon);
     }
 
@@ -102,30 +122,36 @@ public class CarNotificationBodyView extends RelativeLayout {
      */
     public void bind(CharSequence title, @Nullable CharSequence content, @Nullable Icon icon) {
         setVisibility(View.VISIBLE);
-
-        mTitleView.setVisibility(View.VISIBLE);
-        mTitleView.setText(title);
-
-        if (!TextUtils.isEmpty(content)) {
-            mContentView.setVisibility(View.VISIBLE);
-            mContentView.setText(content);
-        }
+        bindText(title, content);
 
         if (icon != null && mShowBigIcon) {
             mIconView.setVisibility(View.VISIBLE);
-            mIconView.setImageIcon(icon);
+            mImageLoader.loadIcon(mIconView, icon, getContext());
         }
     }
 
     public void bindTitleAndMessage(CharSequence title, CharSequence content) {
         setVisibility(View.VISIBLE);
+        bindText(title, content);
+        if (!TextUtils.isEmpty(content)) {
+            mIconView.setVisibility(View.GONE);
+        }
+    }
+
+    private void bindText(CharSequence title, @Nullable CharSequence content) {
+        if (mTextBlockView != null) {
+            mTextBlockView.setVisibility(View.VISIBLE);
+            mTextBlockView.setPrimaryText(title);
+            mTextBlockView.setSecondaryText(content);
+            return;
+        }
 
         mTitleView.setVisibility(View.VISIBLE);
-        mTitleView.setText(title);
+        mTextPrecomputer.setText(mTitleView, title);
+
         if (!TextUtils.isEmpty(content)) {
             mContentView.setVisibility(View.VISIBLE);
-            mContentView.setText(content);
-            mIconView.setVisibility(View.GONE);
+            mTextPrecomputer.setText(mContentView, content);
         }
     }
 
@@ -133,6 +159,10 @@ public class CarNotificationBodyView extends RelativeLayout {
      * Sets the primary text color.
      */
     public void setSecondaryTextColor(@ColorInt int color) {
+        if (mTextBlockView != null) {
+            mTextBlockView.setSecondaryTextColor(color);
+            return;
+        }
         mContentView.setTextColor(color);
     }
 
@@ -140,6 +170,10 @@ public class CarNotificationBodyView extends RelativeLayout {
      * Sets the secondary text color.
      */
     public void setPrimaryTextColor(@ColorInt int color) {
+        if (mTextBlockView != null) {
+            mTextBlockView.setPrimaryTextColor(color);
+            return;
+        }
         mTitleView.setTextColor(color);
     }
 
@@ -148,8 +182,15 @@ public class CarNotificationBodyView extends RelativeLayout {
      */
     public void reset() {
         setVisibility(View.GONE);
-        mTitleView.setVisibility(View.GONE);
-        mContentView.setVisibility(View.GONE);
+        if (mTextBlockView != null) {
+            mTextBlockView.setVisibility(View.GONE);
+            mTextBlockView.setPrimaryText(null);
+            mTextBlockView.setSecondaryText(null);
+        } else {
+            mTitleView.setVisibility(View.GONE);
+            mContentView.setVisibility(View.GONE);
+        }
+        mImageLoader.cancel(mIconView);
         mIconView.setVisibility(View.GONE);
         setPrimaryTextColor(mDefaultPrimaryTextColor);
         setSecondaryTextColor(mDefaultSecondaryTextColor);
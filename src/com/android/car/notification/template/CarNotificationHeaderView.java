@@ -16,44 +16,52 @@
 package com.android.car.notification.template;
 
 import android.annotation.ColorInt;
-import android.app.Notification;
-import android.car.userlib.CarUserManagerHelper;
 import android.content.Context;
-import android.content.pm.ApplicationInfo;
-import android.content.pm.PackageManager;
 import android.content.res.TypedArray;
-import android.graphics.drawable.Drawable;
-import android.os.Bundle;
 import android.service.notification.StatusBarNotification;
-import android.text.TextUtils;
 import android.util.AttributeSet;
-import android.util.Log;
 import android.view.View;
-import android.widget.DateTimeView;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 
 import androidx.annotation.Nullable;
 
+import com.android.car.notification.NotificationImageLoader;
+import com.android.car.notification.NotificationTextPrecomputer;
 import com.android.car.notification.R;
+import com.android.car.notification.RelativeTimeScheduler;
 
 /**
  * Notification header view that contains the issuer app icon and name, and extra information.
+ *
+ * <p> If flattened notification views are enabled, the app name, extra information and time are
+ * drawn by a single {@link NotificationTextBlockView}, which this view then refreshes on the
+ * {@link RelativeTimeScheduler} minute ticks.
  */
-public class CarNotificationHeaderView extends LinearLayout {
-
-    private static final String TAG = "car_notification_header";
+public class CarNotificationHeaderView extends LinearLayout
+        implements RelativeTimeScheduler.OnMinuteTickListener {
 
-    private final PackageManager mPackageManager;
-    private final CarUserManagerHelper mCarUserManagerHelper;
+    private final NotificationBindModelCache mBindModelCache;
+    private final NotificationImageLoader mImageLoader;
+    private final NotificationTextPrecomputer mTextPrecomputer;
+    private final RelativeTimeScheduler mTimeScheduler;
     private final int mDefaultTextColor;
-    private final String mSeparatorText;
 
     private boolean mIsHeadsUp;
     private ImageView mIconView;
+    // views of the default header
+    @Nullable
     private TextView mHeaderTextView;
-    private DateTimeView mTimeView;
+    @Nullable
+    private RelativeTimeView mTimeView;
+    // view of the flattened header
+    @Nullable
+    private NotificationTextBlockView mTextBlockView;
+    @Nullable
+    private RelativeTimeFormat mTimeFormat;
+    private boolean mShowsTime;
+    private long mWhen;
 
     public CarNotificationHeaderView(Context context) {
         super(context);
@@ -76,11 +84,16 @@ public class CarNotificationHeaderView extends LinearLayout {
     }
 
     {
-        mPackageManager = getContext().getPackageManager();
-        mCarUserManagerHelper = new CarUserManagerHelper(getContext());
+        mBindModelCache = NotificationBindModelCache.getInstance(getContext());
+        mImageLoader = NotificationImageLoader.getInstance(getContext());
+        mTextPrecomputer = NotificationTextPrecomputer.getInstance(getContext());
+        mTimeScheduler = RelativeTimeScheduler.getInstance();
         mDefaultTextColor = getContext().getColor(R.color.primary_text_color);
-        mSeparatorText = getContext().getString(R.string.header_text_separator);
-        inflate(getContext(), R.layout.car_notification_header_view, this);
+        inflate(getContext(),
+                getResources().getBoolean(R.bool.config_useFlattenedNotificationViews)
+                        ? R.layout.car_notification_header_view_flat
+                        : R.layout.car_notification_header_view,
+                this);
     }
 
     private void init(AttributeSet attrs) {
@@ -98,7 +111,35 @@ public class CarNotificationHeaderView extends LinearLayout {
         mIconView = findViewById(R.id.app_icon);
         mHeaderTextView = findViewById(R.id.header_text);
         mTimeView = findViewById(R.id.time);
-        mTimeView.setShowRelativeTime(true);
+        mTextBlockView = findViewById(R.id.header_text_block);
+        if (mTextBlockView != null) {
+            mTimeFormat = new RelativeTimeFormat(getContext());
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (mTextBlockView != null) {
+            mTimeScheduler.addListener(this);
+            // ticks may have been missed while detached
+            onMinuteTick(System.currentTimeMillis());
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        if (mTextBlockView != null) {
+            mTimeScheduler.removeListener(this);
+        }
+    }
+
+    @Override
+    public void onMinuteTick(long currentTimeMillis) {
+        if (mShowsTime) {
+            mTextBlockView.setSecondaryText(mTimeFormat.format(mWhen, currentTimeMillis));
+        }
     }
 
     /**
@@ -114,49 +155,48 @@ public class CarNotificationHeaderView extends LinearLayout {
             return;
         }
 
-        Notification notification = statusBarNotification.getNotification();
-
-        Context packageContext = statusBarNotification.getPackageContext(getContext());
+        NotificationBindModel model = mBindModelCache.get(statusBarNotification);
 
         // app icon
         mIconView.setVisibility(View.VISIBLE);
-        Drawable drawable = notification.getSmallIcon().loadDrawable(packageContext);
-        mIconView.setImageDrawable(drawable);
+        mImageLoader.loadSmallIcon(mIconView, statusBarNotification);
+
+        String appLabel = mBindModelCache.loadAppLabel(statusBarNotification);
 
-        StringBuilder stringBuilder = new StringBuilder();
+        if (mTextBlockView != null) {
+            bindTextBlock(model, appLabel);
+            return;
+        }
 
         // app name
         mHeaderTextView.setVisibility(View.VISIBLE);
 
         if (mIsHeadsUp) {
-            mHeaderTextView.setText(loadHeaderAppName(statusBarNotification.getPackageName()));
+            mTextPrecomputer.setText(mHeaderTextView, appLabel);
             mTimeView.setVisibility(View.GONE);
             return;
         }
 
-        stringBuilder.append(loadHeaderAppName(statusBarNotification.getPackageName()));
-        Bundle extras = notification.extras;
-
-        // optional field: sub text
-        if (!TextUtils.isEmpty(extras.getCharSequence(Notification.EXTRA_SUB_TEXT))) {
-            stringBuilder.append(mSeparatorText);
-            stringBuilder.append(extras.getCharSequence(Notification.EXTRA_SUB_TEXT));
-        }
-
-        // optional field: content info
-        if (!TextUtils.isEmpty(extras.getCharSequence(Notification.EXTRA_INFO_TEXT))) {
-            stringBuilder.append(mSeparatorText);
-            stringBuilder.append(extras.getCharSequence(Notification.EXTRA_INFO_TEXT));
-        }
-
         // optional field: time
-        if (notification.showsTime()) {
-            stringBuilder.append(mSeparatorText);
+        if (model.showsTime()) {
             mTimeView.setVisibility(View.VISIBLE);
-            mTimeView.setTime(notification.when);
+            mTimeView.setTime(model.getWhen());
         }
 
-        mHeaderTextView.setText(stringBuilder);
+        // app name followed by the optional sub text, content info and time separator
+        mTextPrecomputer.setText(mHeaderTextView, appLabel + model.getHeaderExtraText());
+    }
+
+    private void bindTextBlock(NotificationBindModel model, @Nullable String appLabel) {
+        mTextBlockView.setVisibility(View.VISIBLE);
+        if (mIsHeadsUp) {
+            mTextBlockView.setPrimaryText(appLabel);
+            return;
+        }
+        mTextBlockView.setPrimaryText(appLabel + model.getHeaderExtraText());
+        mShowsTime = model.showsTime();
+        mWhen = model.getWhen();
+        onMinuteTick(System.currentTimeMillis());
     }
 
     /**
@@ -170,6 +210,10 @@ public class CarNotificationHeaderView extends LinearLayout {
      * Sets the header text color.
      */
     public void setHeaderTextColor(@ColorInt int color) {
+        if (mTextBlockView != null) {
+            mTextBlockView.setPrimaryTextColor(color);
+            return;
+        }
         mHeaderTextView.setTextColor(color);
     }
 
@@ -177,6 +221,10 @@ public class CarNotificationHeaderView extends LinearLayout {
      * Sets the text color for the time field.
      */
     public void setTimeTextColor(@ColorInt int color) {
+        if (mTextBlockView != null) {
+            mTextBlockView.setSecondaryTextColor(color);
+            return;
+        }
         mTimeView.setTextColor(color);
     }
 
@@ -184,10 +232,21 @@ public class CarNotificationHeaderView extends LinearLayout {
      * Resets the notification header empty.
      */
     public void reset() {
+        mImageLoader.cancel(mIconView);
         mIconView.setVisibility(View.GONE);
         mIconView.setImageDrawable(null);
         setSmallIconColor(mDefaultTextColor);
 
+        if (mTextBlockView != null) {
+            mTextBlockView.setVisibility(View.GONE);
+            mTextBlockView.setPrimaryText(null);
+            mTextBlockView.setSecondaryText(null);
+            mShowsTime = false;
+            setHeaderTextColor(mDefaultTextColor);
+            setTimeTextColor(mDefaultTextColor);
+            return;
+        }
+
         mHeaderTextView.setVisibility(View.GONE);
         mHeaderTextView.setText(null);
         setHeaderTextColor(mDefaultTextColor);
@@ -196,23 +255,4 @@ public class CarNotificationHeaderView extends LinearLayout {
         mTimeView.setTime(0);
         setTimeTextColor(mDefaultTextColor);
     }
-
-    /**
-     * Fetches the application label given the package name.
-     *
-     * @param packageName The package name of the application.
-     * @return application label. Returns {@code null} when application name is not found.
-     */
-    @Nullable
-    private String loadHeaderAppName(String packageName) {
-        ApplicationInfo info;
-        try {
-            info = mPackageManager.getApplicationInfoAsUser(packageName.trim(), /* flags= */ 0,
-                    mCarUserManagerHelper.getCurrentForegroundUserId());
-        } catch (PackageManager.NameNotFoundException e) {
-            Log.e(TAG, "Error fetching app name in car notification header" + e);
-            return null;
-        }
-        return String.valueOf(mPackageManager.getApplicationLabel(info));
-    }
 }
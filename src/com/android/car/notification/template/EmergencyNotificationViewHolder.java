@@ -18,7 +18,6 @@ package com.android.car.notification.template;
 import android.annotation.ColorInt;
 import android.app.Notification;
 import android.graphics.drawable.Icon;
-import android.os.Bundle;
 import android.service.notification.StatusBarNotification;
 import android.view.View;
 
@@ -69,9 +68,9 @@ public class EmergencyNotificationViewHolder extends CarNotificationBaseViewHold
         mHeaderView.bind(statusBarNotification, isInGroup);
         mActionsView.bind(mClickHandlerFactory, statusBarNotification);
 
-        Bundle extraData = notification.extras;
-        CharSequence title = extraData.getCharSequence(Notification.EXTRA_TITLE);
-        CharSequence text = extraData.getCharSequence(Notification.EXTRA_TEXT);
+        NotificationBindModel model = getBindModel();
+        CharSequence title = model.getTitle();
+        CharSequence text = model.getText();
         Icon icon = notification.getLargeIcon();
         mBodyView.bind(title, text, icon);
     }
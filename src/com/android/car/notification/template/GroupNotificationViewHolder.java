@@ -34,9 +34,6 @@ import com.android.car.notification.NotificationClickHandlerFactory;
 import com.android.car.notification.NotificationGroup;
 import com.android.car.notification.R;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * ViewHolder that binds a list of notifications as a grouped notification.
  */
@@ -124,40 +121,32 @@ public class GroupNotificationViewHolder extends CarNotificationBaseViewHolder {
         // Set the header's UI attributes (i.e. smallIconColor, etc.) based on the BaseViewHolder.
         bindHeader(mGroupHeaderView, /* isInGroup= */ false);
 
-        mAdapter.setCarUxRestrictions(parentAdapter.getCarUxRestrictions());
+        if (mAdapter.getCarUxRestrictions() != parentAdapter.getCarUxRestrictions()) {
+            mAdapter.setCarUxRestrictions(parentAdapter.getCarUxRestrictions());
+        }
 
         // use the same view pool with all the grouped notifications
         // to increase the number of the shared views and reduce memory cost
         // the view pool is created and stored in the root adapter
         mNotificationListView.setRecycledViewPool(parentAdapter.getViewPool());
 
-        // notification cards
-        List<NotificationGroup> list = new ArrayList<>();
-        if (isExpanded) {
-            // show header divider
-            mHeaderDividerView.setVisibility(View.VISIBLE);
-
-            // all child notifications
-            group.getChildNotifications().forEach(notification -> {
-                NotificationGroup notificationGroup = new NotificationGroup();
-                notificationGroup.addNotification(notification);
-                list.add(notificationGroup);
-            });
-        } else {
-            // hide header divider
-            mHeaderDividerView.setVisibility(View.GONE);
-
-            // only show group summary notification
-            NotificationGroup newGroup = new NotificationGroup();
-            newGroup.addNotification(group.getGroupSummaryNotification());
-            // If the group summary notification is automatically generated,
-            // it does not contain a summary of the titles of the child notifications.
-            // Therefore, we generate a list of the child notification titles from
-            // the parent notification group, and pass them on.
-            newGroup.setChildTitles(group.generateChildTitles());
-            list.add(newGroup);
-        }
-        mAdapter.setNotifications(list, /* setRecyclerViewListHeaderAndFooter= */ false);
+        bindExpansion(group, parentAdapter, isExpanded);
+    }
+
+    /**
+     * Binds the expansion state of the group that is already bound to this view holder. The
+     * header is kept and only the child notifications that are shown or hidden by the change are
+     * inserted or removed.
+     */
+    public void bindExpansion(
+            NotificationGroup group, CarNotificationViewAdapter parentAdapter, boolean isExpanded) {
+        mNotificationGroup = group;
+
+        // show header divider only when all child notifications are shown
+        mHeaderDividerView.setVisibility(isExpanded ? View.VISIBLE : View.GONE);
+
+        // notification cards: only the changed children are rebound
+        mAdapter.setChildNotifications(group, isExpanded);
 
         updateExpansionIcon(group.getChildCount(), isExpanded);
         updateOnClickListener(parentAdapter, group, isExpanded);
@@ -190,8 +179,8 @@ public class GroupNotificationViewHolder extends CarNotificationBaseViewHolder {
 
         View.OnClickListener expansionClickListener = view -> {
             boolean isExpanding = !isExpanded;
+            // the parent adapter rebinds the expansion state of this group only
             parentAdapter.setExpanded(group.getGroupKey(), isExpanding);
-            mAdapter.notifyDataSetChanged();
         };
 
         mGroupHeaderView.setOnClickListener(expansionClickListener);
@@ -17,7 +17,6 @@ package com.android.car.notification.template;
 
 import android.app.Notification;
 import android.graphics.drawable.Icon;
-import android.os.Bundle;
 import android.service.notification.StatusBarNotification;
 import android.view.View;
 
@@ -60,9 +59,9 @@ public class InboxNotificationViewHolder extends CarNotificationBaseViewHolder {
      */
     private void bindBody(StatusBarNotification statusBarNotification) {
         Notification notification = statusBarNotification.getNotification();
-        Bundle extraData = notification.extras;
-        CharSequence title = extraData.getCharSequence(Notification.EXTRA_TITLE_BIG);
-        CharSequence text = extraData.getCharSequence(Notification.EXTRA_SUMMARY_TEXT);
+        NotificationBindModel model = getBindModel();
+        CharSequence title = model.getBigTitle();
+        CharSequence text = model.getSummaryText();
         Icon icon = notification.getLargeIcon();
         mBodyView.bind(title, text, icon);
     }
@@ -16,25 +16,24 @@
 package com.android.car.notification.template;
 
 import android.annotation.ColorInt;
+import android.annotation.Nullable;
 import android.app.Notification;
-import android.app.Person;
 import android.content.Context;
 import android.graphics.drawable.Icon;
 import android.os.Bundle;
-import android.os.Parcelable;
 import android.service.notification.StatusBarNotification;
 import android.text.TextUtils;
 import android.view.View;
-import android.widget.DateTimeView;
 import android.widget.ImageButton;
 import android.widget.TextView;
 
+import com.android.car.notification.MessagingStyleCache;
 import com.android.car.notification.NotificationClickHandlerFactory;
+import com.android.car.notification.NotificationImageLoader;
+import com.android.car.notification.NotificationTextPrecomputer;
 import com.android.car.notification.PreprocessingManager;
 import com.android.car.notification.R;
 
-import java.util.List;
-
 /**
  * Messaging notification template that displays a messaging notification and a voice reply button.
  */
@@ -45,11 +44,16 @@ public class MessageNotificationViewHolder extends CarNotificationBaseViewHolder
     private final CarNotificationBodyView mBodyView;
     private final CarNotificationHeaderView mHeaderView;
     private final CarNotificationActionsView mActionsView;
+    // the sender name and message views are drawn by the body view of the flattened HUN template
+    @Nullable
     private final TextView mSenderNameView;
-    private final DateTimeView mTimeView;
+    private final RelativeTimeView mTimeView;
+    @Nullable
     private final TextView mMessageView;
     private final TextView mUnshownCountView;
     private final ImageButton mAvatarView;
+    private final NotificationImageLoader mImageLoader;
+    private final NotificationTextPrecomputer mTextPrecomputer;
     private NotificationClickHandlerFactory mClickHandlerFactory;
 
     public MessageNotificationViewHolder(
@@ -60,15 +64,14 @@ public class MessageNotificationViewHolder extends CarNotificationBaseViewHolder
         mHeaderView = view.findViewById(R.id.notification_header);
         mActionsView = view.findViewById(R.id.notification_actions);
         mSenderNameView = view.findViewById(R.id.notification_body_title);
+        // HUN template does not include the time stamp.
         mTimeView = view.findViewById(R.id.in_group_time_stamp);
-        if (mTimeView != null) {
-            // HUN template does not include the time stamp.
-            mTimeView.setShowRelativeTime(true);
-        }
         mMessageView = view.findViewById(R.id.notification_body_content);
         mBodyView = view.findViewById(R.id.notification_body);
         mUnshownCountView = view.findViewById(R.id.message_count);
         mAvatarView = view.findViewById(R.id.notification_body_icon);
+        mImageLoader = NotificationImageLoader.getInstance(mContext);
+        mTextPrecomputer = NotificationTextPrecomputer.getInstance(mContext);
         mClickHandlerFactory = clickHandlerFactory;
     }
 
@@ -111,23 +114,13 @@ public class MessageNotificationViewHolder extends CarNotificationBaseViewHolder
         Integer messageCount = null;
 
         Bundle extras = notification.extras;
-        Parcelable[] messagesData = extras.getParcelableArray(Notification.EXTRA_MESSAGES);
-        if (messagesData != null) {
-            List<Notification.MessagingStyle.Message> messages =
-                    Notification.MessagingStyle.Message.getMessagesFromBundleArray(messagesData);
-            if (messages != null && !messages.isEmpty()) {
-                messageCount = messages.size();
-                // Use the latest message
-                Notification.MessagingStyle.Message message = messages.get(messages.size() - 1);
-                messageText = message.getText();
-                Person sender = message.getSenderPerson();
-                if (sender != null) {
-                    senderName = sender.getName();
-                    avatar = sender.getIcon();
-                } else {
-                    senderName = message.getSender();
-                }
-            }
+        MessagingStyleCache.LatestMessage latestMessage =
+                MessagingStyleCache.getInstance(mContext).getLatestMessage(statusBarNotification);
+        if (latestMessage != null) {
+            messageCount = latestMessage.getMessageCount();
+            messageText = latestMessage.getText();
+            senderName = latestMessage.getSenderName();
+            avatar = latestMessage.getAvatar();
         }
 
         // app did not use messaging style, fall back to standard fields
@@ -152,9 +145,9 @@ public class MessageNotificationViewHolder extends CarNotificationBaseViewHolder
             avatar = notification.getLargeIcon();
         }
 
-        if (!TextUtils.isEmpty(senderName)) {
+        if (mSenderNameView != null && !TextUtils.isEmpty(senderName)) {
             mSenderNameView.setVisibility(View.VISIBLE);
-            mSenderNameView.setText(senderName);
+            mTextPrecomputer.setText(mSenderNameView, senderName);
         }
 
         if (isInGroup && notification.showsTime()) {
@@ -164,13 +157,15 @@ public class MessageNotificationViewHolder extends CarNotificationBaseViewHolder
 
         if (!TextUtils.isEmpty(messageText)) {
             messageText = PreprocessingManager.getInstance(mContext).trimText(messageText);
-            mMessageView.setVisibility(View.VISIBLE);
-            mMessageView.setText(messageText);
+            if (mMessageView != null) {
+                mMessageView.setVisibility(View.VISIBLE);
+                mTextPrecomputer.setText(mMessageView, messageText);
+            }
         }
 
         if (avatar != null) {
             mAvatarView.setVisibility(View.VISIBLE);
-            mAvatarView.setImageIcon(avatar);
+            mImageLoader.loadIcon(mAvatarView, avatar, mContext);
         }
 
         int unshownCount = messageCount - 1;
@@ -190,15 +185,20 @@ public class MessageNotificationViewHolder extends CarNotificationBaseViewHolder
     @Override
     void reset() {
         super.reset();
-        mSenderNameView.setVisibility(View.GONE);
-        mSenderNameView.setText(null);
+        if (mSenderNameView != null) {
+            mSenderNameView.setVisibility(View.GONE);
+            mSenderNameView.setText(null);
+        }
         if (mTimeView != null) {
             mTimeView.setVisibility(View.GONE);
         }
 
-        mMessageView.setVisibility(View.GONE);
-        mMessageView.setText(null);
+        if (mMessageView != null) {
+            mMessageView.setVisibility(View.GONE);
+            mMessageView.setText(null);
+        }
 
+        mImageLoader.cancel(mAvatarView);
         mAvatarView.setVisibility(View.GONE);
         mAvatarView.setImageIcon(null);
 
@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.notification.template;
+
+import android.annotation.ColorInt;
+import android.annotation.Nullable;
+import android.app.Notification;
+import android.os.Bundle;
+import android.service.notification.StatusBarNotification;
+import android.text.TextUtils;
+
+import androidx.annotation.WorkerThread;
+
+/**
+ * Immutable data derived from a {@link StatusBarNotification} that the templates bind.
+ *
+ * <p> Building a model reads the extras the templates show, queries PackageManager for the posting
+ * app and composes the header text, so it is done ahead of time on a background thread by
+ * {@link NotificationBindModelCache}. Binding a card then only assigns the precomputed values to
+ * its views. Values that depend on the theme of the view, such as the default colors, are not part
+ * of the model, and neither is the app label, which is looked up from
+ * {@link com.android.car.notification.AppResourceCache} on bind so that it follows app updates.
+ */
+public final class NotificationBindModel {
+    private final long mPostTime;
+    private final boolean mIsColorized;
+    @ColorInt
+    private final int mColor;
+    private final String mHeaderExtraText;
+    private final boolean mShowsTime;
+    private final long mWhen;
+    @Nullable
+    private final CharSequence mTitle;
+    @Nullable
+    private final CharSequence mText;
+    @Nullable
+    private final CharSequence mBigTitle;
+    @Nullable
+    private final CharSequence mSummaryText;
+    private final int mProgress;
+    private final int mProgressMax;
+    private final boolean mIsProgressIndeterminate;
+
+    private NotificationBindModel(long postTime, boolean isColorized, @ColorInt int color,
+            String headerExtraText, boolean showsTime, long when, Bundle extras) {
+        mPostTime = postTime;
+        mIsColorized = isColorized;
+        mColor = color;
+        mHeaderExtraText = headerExtraText;
+        mShowsTime = showsTime;
+        mWhen = when;
+        mTitle = extras.getCharSequence(Notification.EXTRA_TITLE);
+        mText = extras.getCharSequence(Notification.EXTRA_TEXT);
+        mBigTitle = extras.getCharSequence(Notification.EXTRA_TITLE_BIG);
+        mSummaryText = extras.getCharSequence(Notification.EXTRA_SUMMARY_TEXT);
+        mProgress = extras.getInt(Notification.EXTRA_PROGRESS);
+        mProgressMax = extras.getInt(Notification.EXTRA_PROGRESS_MAX);
+        mIsProgressIndeterminate = extras.getBoolean(Notification.EXTRA_PROGRESS_INDETERMINATE);
+    }
+
+    /**
+     * Builds the model of a notification.
+     *
+     * @param canChangeCardBackgroundColor whether the posting app is allowed to change the card
+     * background color.
+     * @param separator the text shown between the parts of the header text.
+     */
+    @WorkerThread
+    static NotificationBindModel create(StatusBarNotification statusBarNotification,
+            boolean canChangeCardBackgroundColor, CharSequence separator) {
+        Notification notification = statusBarNotification.getNotification();
+        Bundle extras = notification.extras;
+
+        boolean hasColor = notification.color != Notification.COLOR_DEFAULT;
+        boolean isColorized = canChangeCardBackgroundColor && hasColor
+                && extras.getBoolean(Notification.EXTRA_COLORIZED, false);
+
+        StringBuilder headerExtraText = new StringBuilder();
+        // optional field: sub text
+        CharSequence subText = extras.getCharSequence(Notification.EXTRA_SUB_TEXT);
+        if (!TextUtils.isEmpty(subText)) {
+            headerExtraText.append(separator);
+            headerExtraText.append(subText);
+        }
+        // optional field: content info
+        CharSequence infoText = extras.getCharSequence(Notification.EXTRA_INFO_TEXT);
+        if (!TextUtils.isEmpty(infoText)) {
+            headerExtraText.append(separator);
+            headerExtraText.append(infoText);
+        }
+        // optional field: time
+        boolean showsTime = notification.showsTime();
+        if (showsTime) {
+            headerExtraText.append(separator);
+        }
+
+        return new NotificationBindModel(statusBarNotification.getPostTime(), isColorized,
+                notification.color, headerExtraText.toString(), showsTime, notification.when,
+                extras);
+    }
+
+    /**
+     * Returns the post time of the notification this model was built from.
+     */
+    long getPostTime() {
+        return mPostTime;
+    }
+
+    /**
+     * Returns true if the card background should use the notification color, unless the card is
+     * part of a group.
+     */
+    boolean isColorized() {
+        return mIsColorized;
+    }
+
+    /**
+     * Returns the notification color, or {@link Notification#COLOR_DEFAULT} if not set.
+     */
+    @ColorInt
+    int getColor() {
+        return mColor;
+    }
+
+    /**
+     * Returns the part of the header text that follows the app label: the optional sub text,
+     * content info and time separator, each preceded by the separator.
+     */
+    String getHeaderExtraText() {
+        return mHeaderExtraText;
+    }
+
+    /**
+     * Returns true if the time of the notification should be shown.
+     */
+    boolean showsTime() {
+        return mShowsTime;
+    }
+
+    /**
+     * Returns the time of the notification.
+     */
+    long getWhen() {
+        return mWhen;
+    }
+
+    /**
+     * Returns the title of the notification.
+     */
+    @Nullable
+    CharSequence getTitle() {
+        return mTitle;
+    }
+
+    /**
+     * Returns the main text of the notification.
+     */
+    @Nullable
+    CharSequence getText() {
+        return mText;
+    }
+
+    /**
+     * Returns the title of the expanded inbox style notification.
+     */
+    @Nullable
+    CharSequence getBigTitle() {
+        return mBigTitle;
+    }
+
+    /**
+     * Returns the summary text of the inbox style notification.
+     */
+    @Nullable
+    CharSequence getSummaryText() {
+        return mSummaryText;
+    }
+
+    /**
+     * Returns the current progress of a progress notification.
+     */
+    int getProgress() {
+        return mProgress;
+    }
+
+    /**
+     * Returns the maximum progress of a progress notification.
+     */
+    int getProgressMax() {
+        return mProgressMax;
+    }
+
+    /**
+     * Returns true if the progress of a progress notification is indeterminate.
+     */
+    boolean isProgressIndeterminate() {
+        return mIsProgressIndeterminate;
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.notification.template;
+
+import android.annotation.Nullable;
+import android.app.Notification;
+import android.car.userlib.CarUserManagerHelper;
+import android.content.Context;
+import android.os.Process;
+import android.service.notification.StatusBarNotification;
+import android.util.LruCache;
+
+import androidx.annotation.MainThread;
+
+import com.android.car.notification.AppResourceCache;
+import com.android.car.notification.NotificationUtils;
+import com.android.car.notification.R;
+import com.android.internal.annotations.VisibleForTesting;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Builds and caches {@link NotificationBindModel}s, keyed by notification key and post time.
+ *
+ * <p> Models are built in the background through {@link #prefetch} while the notification list is
+ * being updated and when a heads-up notification is queued. A bind that finds no model for the
+ * posted notification builds it synchronously, which costs what binding the notification cost
+ * before models were introduced.
+ *
+ * <p> The app label is not part of the model: it is looked up from {@link AppResourceCache} on
+ * bind, which drops it when the app is updated. Prefetching loads it into that cache as well.
+ */
+public class NotificationBindModelCache {
+    private static final String TAG = "NotificationBindModelCache";
+
+    private static NotificationBindModelCache sInstance;
+
+    private final Context mContext;
+    private final AppResourceCache mAppResourceCache;
+    private final CarUserManagerHelper mCarUserManagerHelper;
+    private final String mSeparatorText;
+    private final boolean mEnableCardBackgroundColorForCategoryNavigation;
+    private final boolean mEnableCardBackgroundColorForSystemApp;
+    private final LruCache<String, NotificationBindModel> mModels;
+    private final Executor mExecutor;
+
+    private NotificationBindModelCache(Context context) {
+        this(context, Executors.newSingleThreadExecutor(
+                runnable -> new Thread(() -> {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }, TAG)));
+    }
+
+    @VisibleForTesting
+    NotificationBindModelCache(Context context, Executor executor) {
+        mContext = context;
+        mExecutor = executor;
+        mAppResourceCache = AppResourceCache.getInstance(context);
+        mCarUserManagerHelper = new CarUserManagerHelper(context);
+        mSeparatorText = context.getString(R.string.header_text_separator);
+        mEnableCardBackgroundColorForCategoryNavigation = context.getResources().getBoolean(
+                R.bool.config_enableCardBackgroundColorForCategoryNavigation);
+        mEnableCardBackgroundColorForSystemApp = context.getResources().getBoolean(
+                R.bool.config_enableCardBackgroundColorForSystemApp);
+        mModels = new LruCache<>(
+                context.getResources().getInteger(R.integer.config_bindModelCacheSize));
+    }
+
+    public static NotificationBindModelCache getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new NotificationBindModelCache(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * Returns the model of the given notification, building it on the calling thread if it has
+     * not been built since the notification was last posted.
+     */
+    @MainThread
+    public NotificationBindModel get(StatusBarNotification statusBarNotification) {
+        NotificationBindModel model = getCachedModel(statusBarNotification);
+        if (model == null) {
+            model = build(statusBarNotification);
+        }
+        return model;
+    }
+
+    /**
+     * Builds the model of the given notification and loads the label of its app in the
+     * background if the model is not cached yet.
+     */
+    @MainThread
+    public void prefetch(StatusBarNotification statusBarNotification) {
+        if (getCachedModel(statusBarNotification) != null) {
+            return;
+        }
+        mExecutor.execute(() -> {
+            if (getCachedModel(statusBarNotification) == null) {
+                build(statusBarNotification);
+                loadAppLabel(statusBarNotification);
+            }
+        });
+    }
+
+    /**
+     * Returns the label of the app that posted the given notification for the current foreground
+     * user, or {@code null} if the app could not be found.
+     */
+    @Nullable
+    public String loadAppLabel(StatusBarNotification statusBarNotification) {
+        return mAppResourceCache.loadLabel(statusBarNotification.getPackageName().trim(),
+                mCarUserManagerHelper.getCurrentForegroundUserId());
+    }
+
+    private NotificationBindModel getCachedModel(StatusBarNotification statusBarNotification) {
+        NotificationBindModel model = mModels.get(statusBarNotification.getKey());
+        return model != null && model.getPostTime() == statusBarNotification.getPostTime()
+                ? model : null;
+    }
+
+    private NotificationBindModel build(StatusBarNotification statusBarNotification) {
+        NotificationBindModel model = NotificationBindModel.create(statusBarNotification,
+                canChangeCardBackgroundColor(statusBarNotification), mSeparatorText);
+        mModels.put(statusBarNotification.getKey(), model);
+        return model;
+    }
+
+    private boolean canChangeCardBackgroundColor(StatusBarNotification statusBarNotification) {
+        Notification notification = statusBarNotification.getNotification();
+
+        boolean isSystemApp = mEnableCardBackgroundColorForSystemApp
+                && NotificationUtils.isSystemApp(mContext, statusBarNotification);
+        boolean isSignedWithPlatformKey =
+                NotificationUtils.isSignedWithPlatformKey(mContext, statusBarNotification);
+        boolean isNavigationCategory = mEnableCardBackgroundColorForCategoryNavigation
+                && Notification.CATEGORY_NAVIGATION.equals(notification.category);
+        return isSystemApp || isNavigationCategory || isSignedWithPlatformKey;
+    }
+}
@@ -18,6 +18,7 @@ package com.android.car.notification.template;
 
 import android.annotation.ColorInt;
 import android.graphics.Color;
+import android.util.LruCache;
 
 import com.android.internal.graphics.ColorUtils;
 
@@ -32,6 +33,12 @@ public class NotificationColorUtil {
     private static final double MIN_LIGHTNESS = 0;
     private static final float MAX_LIGHTNESS = 1;
     private static final float LIGHT_COLOR_LUMINANCE_THRESHOLD = 0.5f;
+    private static final int CONTRAST_COLOR_CACHE_SIZE = 64;
+
+    // contrasted foreground colors keyed by foreground color, background color and minimum
+    // contrast ratio
+    private static final LruCache<String, Integer> sContrastColorCache =
+            new LruCache<>(CONTRAST_COLOR_CACHE_SIZE);
 
     private NotificationColorUtil() {
     }
@@ -136,6 +143,18 @@ public class NotificationColorUtil {
      */
     private static int getContrastedForegroundColor(
             @ColorInt int foregroundColor, @ColorInt int backgroundColor, double minContrastRatio) {
+        String key = foregroundColor + "/" + backgroundColor + "/" + minContrastRatio;
+        Integer contrastedColor = sContrastColorCache.get(key);
+        if (contrastedColor == null) {
+            contrastedColor = calculateContrastedForegroundColor(
+                    foregroundColor, backgroundColor, minContrastRatio);
+            sContrastColorCache.put(key, contrastedColor);
+        }
+        return contrastedColor;
+    }
+
+    private static int calculateContrastedForegroundColor(
+            @ColorInt int foregroundColor, @ColorInt int backgroundColor, double minContrastRatio) {
         boolean isBackgroundDarker =
                 Color.luminance(foregroundColor) > Color.luminance(backgroundColor);
         return isBackgroundDarker
@@ -0,0 +1,261 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.notification.template;
+
+import android.annotation.ColorInt;
+import android.annotation.Nullable;
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.text.style.TextAppearanceSpan;
+import android.util.AttributeSet;
+import android.view.View;
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import com.android.car.notification.R;
+
+/**
+ * Single view that draws a primary and a secondary line of text, replacing two text views in the
+ * flattened notification templates.
+ *
+ * <p> Each text is drawn on a single line, ellipsized at the end, from a {@link StaticLayout} that
+ * is only rebuilt when the text or the available width changes, so rebinding the same text or
+ * changing its color does not measure it again. The secondary text is either drawn below the
+ * primary text, as the title and content of a notification body, or right after it on the same
+ * line, as the time of a notification header.
+ */
+public class NotificationTextBlockView extends View {
+    private final TextPaint mPrimaryPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private final TextPaint mSecondaryPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private boolean mIsInline;
+
+    @Nullable
+    private CharSequence mPrimaryText;
+    @Nullable
+    private CharSequence mSecondaryText;
+    @Nullable
+    private StaticLayout mPrimaryLayout;
+    @Nullable
+    private StaticLayout mSecondaryLayout;
+    // content width the layouts were built for, or -1 if they need to be rebuilt
+    private int mLayoutWidth = -1;
+
+    public NotificationTextBlockView(Context context) {
+        super(context);
+    }
+
+    public NotificationTextBlockView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        init(attrs);
+    }
+
+    public NotificationTextBlockView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        init(attrs);
+    }
+
+    public NotificationTextBlockView(Context context, AttributeSet attrs, int defStyleAttr,
+            int defStyleRes) {
+        super(context, attrs, defStyleAttr, defStyleRes);
+        init(attrs);
+    }
+
+    private void init(AttributeSet attrs) {
+        TypedArray attributes =
+                getContext().obtainStyledAttributes(attrs, R.styleable.NotificationTextBlockView);
+        applyTextAppearance(mPrimaryPaint, attributes.getResourceId(
+                R.styleable.NotificationTextBlockView_primaryTextAppearance, /* defValue= */ 0));
+        applyTextAppearance(mSecondaryPaint, attributes.getResourceId(
+                R.styleable.NotificationTextBlockView_secondaryTextAppearance, /* defValue= */ 0));
+        mIsInline = attributes.getBoolean(R.styleable.NotificationTextBlockView_isInline,
+                /* defValue= */ false);
+        attributes.recycle();
+    }
+
+    private void applyTextAppearance(TextPaint paint, int textAppearance) {
+        if (textAppearance == 0) {
+            return;
+        }
+        TextAppearanceSpan span = new TextAppearanceSpan(getContext(), textAppearance);
+        span.updateMeasureState(paint);
+        span.updateDrawState(paint);
+    }
+
+    /**
+     * Sets the primary text.
+     */
+    public void setPrimaryText(@Nullable CharSequence text) {
+        if (TextUtils.equals(mPrimaryText, text)) {
+            return;
+        }
+        mPrimaryText = text;
+        invalidateLayouts();
+    }
+
+    /**
+     * Sets the secondary text.
+     */
+    public void setSecondaryText(@Nullable CharSequence text) {
+        if (TextUtils.equals(mSecondaryText, text)) {
+            return;
+        }
+        mSecondaryText = text;
+        invalidateLayouts();
+    }
+
+    /**
+     * Sets the primary text color.
+     */
+    public void setPrimaryTextColor(@ColorInt int color) {
+        if (mPrimaryPaint.getColor() != color) {
+            mPrimaryPaint.setColor(color);
+            invalidate();
+        }
+    }
+
+    /**
+     * Sets the secondary text color.
+     */
+    public void setSecondaryTextColor(@ColorInt int color) {
+        if (mSecondaryPaint.getColor() != color) {
+            mSecondaryPaint.setColor(color);
+            invalidate();
+        }
+    }
+
+    private void invalidateLayouts() {
+        mLayoutWidth = -1;
+        requestLayout();
+        invalidate();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int horizontalPadding = getPaddingLeft() + getPaddingRight();
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        if (MeasureSpec.getMode(widthMeasureSpec) != MeasureSpec.EXACTLY) {
+            int primaryWidth = getDesiredWidth(mPrimaryText, mPrimaryPaint);
+            int secondaryWidth = getDesiredWidth(mSecondaryText, mSecondaryPaint);
+            int desiredWidth = (mIsInline
+                    ? primaryWidth + secondaryWidth
+                    : Math.max(primaryWidth, secondaryWidth)) + horizontalPadding;
+            width = MeasureSpec.getMode(widthMeasureSpec) == MeasureSpec.AT_MOST
+                    ? Math.min(desiredWidth, width) : desiredWidth;
+        }
+        ensureLayouts(Math.max(0, width - horizontalPadding));
+
+        int height = resolveSize(getContentHeight() + getPaddingTop() + getPaddingBottom(),
+                heightMeasureSpec);
+        setMeasuredDimension(width, height);
+    }
+
+    private void ensureLayouts(int contentWidth) {
+        if (mLayoutWidth == contentWidth) {
+            return;
+        }
+        int secondaryWidth =
+                Math.min(getDesiredWidth(mSecondaryText, mSecondaryPaint), contentWidth);
+        int primaryWidth = mIsInline ? contentWidth - secondaryWidth : contentWidth;
+        mPrimaryLayout = buildLayout(mPrimaryText, mPrimaryPaint, primaryWidth);
+        mSecondaryLayout = buildLayout(mSecondaryText, mSecondaryPaint, secondaryWidth);
+        mLayoutWidth = contentWidth;
+    }
+
+    private int getContentHeight() {
+        int primaryHeight = mPrimaryLayout != null ? mPrimaryLayout.getHeight() : 0;
+        int secondaryHeight = mSecondaryLayout != null ? mSecondaryLayout.getHeight() : 0;
+        return mIsInline
+                ? Math.max(primaryHeight, secondaryHeight)
+                : primaryHeight + secondaryHeight;
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        boolean isRtl = getLayoutDirection() == LAYOUT_DIRECTION_RTL;
+        int start = isRtl ? getWidth() - getPaddingRight() : getPaddingLeft();
+        int top = getPaddingTop();
+        if (mIsInline) {
+            // center the line vertically
+            top += (getHeight() - getPaddingTop() - getPaddingBottom() - getContentHeight()) / 2;
+        }
+
+        int primaryWidth = 0;
+        int primaryHeight = 0;
+        if (mPrimaryLayout != null) {
+            primaryWidth = mPrimaryLayout.getWidth();
+            primaryHeight = mPrimaryLayout.getHeight();
+            drawLayout(canvas, mPrimaryLayout, isRtl ? start - primaryWidth : start, top);
+        }
+        if (mSecondaryLayout != null) {
+            int secondaryStart = mIsInline ? (isRtl ? start - primaryWidth : start + primaryWidth)
+                    : start;
+            int secondaryTop = mIsInline ? top : top + primaryHeight;
+            drawLayout(canvas, mSecondaryLayout,
+                    isRtl ? secondaryStart - mSecondaryLayout.getWidth() : secondaryStart,
+                    secondaryTop);
+        }
+    }
+
+    private static void drawLayout(Canvas canvas, Layout layout, int left, int top) {
+        canvas.save();
+        canvas.translate(left, top);
+        layout.draw(canvas);
+        canvas.restore();
+    }
+
+    @Override
+    public void onInitializeAccessibilityNodeInfo(AccessibilityNodeInfo info) {
+        super.onInitializeAccessibilityNodeInfo(info);
+        if (TextUtils.isEmpty(mSecondaryText)) {
+            info.setText(mPrimaryText);
+        } else if (TextUtils.isEmpty(mPrimaryText)) {
+            info.setText(mSecondaryText);
+        } else {
+            info.setText(TextUtils.concat(mPrimaryText, " ", mSecondaryText));
+        }
+    }
+
+    private static int getDesiredWidth(@Nullable CharSequence text, TextPaint paint) {
+        if (TextUtils.isEmpty(text)) {
+            return 0;
+        }
+        return (int) Math.ceil(Layout.getDesiredWidth(text, paint));
+    }
+
+    /**
+     * Builds a single line layout of the text that is only as wide as the text, up to the given
+     * width, after which the text is ellipsized.
+     */
+    @Nullable
+    private static StaticLayout buildLayout(@Nullable CharSequence text, TextPaint paint,
+            int maxWidth) {
+        if (TextUtils.isEmpty(text) || maxWidth <= 0) {
+            return null;
+        }
+        int width = Math.min(getDesiredWidth(text, paint), maxWidth);
+        return StaticLayout.Builder.obtain(text, /* start= */ 0, text.length(), paint, width)
+                .setMaxLines(1)
+                .setEllipsize(TextUtils.TruncateAt.END)
+                .setEllipsizedWidth(width)
+                .build();
+    }
+}
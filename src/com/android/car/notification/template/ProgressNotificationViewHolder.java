@@ -19,7 +19,6 @@ import android.annotation.ColorInt;
 import android.app.Notification;
 import android.content.res.ColorStateList;
 import android.graphics.drawable.Icon;
-import android.os.Bundle;
 import android.service.notification.StatusBarNotification;
 import android.view.View;
 import android.widget.ProgressBar;
@@ -71,16 +70,16 @@ public class ProgressNotificationViewHolder extends CarNotificationBaseViewHolde
     private void bindBody(StatusBarNotification statusBarNotification) {
         Notification notification = statusBarNotification.getNotification();
 
-        Bundle extraData = notification.extras;
-        CharSequence title = extraData.getCharSequence(Notification.EXTRA_TITLE);
-        CharSequence text = extraData.getCharSequence(Notification.EXTRA_TEXT);
+        NotificationBindModel model = getBindModel();
+        CharSequence title = model.getTitle();
+        CharSequence text = model.getText();
         Icon icon = notification.getLargeIcon();
         mBodyView.bind(title, text, icon);
 
         mProgressBarView.setVisibility(View.VISIBLE);
-        boolean isIndeterminate = extraData.getBoolean(Notification.EXTRA_PROGRESS_INDETERMINATE);
-        int progress = extraData.getInt(Notification.EXTRA_PROGRESS);
-        int progressMax = extraData.getInt(Notification.EXTRA_PROGRESS_MAX);
+        boolean isIndeterminate = model.isProgressIndeterminate();
+        int progress = model.getProgress();
+        int progressMax = model.getProgressMax();
         mProgressBarView.setIndeterminate(isIndeterminate);
         mProgressBarView.setMax(progressMax);
         mProgressBarView.setProgress(progress);
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.notification.template;
+
+import android.content.Context;
+import android.icu.text.DisplayContext;
+import android.icu.text.MeasureFormat;
+import android.icu.text.RelativeDateTimeFormatter;
+import android.icu.util.Measure;
+import android.icu.util.MeasureUnit;
+import android.icu.util.ULocale;
+import android.text.format.DateUtils;
+
+/**
+ * Formats the time of a notification relative to now in the shortest form, such as "now", "5m" or
+ * "2h".
+ */
+class RelativeTimeFormat {
+    private final MeasureFormat mMeasureFormat;
+    private final RelativeDateTimeFormatter mRelativeFormatter;
+
+    RelativeTimeFormat(Context context) {
+        ULocale locale = ULocale.forLocale(
+                context.getResources().getConfiguration().getLocales().get(0));
+        mMeasureFormat = MeasureFormat.getInstance(locale, MeasureFormat.FormatWidth.NARROW);
+        mRelativeFormatter = RelativeDateTimeFormatter.getInstance(locale, /* nf= */ null,
+                RelativeDateTimeFormatter.Style.NARROW, DisplayContext.CAPITALIZATION_NONE);
+    }
+
+    /**
+     * Returns the given time relative to the current time.
+     */
+    String format(long timeMillis, long currentTimeMillis) {
+        long duration = Math.abs(currentTimeMillis - timeMillis);
+        if (duration < DateUtils.MINUTE_IN_MILLIS) {
+            return mRelativeFormatter.format(RelativeDateTimeFormatter.Direction.PLAIN,
+                    RelativeDateTimeFormatter.AbsoluteUnit.NOW);
+        }
+
+        Measure measure;
+        if (duration < DateUtils.HOUR_IN_MILLIS) {
+            measure = new Measure(duration / DateUtils.MINUTE_IN_MILLIS, MeasureUnit.MINUTE);
+        } else if (duration < DateUtils.DAY_IN_MILLIS) {
+            measure = new Measure(duration / DateUtils.HOUR_IN_MILLIS, MeasureUnit.HOUR);
+        } else if (duration < DateUtils.YEAR_IN_MILLIS) {
+            measure = new Measure(duration / DateUtils.DAY_IN_MILLIS, MeasureUnit.DAY);
+        } else {
+            measure = new Measure(duration / DateUtils.YEAR_IN_MILLIS, MeasureUnit.YEAR);
+        }
+        return mMeasureFormat.format(measure);
+    }
+}
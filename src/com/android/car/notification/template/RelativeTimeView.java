@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.notification.template;
+
+import android.content.Context;
+import android.text.TextUtils;
+import android.util.AttributeSet;
+import android.widget.TextView;
+
+import com.android.car.notification.RelativeTimeScheduler;
+
+/**
+ * Text view that shows the time of a notification relative to now in the shortest form, such as
+ * "now", "5m" or "2h".
+ *
+ * <p> Unlike {@link android.widget.DateTimeView} it does not schedule its own refreshes: while
+ * attached it is refreshed by the shared {@link RelativeTimeScheduler}, and its text is only
+ * replaced when the displayed value changes.
+ */
+public class RelativeTimeView extends TextView
+        implements RelativeTimeScheduler.OnMinuteTickListener {
+
+    private final RelativeTimeScheduler mScheduler = RelativeTimeScheduler.getInstance();
+    private RelativeTimeFormat mFormat;
+    private long mTimeMillis;
+
+    public RelativeTimeView(Context context) {
+        super(context);
+    }
+
+    public RelativeTimeView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    public RelativeTimeView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+    }
+
+    public RelativeTimeView(Context context, AttributeSet attrs, int defStyleAttr,
+            int defStyleRes) {
+        super(context, attrs, defStyleAttr, defStyleRes);
+    }
+
+    /**
+     * Sets the time to be shown, in milliseconds since the epoch.
+     */
+    public void setTime(long timeMillis) {
+        mTimeMillis = timeMillis;
+        update(System.currentTimeMillis());
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        mScheduler.addListener(this);
+        // ticks may have been missed while detached
+        update(System.currentTimeMillis());
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        mScheduler.removeListener(this);
+    }
+
+    @Override
+    public void onMinuteTick(long currentTimeMillis) {
+        update(currentTimeMillis);
+    }
+
+    private void update(long currentTimeMillis) {
+        if (mFormat == null) {
+            mFormat = new RelativeTimeFormat(getContext());
+        }
+        CharSequence text = mFormat.format(mTimeMillis, currentTimeMillis);
+        if (!TextUtils.equals(text, getText())) {
+            setText(text);
+        }
+    }
+}
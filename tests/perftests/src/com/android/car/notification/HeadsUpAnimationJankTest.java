@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package com.android.car.notification;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.app.Activity;
+import android.app.Instrumentation;
+import android.os.Bundle;
+import android.os.ParcelFileDescriptor;
+import android.os.SystemClock;
+import android.view.Choreographer;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import androidx.test.InstrumentationRegistry;
+import androidx.test.filters.LargeTest;
+import androidx.test.rule.ActivityTestRule;
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the jank of the heads-up enter and exit animations run on the main thread with the
+ * same animations run on the RenderThread, while the main thread is kept busy for longer than a
+ * frame on every frame, as it is when the notification center is updated.
+ *
+ * <p> The number of rendered and janky frames is read from {@code dumpsys gfxinfo} and reported
+ * as instrumentation status.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class HeadsUpAnimationJankTest {
+    private static final int ITERATIONS = 20;
+    // main thread work per frame, more than a 60Hz frame
+    private static final long MAIN_THREAD_LOAD_MS = 24;
+    private static final long TIMEOUT_MS = 5000;
+    private static final Pattern TOTAL_FRAMES = Pattern.compile("Total frames rendered: (\\d+)");
+    private static final Pattern JANKY_FRAMES = Pattern.compile("Janky frames: (\\d+)");
+
+    @Rule
+    public ActivityTestRule<Activity> mActivityRule = new ActivityTestRule<>(Activity.class);
+
+    private volatile boolean mLoadRunning;
+
+    @Test
+    public void enterAndExit_mainThread() throws Exception {
+        measureJank(/* useRenderThread= */ false, "main_thread");
+    }
+
+    @Test
+    public void enterAndExit_renderThread() throws Exception {
+        measureJank(/* useRenderThread= */ true, "render_thread");
+    }
+
+    private void measureJank(boolean useRenderThread, String name) throws Exception {
+        Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+        Activity activity = mActivityRule.getActivity();
+        long enterDuration =
+                activity.getResources().getInteger(R.integer.headsup_total_enter_duration_ms);
+        HeadsUpAnimator animator = new HeadsUpAnimator(activity, useRenderThread);
+        View[] view = new View[1];
+        instrumentation.runOnMainSync(() -> {
+            FrameLayout panel = new FrameLayout(activity);
+            activity.setContentView(panel);
+            view[0] = activity.getLayoutInflater().inflate(
+                    R.layout.basic_headsup_notification_template, panel,
+                    /* attachToRoot= */ false);
+            panel.addView(view[0]);
+        });
+        instrumentation.waitForIdleSync();
+
+        executeShellCommand("dumpsys gfxinfo " + activity.getPackageName() + " reset");
+        instrumentation.runOnMainSync(this::startMainThreadLoad);
+        for (int i = 0; i < ITERATIONS; i++) {
+            instrumentation.runOnMainSync(() -> animator.animateIn(view[0]));
+            SystemClock.sleep(enterDuration);
+            CountDownLatch exited = new CountDownLatch(1);
+            instrumentation.runOnMainSync(() -> animator.animateOut(view[0], exited::countDown));
+            assertThat(exited.await(TIMEOUT_MS, TimeUnit.MILLISECONDS)).isTrue();
+        }
+        mLoadRunning = false;
+        String gfxInfo = executeShellCommand("dumpsys gfxinfo " + activity.getPackageName());
+
+        Bundle status = new Bundle();
+        status.putLong(name + "_total_frames", find(TOTAL_FRAMES, gfxInfo));
+        status.putLong(name + "_janky_frames", find(JANKY_FRAMES, gfxInfo));
+        instrumentation.sendStatus(Activity.RESULT_OK, status);
+    }
+
+    /**
+     * Blocks the main thread on every frame until {@link #mLoadRunning} is cleared.
+     */
+    private void startMainThreadLoad() {
+        mLoadRunning = true;
+        Choreographer.getInstance().postFrameCallback(new Choreographer.FrameCallback() {
+            @Override
+            public void doFrame(long frameTimeNanos) {
+                if (!mLoadRunning) {
+                    return;
+                }
+                long end = SystemClock.uptimeMillis() + MAIN_THREAD_LOAD_MS;
+                while (SystemClock.uptimeMillis() < end) {
+                    // busy wait, as layout or binding work would
+                }
+                Choreographer.getInstance().postFrameCallback(this);
+            }
+        });
+    }
+
+    private static long find(Pattern pattern, String text) {
+        Matcher matcher = pattern.matcher(text);
+        return matcher.find() ? Long.parseLong(matcher.group(1)) : -1;
+    }
+
+    private static String executeShellCommand(String command) throws IOException {
+        ParcelFileDescriptor output = InstrumentationRegistry.getInstrumentation()
+                .getUiAutomation().executeShellCommand(command);
+        StringBuilder result = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ParcelFileDescriptor.AutoCloseInputStream(output)))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                result.append(line).append('\n');
+            }
+        }
+        return result.toString();
+    }
+}
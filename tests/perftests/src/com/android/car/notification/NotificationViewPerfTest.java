@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package com.android.car.notification;
+
+import android.content.Context;
+import android.perftests.utils.BenchmarkState;
+import android.perftests.utils.PerfStatusReporter;
+import android.view.ContextThemeWrapper;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.LinearLayout;
+import android.widget.RelativeLayout;
+import android.widget.TextView;
+
+import androidx.test.InstrumentationRegistry;
+import androidx.test.filters.LargeTest;
+import androidx.test.runner.AndroidJUnit4;
+
+import com.android.car.notification.template.NotificationTextBlockView;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Compares the measure and layout cost of the default notification header and body hierarchies
+ * with their flattened counterparts.
+ *
+ * <p> Each iteration rebinds the texts, as a recycled card does, and runs a full measure and
+ * layout pass over the block.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class NotificationViewPerfTest {
+    private static final int WIDTH = 1000;
+    private static final String[] HEADER_TEXTS = {"Messages • Work • ", "Calendar • "};
+    private static final String[] TIME_TEXTS = {"5m", "now"};
+    private static final String[] TITLE_TEXTS = {"Jane Doe", "Meeting in 10 minutes"};
+    private static final String[] CONTENT_TEXTS = {
+            "Are we still on for lunch tomorrow?", "Conference room B, bring the slides"};
+
+    @Rule
+    public PerfStatusReporter mPerfStatusReporter = new PerfStatusReporter();
+
+    private LayoutInflater mInflater;
+
+    @Before
+    public void setUp() {
+        Context context = new ContextThemeWrapper(InstrumentationRegistry.getTargetContext(),
+                android.R.style.Theme_DeviceDefault);
+        mInflater = LayoutInflater.from(context);
+    }
+
+    @Test
+    public void header_default() {
+        ViewGroup root = inflate(R.layout.car_notification_header_view,
+                new LinearLayout(mInflater.getContext()));
+        TextView headerText = root.findViewById(R.id.header_text);
+        TextView time = root.findViewById(R.id.time);
+        headerText.setVisibility(View.VISIBLE);
+        time.setVisibility(View.VISIBLE);
+
+        BenchmarkState state = mPerfStatusReporter.getBenchmarkState();
+        int i = 0;
+        while (state.keepRunning()) {
+            headerText.setText(HEADER_TEXTS[i % 2]);
+            time.setText(TIME_TEXTS[i % 2]);
+            measureAndLayout(root);
+            i++;
+        }
+    }
+
+    @Test
+    public void header_flattened() {
+        ViewGroup root = inflate(R.layout.car_notification_header_view_flat,
+                new LinearLayout(mInflater.getContext()));
+        NotificationTextBlockView textBlock = root.findViewById(R.id.header_text_block);
+
+        BenchmarkState state = mPerfStatusReporter.getBenchmarkState();
+        int i = 0;
+        while (state.keepRunning()) {
+            textBlock.setPrimaryText(HEADER_TEXTS[i % 2]);
+            textBlock.setSecondaryText(TIME_TEXTS[i % 2]);
+            measureAndLayout(root);
+            i++;
+        }
+    }
+
+    @Test
+    public void body_default() {
+        ViewGroup root = inflate(R.layout.car_notification_body_view,
+                new RelativeLayout(mInflater.getContext()));
+        TextView title = root.findViewById(R.id.notification_body_title);
+        TextView content = root.findViewById(R.id.notification_body_content);
+
+        BenchmarkState state = mPerfStatusReporter.getBenchmarkState();
+        int i = 0;
+        while (state.keepRunning()) {
+            title.setText(TITLE_TEXTS[i % 2]);
+            content.setText(CONTENT_TEXTS[i % 2]);
+            measureAndLayout(root);
+            i++;
+        }
+    }
+
+    @Test
+    public void body_flattened() {
+        ViewGroup root = inflate(R.layout.car_notification_body_view_flat,
+                new RelativeLayout(mInflater.getContext()));
+        NotificationTextBlockView textBlock = root.findViewById(R.id.notification_body_text);
+
+        BenchmarkState state = mPerfStatusReporter.getBenchmarkState();
+        int i = 0;
+        while (state.keepRunning()) {
+            textBlock.setPrimaryText(TITLE_TEXTS[i % 2]);
+            textBlock.setSecondaryText(CONTENT_TEXTS[i % 2]);
+            measureAndLayout(root);
+            i++;
+        }
+    }
+
+    private ViewGroup inflate(int layout, ViewGroup root) {
+        mInflater.inflate(layout, root, /* attachToRoot= */ true);
+        return root;
+    }
+
+    private static void measureAndLayout(ViewGroup root) {
+        forceLayout(root);
+        root.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+        root.layout(0, 0, root.getMeasuredWidth(), root.getMeasuredHeight());
+    }
+
+    private static void forceLayout(View view) {
+        view.forceLayout();
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                forceLayout(group.getChildAt(i));
+            }
+        }
+    }
+}
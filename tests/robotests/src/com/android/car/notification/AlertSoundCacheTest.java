@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package com.android.car.notification;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.media.SoundPool;
+import android.net.Uri;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+@RunWith(RobolectricTestRunner.class)
+public class AlertSoundCacheTest {
+    private static final int USER_ID = 10;
+    private static final int OTHER_USER_ID = 11;
+    private static final int SOUND_ID = 1;
+    private static final long DURATION_MS = 500;
+    private static final int STATUS_OK = 0;
+
+    @Mock
+    SoundPool mSoundPool;
+
+    private Context mContext;
+    private Uri mUri;
+    private Uri mOtherUri;
+    private AlertSoundCache mCache;
+
+    @Before
+    public void setup() throws IOException {
+        MockitoAnnotations.initMocks(this);
+        mContext = RuntimeEnvironment.application;
+        mUri = createSoundFile("sound_1");
+        mOtherUri = createSoundFile("sound_2");
+        when(mSoundPool.load(any(AssetFileDescriptor.class), anyInt())).thenReturn(SOUND_ID,
+                SOUND_ID + 1);
+        mCache = new AlertSoundCache(mSoundPool, /* maxSize= */ 1);
+    }
+
+    @Test
+    public void get_notCached_shouldReturnNull() {
+        assertThat(mCache.get(mUri, USER_ID)).isNull();
+    }
+
+    @Test
+    public void get_loading_shouldReturnNull() {
+        mCache.put(mContext, mUri, USER_ID, DURATION_MS);
+
+        assertThat(mCache.get(mUri, USER_ID)).isNull();
+    }
+
+    @Test
+    public void get_loaded_shouldReturnSound() {
+        mCache.put(mContext, mUri, USER_ID, DURATION_MS);
+        mCache.onLoadComplete(mSoundPool, SOUND_ID, STATUS_OK);
+
+        assertThat(mCache.get(mUri, USER_ID).getDurationMs()).isEqualTo(DURATION_MS);
+    }
+
+    @Test
+    public void get_loadedForOtherUser_shouldReturnNull() {
+        mCache.put(mContext, mUri, USER_ID, DURATION_MS);
+        mCache.onLoadComplete(mSoundPool, SOUND_ID, STATUS_OK);
+
+        assertThat(mCache.get(mUri, OTHER_USER_ID)).isNull();
+    }
+
+    @Test
+    public void get_loadFailed_shouldReturnNull() {
+        mCache.put(mContext, mUri, USER_ID, DURATION_MS);
+        mCache.onLoadComplete(mSoundPool, SOUND_ID, /* status= */ 1);
+
+        assertThat(mCache.get(mUri, USER_ID)).isNull();
+    }
+
+    @Test
+    public void put_longSound_shouldNotLoad() {
+        mCache.put(mContext, mUri, USER_ID, /* durationMs= */ 60000);
+
+        verify(mSoundPool, never()).load(any(AssetFileDescriptor.class), anyInt());
+    }
+
+    @Test
+    public void put_overMaxSize_shouldUnloadLeastRecentSound() {
+        mCache.put(mContext, mUri, USER_ID, DURATION_MS);
+        mCache.onLoadComplete(mSoundPool, SOUND_ID, STATUS_OK);
+
+        mCache.put(mContext, mOtherUri, USER_ID, DURATION_MS);
+
+        verify(mSoundPool).unload(SOUND_ID);
+        assertThat(mCache.get(mUri, USER_ID)).isNull();
+    }
+
+    private Uri createSoundFile(String name) throws IOException {
+        File file = new File(mContext.getCacheDir(), name);
+        try (FileOutputStream outputStream = new FileOutputStream(file)) {
+            outputStream.write(new byte[16]);
+        }
+        return Uri.fromFile(file);
+    }
+}
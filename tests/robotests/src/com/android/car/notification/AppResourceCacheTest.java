@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package com.android.car.notification;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.app.Notification;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.content.Intent;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.graphics.Bitmap;
+import android.graphics.drawable.Icon;
+import android.net.Uri;
+import android.os.UserHandle;
+import android.service.notification.StatusBarNotification;
+
+import com.android.car.notification.testutils.ShadowStatusBarNotification;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(shadows = {ShadowStatusBarNotification.class})
+public class AppResourceCacheTest {
+    private static final String PKG_1 = "package_1";
+    private static final String PKG_2 = "package_2";
+    private static final String OP_PKG = "OpPackage";
+    private static final String TAG = "Tag";
+    private static final String CHANNEL_ID = "channel_id";
+    private static final String LABEL_1 = "label_1";
+    private static final String LABEL_2 = "label_2";
+    private static final int ID = 1;
+    private static final int UID = 2;
+    private static final int INITIAL_PID = 3;
+    private static final int USER_ID = 10;
+    private static final int OTHER_USER_ID = 11;
+
+    @Mock
+    PackageManager mPackageManager;
+
+    private Context mContext;
+    private AppResourceCache mCache;
+
+    @Before
+    public void setup() throws PackageManager.NameNotFoundException {
+        MockitoAnnotations.initMocks(this);
+        mContext = new ContextWrapper(RuntimeEnvironment.application) {
+            @Override
+            public PackageManager getPackageManager() {
+                return mPackageManager;
+            }
+        };
+        ShadowStatusBarNotification.setContext(RuntimeEnvironment.application);
+        setLabel(PKG_1, LABEL_1);
+        setLabel(PKG_2, LABEL_2);
+        mCache = new AppResourceCache(mContext);
+    }
+
+    @Test
+    public void loadLabel_sameUser_shouldLoadOnce() throws PackageManager.NameNotFoundException {
+        mCache.loadLabel(PKG_1, USER_ID);
+
+        assertThat(mCache.loadLabel(PKG_1, USER_ID)).isEqualTo(LABEL_1);
+        verify(mPackageManager, times(1)).getApplicationInfoAsUser(eq(PKG_1), anyInt(),
+                eq(USER_ID));
+    }
+
+    @Test
+    public void loadLabel_otherUser_shouldLoadAgain() throws PackageManager.NameNotFoundException {
+        mCache.loadLabel(PKG_1, USER_ID);
+
+        mCache.loadLabel(PKG_1, OTHER_USER_ID);
+
+        verify(mPackageManager).getApplicationInfoAsUser(eq(PKG_1), anyInt(),
+                eq(OTHER_USER_ID));
+    }
+
+    @Test
+    public void loadLabel_packageNotFound_shouldReturnNull()
+            throws PackageManager.NameNotFoundException {
+        when(mPackageManager.getApplicationInfoAsUser(eq(PKG_1), anyInt(), anyInt()))
+                .thenThrow(new PackageManager.NameNotFoundException());
+
+        assertThat(mCache.loadLabel(PKG_1, USER_ID)).isNull();
+    }
+
+    @Test
+    public void getCachedIcon_resourceIconLoaded_shouldReturnIcon() {
+        StatusBarNotification statusBarNotification = createStatusBarNotification(PKG_1);
+        Icon icon = Icon.createWithResource(RuntimeEnvironment.application,
+                android.R.drawable.sym_def_app_icon);
+        mCache.loadIcon(statusBarNotification, icon);
+
+        assertThat(mCache.getCachedIcon(statusBarNotification, icon)).isNotNull();
+    }
+
+    @Test
+    public void getCachedIcon_resourceIconNotLoaded_shouldReturnNull() {
+        Icon icon = Icon.createWithResource(RuntimeEnvironment.application,
+                android.R.drawable.sym_def_app_icon);
+
+        assertThat(mCache.getCachedIcon(createStatusBarNotification(PKG_1), icon)).isNull();
+    }
+
+    @Test
+    public void getCachedIcon_bitmapIcon_shouldNotBeCached() {
+        StatusBarNotification statusBarNotification = createStatusBarNotification(PKG_1);
+        Icon icon = Icon.createWithBitmap(
+                Bitmap.createBitmap(/* width= */ 1, /* height= */ 1, Bitmap.Config.ARGB_8888));
+        mCache.loadIcon(statusBarNotification, icon);
+
+        assertThat(mCache.getCachedIcon(statusBarNotification, icon)).isNull();
+    }
+
+    @Test
+    public void getCachedIcon_dataIcon_shouldNotBeCached() {
+        StatusBarNotification statusBarNotification = createStatusBarNotification(PKG_1);
+        Icon icon = Icon.createWithData(new byte[16], /* offset= */ 0, /* length= */ 16);
+        mCache.loadIcon(statusBarNotification, icon);
+
+        assertThat(mCache.getCachedIcon(statusBarNotification, icon)).isNull();
+    }
+
+    @Test
+    public void invalidatePackage_shouldOnlyDropEntriesOfPackage()
+            throws PackageManager.NameNotFoundException {
+        StatusBarNotification statusBarNotification1 = createStatusBarNotification(PKG_1);
+        StatusBarNotification statusBarNotification2 = createStatusBarNotification(PKG_2);
+        Icon icon = Icon.createWithResource(RuntimeEnvironment.application,
+                android.R.drawable.sym_def_app_icon);
+        mCache.loadIcon(statusBarNotification1, icon);
+        mCache.loadIcon(statusBarNotification2, icon);
+        mCache.loadLabel(PKG_1, USER_ID);
+        mCache.loadLabel(PKG_2, USER_ID);
+
+        mCache.invalidatePackage(PKG_1);
+
+        assertThat(mCache.getCachedIcon(statusBarNotification1, icon)).isNull();
+        assertThat(mCache.getCachedIcon(statusBarNotification2, icon)).isNotNull();
+        mCache.loadLabel(PKG_1, USER_ID);
+        mCache.loadLabel(PKG_2, USER_ID);
+        verify(mPackageManager, times(2)).getApplicationInfoAsUser(eq(PKG_1), anyInt(),
+                eq(USER_ID));
+        verify(mPackageManager, times(1)).getApplicationInfoAsUser(eq(PKG_2), anyInt(),
+                eq(USER_ID));
+    }
+
+    @Test
+    public void packageReplacedBroadcast_shouldOnlyDropEntriesOfPackage()
+            throws PackageManager.NameNotFoundException {
+        mCache.loadLabel(PKG_1, USER_ID);
+        mCache.loadLabel(PKG_2, USER_ID);
+
+        RuntimeEnvironment.application.sendBroadcast(new Intent(Intent.ACTION_PACKAGE_REPLACED,
+                Uri.fromParts("package", PKG_1, /* fragment= */ null)));
+        ShadowLooper.idleMainLooper();
+        mCache.loadLabel(PKG_1, USER_ID);
+        mCache.loadLabel(PKG_2, USER_ID);
+
+        verify(mPackageManager, times(2)).getApplicationInfoAsUser(eq(PKG_1), anyInt(),
+                eq(USER_ID));
+        verify(mPackageManager, times(1)).getApplicationInfoAsUser(eq(PKG_2), anyInt(),
+                eq(USER_ID));
+    }
+
+    private void setLabel(String packageName, String label)
+            throws PackageManager.NameNotFoundException {
+        ApplicationInfo applicationInfo = new ApplicationInfo();
+        applicationInfo.packageName = packageName;
+        when(mPackageManager.getApplicationInfoAsUser(eq(packageName), anyInt(), anyInt()))
+                .thenReturn(applicationInfo);
+        when(mPackageManager.getApplicationLabel(applicationInfo)).thenReturn(label);
+    }
+
+    private StatusBarNotification createStatusBarNotification(String packageName) {
+        Notification notification = new Notification.Builder(RuntimeEnvironment.application,
+                CHANNEL_ID)
+                .setSmallIcon(android.R.drawable.sym_def_app_icon)
+                .build();
+        return new StatusBarNotification(packageName, OP_PKG, ID, TAG, UID, INITIAL_PID,
+                notification, UserHandle.of(USER_ID), /* overrideGroupKey= */ null,
+                /* postTime= */ 0);
+    }
+}
@@ -24,24 +24,35 @@ import static android.content.pm.ApplicationInfo.PRIVATE_FLAG_SIGNED_WITH_PLATFO
 import static com.google.common.truth.Truth.assertThat;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 import android.app.Notification;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
+import android.app.PendingIntent;
 import android.content.Context;
 import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageInfo;
+import android.graphics.Rect;
 import android.os.Bundle;
+import android.os.RemoteException;
+import android.os.SystemClock;
 import android.os.UserHandle;
 import android.service.notification.NotificationListenerService;
 import android.service.notification.StatusBarNotification;
+import android.view.MotionEvent;
 import android.view.View;
+import android.view.ViewTreeObserver;
+import android.widget.TextView;
 
+import com.android.car.notification.template.CarNotificationBaseViewHolder;
 import com.android.car.notification.testutils.ShadowApplicationPackageManager;
 import com.android.car.notification.testutils.ShadowCarAssistUtils;
+import com.android.internal.statusbar.IStatusBarService;
 
 import org.junit.After;
 import org.junit.Before;
@@ -52,6 +63,7 @@ import org.mockito.MockitoAnnotations;
 import org.mockito.Spy;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
+import org.robolectric.Shadows;
 import org.robolectric.annotation.Config;
 import org.robolectric.shadow.api.Shadow;
 import org.robolectric.shadows.ShadowLooper;
@@ -81,6 +93,12 @@ public class CarHeadsUpNotificationManagerTest {
     @Mock
     NotificationDataManager mNotificationDataManager;
 
+    @Mock
+    IStatusBarService mBarService;
+
+    @Mock
+    NotificationClickHandlerFactory.Callback mClickCallback;
+
     @Spy
     StatusBarNotification mStatusBarNotificationSpy;
 
@@ -260,6 +278,56 @@ public class CarHeadsUpNotificationManagerTest {
         assertThat(mManager.getActiveHeadsUpNotifications().size()).isEqualTo(2);
     }
 
+    @Test
+    public void maybeShowHeadsUp_maxConcurrentReached_shouldQueueLowerPriority() {
+        when(mRankingMapMock.getRanking(any(), any())).thenReturn(true);
+        when(mRankingMock.getImportance()).thenReturn(NotificationManager.IMPORTANCE_HIGH);
+        mManager.setMaxConcurrentHeadsUps(1);
+
+        setPackageInfo(PKG_1);
+        setPackageInfo(PKG_2);
+        mManager.maybeShowHeadsUp(mNotification1, mRankingMapMock, mActiveNotifications);
+        mManager.maybeShowHeadsUp(mNotification2, mRankingMapMock, mActiveNotifications);
+
+        assertThat(mManager.getActiveHeadsUpNotifications().size()).isEqualTo(1);
+        assertThat(mManager.getActiveHeadsUpNotifications()).containsKey(mNotification1.getKey());
+    }
+
+    @Test
+    public void maybeShowHeadsUp_higherPriority_shouldPreemptShownHeadsUp() {
+        when(mRankingMapMock.getRanking(any(), any())).thenReturn(true);
+        when(mRankingMock.getImportance()).thenReturn(NotificationManager.IMPORTANCE_HIGH);
+        mManager.setMaxConcurrentHeadsUps(1);
+
+        setPackageInfo(PKG_1);
+        setPackageInfo(PKG_2);
+        mManager.maybeShowHeadsUp(mNotification2, mRankingMapMock, mActiveNotifications);
+        mManager.maybeShowHeadsUp(mNotification1, mRankingMapMock, mActiveNotifications);
+
+        Map<String, HeadsUpEntry> activeHeadsUps = mManager.getActiveHeadsUpNotifications();
+        assertThat(getNotificationView(activeHeadsUps.get(mNotification1.getKey()))).isNotNull();
+        assertThat(activeHeadsUps.get(mNotification2.getKey()).isExiting).isTrue();
+    }
+
+    @Test
+    public void maybeShowHeadsUp_shouldKeepPriorityOnEntry() {
+        when(mRankingMapMock.getRanking(any(), any())).thenReturn(true);
+        when(mRankingMock.getImportance()).thenReturn(NotificationManager.IMPORTANCE_HIGH);
+
+        setPackageInfo(PKG_1);
+        setPackageInfo(PKG_2);
+        mManager.maybeShowHeadsUp(mNotification1, mRankingMapMock, mActiveNotifications);
+        mManager.maybeShowHeadsUp(mNotification2, mRankingMapMock, mActiveNotifications);
+
+        Map<String, HeadsUpEntry> activeHeadsUps = mManager.getActiveHeadsUpNotifications();
+        assertThat(activeHeadsUps.get(mNotification1.getKey()).getPriority())
+                .isEqualTo(HeadsUpQueue.PRIORITY_CALL);
+        assertThat(activeHeadsUps.get(mNotification2.getKey()).getPriority())
+                .isEqualTo(HeadsUpQueue.PRIORITY_NAVIGATION);
+        assertThat(activeHeadsUps.get(mNotification1.getKey()).getRankingMap())
+                .isSameAs(mRankingMapMock);
+    }
+
     @Test
     public void getActiveHeadsUpNotifications_sameNotifications_shouldReturnOne() {
         when(mRankingMapMock.getRanking(any(), any())).thenReturn(true);
@@ -323,6 +391,44 @@ public class CarHeadsUpNotificationManagerTest {
         assertThat(mManager.getActiveHeadsUpNotifications().size()).isEqualTo(1);
     }
 
+    @Test
+    public void maybeShowHeadsUp_onlyAlertOnceUpdateWithSameContent_shouldNotRebind() {
+        when(mRankingMapMock.getRanking(any(), any())).thenReturn(true);
+        when(mRankingMock.getImportance()).thenReturn(NotificationManager.IMPORTANCE_HIGH);
+        setPackageInfo(PKG_1);
+        StatusBarNotification notification = createOnlyAlertOnceCall(CONTENT_TITLE, POST_TIME);
+        mManager.maybeShowHeadsUp(notification, mRankingMapMock, mActiveNotifications);
+        HeadsUpEntry headsUpEntry =
+                mManager.getActiveHeadsUpNotifications().get(notification.getKey());
+        CarNotificationBaseViewHolder viewHolder = headsUpEntry.getViewHolder();
+
+        mManager.maybeShowHeadsUp(createOnlyAlertOnceCall(CONTENT_TITLE, POST_TIME),
+                mRankingMapMock, mActiveNotifications);
+
+        assertThat(headsUpEntry.getViewHolder()).isSameAs(viewHolder);
+        assertThat(viewHolder.getStatusBarNotification()).isSameAs(notification);
+    }
+
+    @Test
+    public void maybeShowHeadsUp_onlyAlertOnceUpdateWithNewContent_shouldRebindSameView() {
+        when(mRankingMapMock.getRanking(any(), any())).thenReturn(true);
+        when(mRankingMock.getImportance()).thenReturn(NotificationManager.IMPORTANCE_HIGH);
+        setPackageInfo(PKG_1);
+        StatusBarNotification notification = createOnlyAlertOnceCall(CONTENT_TITLE, POST_TIME);
+        mManager.maybeShowHeadsUp(notification, mRankingMapMock, mActiveNotifications);
+        HeadsUpEntry headsUpEntry =
+                mManager.getActiveHeadsUpNotifications().get(notification.getKey());
+        CarNotificationBaseViewHolder viewHolder = headsUpEntry.getViewHolder();
+        StatusBarNotification update =
+                createOnlyAlertOnceCall("NEW_CONTENT_TITLE", POST_TIME + 1);
+
+        mManager.maybeShowHeadsUp(update, mRankingMapMock, mActiveNotifications);
+
+        assertThat(headsUpEntry.getViewHolder()).isSameAs(viewHolder);
+        TextView titleView = viewHolder.itemView.findViewById(R.id.notification_body_title);
+        assertThat(titleView.getText().toString()).isEqualTo("NEW_CONTENT_TITLE");
+    }
+
     @Test
     public void maybeShowHeadsUp_categoryNavigation_returnsNotNull() {
         initializeWithFactory();
@@ -454,6 +560,90 @@ public class CarHeadsUpNotificationManagerTest {
         assertThat(notificationView).isNull();
     }
 
+    @Test
+    public void setInternalInsetsInfo_cardsTranslatedOrRemoved_shouldFollowShownCards() {
+        when(mRankingMapMock.getRanking(any(), any())).thenReturn(true);
+        when(mRankingMock.getImportance()).thenReturn(NotificationManager.IMPORTANCE_HIGH);
+        StatusBarNotification otherCall = new StatusBarNotification(PKG_2, OP_PKG, ID, TAG, UID,
+                INITIAL_PID, mNotification1.getNotification(), USER_HANDLE, OVERRIDE_GROUP_KEY,
+                POST_TIME);
+
+        setPackageInfo(PKG_1);
+        setPackageInfo(PKG_2);
+        mManager.maybeShowHeadsUp(mNotification1, mRankingMapMock, mActiveNotifications);
+        mManager.maybeShowHeadsUp(otherCall, mRankingMapMock, mActiveNotifications);
+        HeadsUpEntry entry1 = mManager.getActiveHeadsUpNotifications().get(mNotification1.getKey());
+        HeadsUpEntry entry2 = mManager.getActiveHeadsUpNotifications().get(otherCall.getKey());
+        View card1 = entry1.getCardView();
+        View card2 = entry2.getCardView();
+        layoutPanel(/* left= */ 0);
+
+        Rect cardBounds = getHorizontalBoundsOnScreen(card2);
+        assertThat(getTouchableBounds().left).isEqualTo(cardBounds.left);
+        assertThat(getTouchableBounds().right).isEqualTo(cardBounds.right);
+
+        // a swiped card only moves horizontally, without being laid out again
+        card1.setTranslationX(100);
+        assertThat(getTouchableBounds().right).isEqualTo(cardBounds.right + 100);
+        card1.setTranslationX(0);
+        assertThat(getTouchableBounds().right).isEqualTo(cardBounds.right);
+
+        mManager.removeNotificationFromPanel(entry1);
+        layoutPanel(/* left= */ 0);
+        assertThat(getTouchableBounds().right).isEqualTo(cardBounds.right);
+
+        // the panel moves while the card keeps its bounds relative to its parent
+        layoutPanel(/* left= */ 50);
+        assertThat(getTouchableBounds().left).isEqualTo(getHorizontalBoundsOnScreen(card2).left);
+        assertThat(getTouchableBounds().left).isEqualTo(cardBounds.left + 50);
+    }
+
+    @Test
+    public void summaryHeadsUp_clicked_shouldOpenNotificationCenterWithoutBarService()
+            throws RemoteException {
+        HeadsUpEntry summary = showSummaryHeadsUp();
+        PendingIntent contentIntent =
+                summary.getStatusBarNotification().getNotification().contentIntent;
+
+        summary.getCardView().performClick();
+
+        assertThat(Shadows.shadowOf(contentIntent).getSavedIntent().getComponent().getClassName())
+                .isEqualTo(CarNotificationCenterActivity.class.getName());
+        verify(mClickCallback).onNotificationClicked(anyInt());
+        verifyZeroInteractions(mBarService);
+    }
+
+    @Test
+    public void summaryHeadsUp_updated_shouldHaveLaterPostTime() {
+        HeadsUpEntry summary = showSummaryHeadsUp();
+        long postTime = summary.getViewHolder().getStatusBarNotification().getPostTime();
+        StatusBarNotification message = new StatusBarNotification(PKG_1, OP_PKG, ID + 100, TAG,
+                UID, INITIAL_PID, mNotification_messageHeadsUp.getNotification(), USER_HANDLE,
+                OVERRIDE_GROUP_KEY, POST_TIME);
+        ShadowCarAssistUtils.addMessageNotification(message.getKey());
+
+        mManager.maybeShowHeadsUp(message, mRankingMapMock, mActiveNotifications);
+
+        assertThat(summary.getViewHolder().getStatusBarNotification().getPostTime())
+                .isGreaterThan(postTime);
+    }
+
+    @Test
+    public void summaryHeadsUp_swipedAway_shouldNotReachBarService() {
+        HeadsUpEntry summary = showSummaryHeadsUp();
+        String key = summary.getStatusBarNotification().getKey();
+        layoutPanel(/* left= */ 0);
+        View card = summary.getCardView();
+
+        long downTime = SystemClock.uptimeMillis();
+        dispatchTouchEvent(card, downTime, MotionEvent.ACTION_DOWN, /* x= */ 10);
+        dispatchTouchEvent(card, downTime, MotionEvent.ACTION_MOVE, card.getWidth() - 10);
+        dispatchTouchEvent(card, downTime, MotionEvent.ACTION_UP, card.getWidth() - 10);
+
+        assertThat(mManager.getActiveHeadsUpNotifications().containsKey(key)).isFalse();
+        verifyZeroInteractions(mBarService);
+    }
+
     private void initializeWithFactory() {
         mManager = new CarHeadsUpNotificationManager(mContext, mClickHandlerFactory,
                 mNotificationDataManager) {
@@ -464,6 +654,76 @@ public class CarHeadsUpNotificationManagerTest {
         };
     }
 
+    private StatusBarNotification createOnlyAlertOnceCall(String title, long postTime) {
+        Notification notification = new Notification.Builder(mContext, CHANNEL_ID)
+                .setContentTitle(title)
+                .setCategory(Notification.CATEGORY_CALL)
+                .setOnlyAlertOnce(true)
+                .setSmallIcon(android.R.drawable.sym_def_app_icon)
+                .build();
+        return new StatusBarNotification(PKG_1, OP_PKG, ID, TAG, UID, INITIAL_PID, notification,
+                USER_HANDLE, OVERRIDE_GROUP_KEY, postTime);
+    }
+
+    /**
+     * Posts messages of one package until it exceeds its heads-up budget and returns the summary
+     * heads-up notification that stands in for the further ones.
+     */
+    private HeadsUpEntry showSummaryHeadsUp() {
+        mManager = new CarHeadsUpNotificationManager(mContext,
+                new NotificationClickHandlerFactory(mBarService, mClickCallback),
+                mNotificationDataManager) {
+            @Override
+            protected NotificationListenerService.Ranking getRanking() {
+                return mRankingMock;
+            }
+        };
+        when(mRankingMapMock.getRanking(any(), any())).thenReturn(true);
+        when(mRankingMock.getImportance()).thenReturn(NotificationManager.IMPORTANCE_HIGH);
+        setPackageInfo(PKG_1);
+        int budget = mContext.getResources().getInteger(R.integer.config_headsUpBudgetPerPackage);
+        for (int id = ID; id <= ID + budget; id++) {
+            StatusBarNotification message = new StatusBarNotification(PKG_1, OP_PKG, id, TAG,
+                    UID, INITIAL_PID, mNotification_messageHeadsUp.getNotification(), USER_HANDLE,
+                    OVERRIDE_GROUP_KEY, POST_TIME);
+            ShadowCarAssistUtils.addMessageNotification(message.getKey());
+            mManager.maybeShowHeadsUp(message, mRankingMapMock, mActiveNotifications);
+        }
+        for (HeadsUpEntry entry : mManager.getActiveHeadsUpNotifications().values()) {
+            if (!PKG_1.equals(entry.getStatusBarNotification().getPackageName())) {
+                return entry;
+            }
+        }
+        throw new AssertionError("No summary heads-up notification shown");
+    }
+
+    private static void dispatchTouchEvent(View view, long downTime, int action, float x) {
+        MotionEvent event = MotionEvent.obtain(downTime, SystemClock.uptimeMillis(), action, x,
+                /* y= */ 10, /* metaState= */ 0);
+        view.dispatchTouchEvent(event);
+        event.recycle();
+    }
+
+    private void layoutPanel(int left) {
+        View panel = mManager.mHeadsUpPanel;
+        panel.measure(View.MeasureSpec.makeMeasureSpec(800, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(600, View.MeasureSpec.EXACTLY));
+        panel.layout(left, /* top= */ 0, left + 800, /* bottom= */ 600);
+    }
+
+    private Rect getTouchableBounds() {
+        ViewTreeObserver.InternalInsetsInfo info = new ViewTreeObserver.InternalInsetsInfo();
+        mManager.setInternalInsetsInfo(info, /* panelExpanded= */ false);
+        return info.touchableRegion.getBounds();
+    }
+
+    private static Rect getHorizontalBoundsOnScreen(View view) {
+        int[] location = new int[2];
+        view.getLocationOnScreen(location);
+        return new Rect(location[0], /* top= */ 0, location[0] + view.getWidth(),
+                /* bottom= */ 0);
+    }
+
     private View getNotificationView(HeadsUpEntry currentNotification) {
         return currentNotification == null ? null : currentNotification.getNotificationView();
     }
@@ -31,6 +31,7 @@ import android.os.UserHandle;
 import android.service.notification.StatusBarNotification;
 import android.view.View;
 
+import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.android.car.notification.template.BasicNotificationViewHolder;
@@ -51,9 +52,11 @@ import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
 import org.robolectric.shadow.api.Shadow;
+import org.robolectric.shadows.ShadowLooper;
 import org.robolectric.shadows.ShadowPackageManager;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 @RunWith(RobolectricTestRunner.class)
@@ -523,7 +526,7 @@ public class CarNotificationViewAdapterTest {
     }
 
     @Test
-    public void getItemViewType_shouldReturnGroupExpanded() {
+    public void getItemViewType_expandedGroup_shouldReturnSameTypeAsCollapsed() {
         initializeWithFactory(false);
         NotificationGroup notificationGroup = new NotificationGroup();
         notificationGroup.setGroupSummaryNotification(mNotification1);
@@ -536,7 +539,7 @@ public class CarNotificationViewAdapterTest {
 
         int itemViewType = mCarNotificationViewAdapter.getItemViewType(2);
 
-        assertThat(itemViewType).isEqualTo(NotificationViewType.GROUP_EXPANDED);
+        assertThat(itemViewType).isEqualTo(NotificationViewType.GROUP_COLLAPSED);
     }
 
     @Test
@@ -707,6 +710,137 @@ public class CarNotificationViewAdapterTest {
                 () -> mCarNotificationViewAdapter.getViewPool());
     }
 
+    @Test
+    public void setChildNotifications_rootAdapter_shouldThrowError() {
+        initializeWithFactory(false);
+
+        assertThrows(IllegalStateException.class,
+                () -> mCarNotificationViewAdapter.setChildNotifications(
+                        createGroupWithTwoChildren(), /* isExpanded= */ false));
+    }
+
+    @Test
+    public void setChildNotifications_collapsed_shouldOnlyShowSummary() {
+        initializeWithFactory(true);
+
+        mCarNotificationViewAdapter.setChildNotifications(
+                createGroupWithTwoChildren(), /* isExpanded= */ false);
+
+        assertThat(mCarNotificationViewAdapter.getItemCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void setChildNotifications_expanded_shouldShowAllChildren() {
+        initializeWithFactory(true);
+        NotificationGroup notificationGroup = createGroupWithTwoChildren();
+        mCarNotificationViewAdapter.setChildNotifications(
+                notificationGroup, /* isExpanded= */ false);
+
+        mCarNotificationViewAdapter.setChildNotifications(
+                notificationGroup, /* isExpanded= */ true);
+
+        assertThat(mCarNotificationViewAdapter.getItemCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void setChildNotifications_moreChildrenThanShown_shouldKeepRecyclerViewConsistent() {
+        initializeWithFactory(true);
+        int maxChildrenShown = mContext.getResources().getInteger(
+                R.integer.max_group_children_number);
+        RecyclerView recyclerView = new RecyclerView(mContext);
+        recyclerView.setLayoutManager(new LinearLayoutManager(mContext));
+        recyclerView.setItemAnimator(null);
+        recyclerView.setAdapter(mCarNotificationViewAdapter);
+        NotificationGroup notificationGroup = createGroupWithChildren(maxChildrenShown + 2);
+        mCarNotificationViewAdapter.setChildNotifications(
+                notificationGroup, /* isExpanded= */ false);
+        layout(recyclerView);
+
+        mCarNotificationViewAdapter.setChildNotifications(
+                notificationGroup, /* isExpanded= */ true);
+        layout(recyclerView);
+        mCarNotificationViewAdapter.setChildNotifications(
+                createGroupWithChildren(maxChildrenShown + 4), /* isExpanded= */ true);
+        layout(recyclerView);
+        mCarNotificationViewAdapter.setChildNotifications(
+                notificationGroup, /* isExpanded= */ false);
+        layout(recyclerView);
+
+        assertThat(recyclerView.getChildCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void setExpanded_shownGroup_shouldUpdateChildrenOfSameViewHolder() {
+        initializeWithFactory(false);
+        NotificationGroup notificationGroup = createGroupWithTwoChildren();
+        RecyclerView recyclerView = createRecyclerView();
+        GroupNotificationViewHolder viewHolder = showGroup(recyclerView, notificationGroup);
+        ChildAdapterObserver childObserver = observeChildAdapter(viewHolder);
+
+        mCarNotificationViewAdapter.setExpanded(notificationGroup.getGroupKey(), true);
+        layout(recyclerView);
+
+        assertThat(recyclerView.findViewHolderForAdapterPosition(0)).isSameAs(viewHolder);
+        assertThat(childObserver.mInsertedCount).isEqualTo(2);
+        assertThat(childObserver.mRemovedCount).isEqualTo(1);
+        assertThat(childObserver.mDataSetChangedCount).isEqualTo(0);
+    }
+
+    @Test
+    public void expansionClick_shouldAnimateChildrenInsteadOfDataSetChange() {
+        initializeWithFactory(false);
+        NotificationGroup notificationGroup = createGroupWithTwoChildren();
+        RecyclerView recyclerView = createRecyclerView();
+        GroupNotificationViewHolder viewHolder = showGroup(recyclerView, notificationGroup);
+        ChildAdapterObserver childObserver = observeChildAdapter(viewHolder);
+
+        viewHolder.itemView.findViewById(R.id.group_header).performClick();
+        layout(recyclerView);
+        viewHolder.itemView.findViewById(R.id.expansion_footer).performClick();
+        layout(recyclerView);
+
+        assertThat(mCarNotificationViewAdapter.isExpanded(notificationGroup.getGroupKey()))
+                .isFalse();
+        // summary replaced by the two children, then the two children by the summary
+        assertThat(childObserver.mInsertedCount).isEqualTo(3);
+        assertThat(childObserver.mRemovedCount).isEqualTo(3);
+        assertThat(childObserver.mDataSetChangedCount).isEqualTo(0);
+    }
+
+    @Test
+    public void setExpandedGroupKeys_shouldRestoreExpansionState() {
+        initializeWithFactory(false);
+        NotificationGroup notificationGroup = createGroupWithTwoChildren();
+        mNotificationGroupList1.add(notificationGroup);
+        mCarNotificationViewAdapter.setNotifications(
+                mNotificationGroupList1, /* setRecyclerViewListHeaderAndFooter= */ false);
+
+        mCarNotificationViewAdapter.setExpandedGroupKeys(
+                Collections.singletonList(notificationGroup.getGroupKey()));
+
+        assertThat(mCarNotificationViewAdapter.isExpanded(notificationGroup.getGroupKey()))
+                .isTrue();
+        assertThat(mCarNotificationViewAdapter.getExpandedGroupKeys())
+                .containsExactly(notificationGroup.getGroupKey());
+    }
+
+    @Test
+    public void setNotifications_groupRemoved_shouldDropExpansionState() {
+        initializeWithFactory(false);
+        NotificationGroup notificationGroup = createGroupWithTwoChildren();
+        List<NotificationGroup> notifications = new ArrayList<>();
+        notifications.add(notificationGroup);
+        mCarNotificationViewAdapter.setNotifications(
+                notifications, /* setRecyclerViewListHeaderAndFooter= */ false);
+        mCarNotificationViewAdapter.setExpanded(notificationGroup.getGroupKey(), true);
+
+        mCarNotificationViewAdapter.setNotifications(
+                new ArrayList<>(), /* setRecyclerViewListHeaderAndFooter= */ false);
+
+        assertThat(mCarNotificationViewAdapter.isExpanded(notificationGroup.getGroupKey()))
+                .isFalse();
+    }
+
     @Test
     public void clearAllNotifications_verifyHandlerFactoryIsCalled() {
         initializeWithFactory(true);
@@ -761,8 +895,92 @@ public class CarNotificationViewAdapterTest {
     }
 
 
+    private NotificationGroup createGroupWithTwoChildren() {
+        NotificationGroup notificationGroup = new NotificationGroup();
+        notificationGroup.setGroupSummaryNotification(createNotificationWithId(ID + 1));
+        notificationGroup.addNotification(mNotification1);
+        notificationGroup.addNotification(createNotificationWithId(ID + 2));
+        return notificationGroup;
+    }
+
+    private NotificationGroup createGroupWithChildren(int childCount) {
+        NotificationGroup notificationGroup = new NotificationGroup();
+        notificationGroup.setGroupSummaryNotification(createNotificationWithId(ID));
+        for (int i = 1; i <= childCount; i++) {
+            notificationGroup.addNotification(createNotificationWithId(ID + i));
+        }
+        return notificationGroup;
+    }
+
+    private RecyclerView createRecyclerView() {
+        RecyclerView recyclerView = new RecyclerView(mContext);
+        recyclerView.setLayoutManager(new LinearLayoutManager(mContext));
+        recyclerView.setItemAnimator(null);
+        recyclerView.setAdapter(mCarNotificationViewAdapter);
+        return recyclerView;
+    }
+
+    /**
+     * Shows the group as the only notification of the root adapter and returns its view holder.
+     */
+    private GroupNotificationViewHolder showGroup(RecyclerView recyclerView,
+            NotificationGroup notificationGroup) {
+        mCarNotificationViewAdapter.setNotifications(
+                Collections.singletonList(notificationGroup),
+                /* setRecyclerViewListHeaderAndFooter= */ false);
+        // the data set change is posted with a delay
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        layout(recyclerView);
+        return (GroupNotificationViewHolder) recyclerView.findViewHolderForAdapterPosition(0);
+    }
+
+    private static ChildAdapterObserver observeChildAdapter(
+            GroupNotificationViewHolder viewHolder) {
+        RecyclerView childList = viewHolder.itemView.findViewById(R.id.notification_list);
+        ChildAdapterObserver observer = new ChildAdapterObserver();
+        childList.getAdapter().registerAdapterDataObserver(observer);
+        return observer;
+    }
+
+    private static void layout(RecyclerView recyclerView) {
+        recyclerView.measure(
+                View.MeasureSpec.makeMeasureSpec(/* size= */ 1000, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(/* size= */ 10000, View.MeasureSpec.EXACTLY));
+        recyclerView.layout(/* l= */ 0, /* t= */ 0, /* r= */ 1000, /* b= */ 10000);
+    }
+
+    private StatusBarNotification createNotificationWithId(int id) {
+        return new StatusBarNotification(PKG_1, OP_PKG,
+                id, TAG, UID, INITIAL_PID, mNotificationBuilder1.build(), USER_HANDLE,
+                OVERRIDE_GROUP_KEY, POST_TIME);
+    }
+
     private void initializeWithFactory(boolean isGroup) {
         mCarNotificationViewAdapter = new CarNotificationViewAdapter(mContext, isGroup);
         mCarNotificationViewAdapter.setClickHandlerFactory(mClickHandlerFactoryMock);
     }
-}
\ No newline at end of file
+
+    /**
+     * Counts the changes dispatched by the child adapter of a group notification.
+     */
+    private static class ChildAdapterObserver extends RecyclerView.AdapterDataObserver {
+        private int mDataSetChangedCount;
+        private int mInsertedCount;
+        private int mRemovedCount;
+
+        @Override
+        public void onChanged() {
+            mDataSetChangedCount++;
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            mInsertedCount += itemCount;
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            mRemovedCount += itemCount;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package com.android.car.notification;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class HeadsUpBudgetTest {
+    private static final String PKG_1 = "package_1";
+    private static final String PKG_2 = "package_2";
+    private static final String PKG_3 = "package_3";
+    private static final long WINDOW = 1000;
+
+    private final HeadsUpBudget mBudget =
+            new HeadsUpBudget(/* packageBudget= */ 2, /* globalBudget= */ 3, WINDOW);
+
+    @Test
+    public void tryAcquire_withinPackageBudget_shouldBeWithinBudget() {
+        assertThat(mBudget.tryAcquire(PKG_1, 0)).isEqualTo(HeadsUpBudget.WITHIN_BUDGET);
+        assertThat(mBudget.tryAcquire(PKG_1, 10)).isEqualTo(HeadsUpBudget.WITHIN_BUDGET);
+    }
+
+    @Test
+    public void tryAcquire_overPackageBudget_shouldBeOverPackageBudget() {
+        mBudget.tryAcquire(PKG_1, 0);
+        mBudget.tryAcquire(PKG_1, 10);
+
+        assertThat(mBudget.tryAcquire(PKG_1, 20)).isEqualTo(HeadsUpBudget.OVER_PACKAGE_BUDGET);
+        assertThat(mBudget.tryAcquire(PKG_2, 20)).isEqualTo(HeadsUpBudget.WITHIN_BUDGET);
+    }
+
+    @Test
+    public void tryAcquire_afterWindow_shouldBeWithinBudget() {
+        mBudget.tryAcquire(PKG_1, 0);
+        mBudget.tryAcquire(PKG_1, 10);
+
+        assertThat(mBudget.tryAcquire(PKG_1, WINDOW)).isEqualTo(HeadsUpBudget.WITHIN_BUDGET);
+        assertThat(mBudget.tryAcquire(PKG_1, WINDOW + 9))
+                .isEqualTo(HeadsUpBudget.OVER_PACKAGE_BUDGET);
+    }
+
+    @Test
+    public void tryAcquire_overGlobalBudget_shouldBeOverGlobalBudget() {
+        mBudget.tryAcquire(PKG_1, 0);
+        mBudget.tryAcquire(PKG_2, 10);
+        mBudget.tryAcquire(PKG_2, 20);
+
+        assertThat(mBudget.tryAcquire(PKG_3, 30)).isEqualTo(HeadsUpBudget.OVER_GLOBAL_BUDGET);
+    }
+
+    @Test
+    public void tryAcquire_overGlobalBudget_shouldNotUsePackageBudget() {
+        mBudget.tryAcquire(PKG_1, 0);
+        mBudget.tryAcquire(PKG_2, 10);
+        mBudget.tryAcquire(PKG_2, 20);
+        mBudget.tryAcquire(PKG_3, 30);
+
+        assertThat(mBudget.tryAcquire(PKG_3, WINDOW + 10))
+                .isEqualTo(HeadsUpBudget.WITHIN_BUDGET);
+        assertThat(mBudget.tryAcquire(PKG_3, WINDOW + 20))
+                .isEqualTo(HeadsUpBudget.WITHIN_BUDGET);
+    }
+
+    @Test
+    public void tryAcquire_noLimit_shouldAlwaysBeWithinBudget() {
+        HeadsUpBudget budget = new HeadsUpBudget(/* packageBudget= */ 0, /* globalBudget= */ 0,
+                WINDOW);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(budget.tryAcquire(PKG_1, i)).isEqualTo(HeadsUpBudget.WITHIN_BUDGET);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package com.android.car.notification;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.KeyguardManager;
+import android.app.Notification;
+import android.car.userlib.CarUserManagerHelper;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageInfo;
+import android.os.UserHandle;
+import android.service.notification.StatusBarNotification;
+
+import com.android.car.notification.testutils.ShadowApplicationPackageManager;
+import com.android.car.notification.testutils.ShadowCarAssistUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(shadows = {ShadowCarAssistUtils.class, ShadowApplicationPackageManager.class})
+public class HeadsUpEligibilityCacheTest {
+    private static final String PKG = "package_1";
+    private static final String OP_PKG = "OpPackage";
+    private static final String TAG = "Tag";
+    private static final String CHANNEL_ID = "channel_id";
+    private static final int ID = 1;
+    private static final int UID = 2;
+    private static final int INITIAL_PID = 3;
+    private static final UserHandle USER_HANDLE = new UserHandle(12);
+
+    private Context mContext;
+    private HeadsUpEligibilityCache mCache;
+
+    @Before
+    public void setup() {
+        mContext = RuntimeEnvironment.application;
+        mCache = new HeadsUpEligibilityCache(mContext, new CarUserManagerHelper(mContext));
+    }
+
+    @After
+    public void resetShadow() {
+        ShadowCarAssistUtils.reset();
+        ShadowApplicationPackageManager.reset();
+    }
+
+    @Test
+    public void isKeyguardLocked_beforeBroadcast_shouldReturnCachedState() {
+        shadowOf(mContext.getSystemService(KeyguardManager.class)).setKeyguardLocked(true);
+
+        assertThat(mCache.isKeyguardLocked()).isFalse();
+    }
+
+    @Test
+    public void isKeyguardLocked_afterScreenOff_shouldReturnNewState() {
+        shadowOf(mContext.getSystemService(KeyguardManager.class)).setKeyguardLocked(true);
+
+        mContext.sendBroadcast(new Intent(Intent.ACTION_SCREEN_OFF));
+        ShadowLooper.idleMainLooper();
+
+        assertThat(mCache.isKeyguardLocked()).isTrue();
+    }
+
+    @Test
+    public void isKeyguardLocked_lockedAfterScreenOff_shouldReturnNewState() {
+        mContext.sendBroadcast(new Intent(Intent.ACTION_SCREEN_OFF));
+        ShadowLooper.idleMainLooper();
+        assertThat(mCache.isKeyguardLocked()).isFalse();
+
+        shadowOf(mContext.getSystemService(KeyguardManager.class)).setKeyguardLocked(true);
+
+        assertThat(mCache.isKeyguardLocked()).isTrue();
+    }
+
+    @Test
+    public void isKeyguardLocked_afterScreenOn_shouldReturnCachedState() {
+        mContext.sendBroadcast(new Intent(Intent.ACTION_SCREEN_OFF));
+        mContext.sendBroadcast(new Intent(Intent.ACTION_SCREEN_ON));
+        ShadowLooper.idleMainLooper();
+
+        shadowOf(mContext.getSystemService(KeyguardManager.class)).setKeyguardLocked(true);
+
+        assertThat(mCache.isKeyguardLocked()).isFalse();
+    }
+
+    @Test
+    public void isSystemPrivilegedOrPlatformKey_packageInfoChanged_shouldReturnCachedResult() {
+        setPackageInfo(ApplicationInfo.PRIVATE_FLAG_SIGNED_WITH_PLATFORM_KEY);
+        StatusBarNotification statusBarNotification = createStatusBarNotification(/* postTime= */
+                1000);
+        mCache.isSystemPrivilegedOrPlatformKey(statusBarNotification);
+
+        setPackageInfo(/* privateFlags= */ 0);
+
+        assertThat(mCache.isSystemPrivilegedOrPlatformKey(statusBarNotification)).isTrue();
+    }
+
+    @Test
+    public void isSystemPrivilegedOrPlatformKey_packageInvalidated_shouldCheckAgain() {
+        setPackageInfo(ApplicationInfo.PRIVATE_FLAG_SIGNED_WITH_PLATFORM_KEY);
+        StatusBarNotification statusBarNotification = createStatusBarNotification(/* postTime= */
+                1000);
+        mCache.isSystemPrivilegedOrPlatformKey(statusBarNotification);
+
+        setPackageInfo(/* privateFlags= */ 0);
+        mCache.invalidatePackage(PKG);
+
+        assertThat(mCache.isSystemPrivilegedOrPlatformKey(statusBarNotification)).isFalse();
+    }
+
+    @Test
+    public void isCarCompatibleMessaging_samePostTime_shouldReturnCachedResult() {
+        StatusBarNotification statusBarNotification = createStatusBarNotification(/* postTime= */
+                1000);
+        ShadowCarAssistUtils.addMessageNotification(statusBarNotification.getKey());
+        mCache.isCarCompatibleMessaging(statusBarNotification);
+
+        ShadowCarAssistUtils.reset();
+
+        assertThat(mCache.isCarCompatibleMessaging(
+                createStatusBarNotification(/* postTime= */ 1000))).isTrue();
+    }
+
+    @Test
+    public void isCarCompatibleMessaging_newPostTime_shouldCheckAgain() {
+        StatusBarNotification statusBarNotification = createStatusBarNotification(/* postTime= */
+                1000);
+        ShadowCarAssistUtils.addMessageNotification(statusBarNotification.getKey());
+        mCache.isCarCompatibleMessaging(statusBarNotification);
+
+        ShadowCarAssistUtils.reset();
+
+        assertThat(mCache.isCarCompatibleMessaging(
+                createStatusBarNotification(/* postTime= */ 2000))).isFalse();
+    }
+
+    private StatusBarNotification createStatusBarNotification(long postTime) {
+        Notification notification = new Notification.Builder(mContext, CHANNEL_ID)
+                .setSmallIcon(android.R.drawable.sym_def_app_icon)
+                .build();
+        return new StatusBarNotification(PKG, OP_PKG, ID, TAG, UID, INITIAL_PID, notification,
+                USER_HANDLE, /* overrideGroupKey= */ null, postTime);
+    }
+
+    private void setPackageInfo(int privateFlags) {
+        PackageInfo packageInfo = new PackageInfo();
+        packageInfo.packageName = PKG;
+        packageInfo.applicationInfo = new ApplicationInfo();
+        packageInfo.applicationInfo.privateFlags = privateFlags;
+        ShadowApplicationPackageManager.setPackageInfo(packageInfo);
+    }
+}
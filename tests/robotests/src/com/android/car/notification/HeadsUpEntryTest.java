@@ -20,6 +20,8 @@ import static com.google.common.truth.Truth.assertThat;
 
 import android.app.Notification;
 import android.content.Context;
+import android.os.Handler;
+import android.os.SystemClock;
 import android.os.UserHandle;
 import android.service.notification.StatusBarNotification;
 import android.widget.FrameLayout;
@@ -71,7 +73,7 @@ public class HeadsUpEntryTest {
 
     @Test
     public void headsUpEntry_shouldInitializePostTime() {
-        long currentTme = System.currentTimeMillis();
+        long currentTme = SystemClock.uptimeMillis();
         mHeadsUpEntry = new HeadsUpEntry(mNotification1);
 
         assertThat(mHeadsUpEntry.getPostTime()).isNotEqualTo(0);
@@ -92,8 +94,22 @@ public class HeadsUpEntryTest {
     }
 
     @Test
-    public void headsUpEntry_shouldInitializeHandler() {
-        assertThat(mHeadsUpEntry.getHandler()).isNotNull();
+    public void headsUpEntry_shouldNotHaveDismissTimeout() {
+        assertThat(mHeadsUpEntry.getDismissTimeout()).isNull();
+    }
+
+    @Test
+    public void setDismissTimeout_shouldCancelPreviousTimeout() {
+        HeadsUpTimerWheel timerWheel =
+                new HeadsUpTimerWheel(new Handler(), SystemClock::uptimeMillis);
+        HeadsUpTimerWheel.Timeout firstTimeout = timerWheel.schedule(() -> {}, /* delay= */ 100);
+        HeadsUpTimerWheel.Timeout secondTimeout = timerWheel.schedule(() -> {}, /* delay= */ 100);
+
+        mHeadsUpEntry.setDismissTimeout(firstTimeout);
+        mHeadsUpEntry.setDismissTimeout(secondTimeout);
+
+        assertThat(firstTimeout.isPending()).isFalse();
+        assertThat(mHeadsUpEntry.getDismissTimeout()).isSameAs(secondTimeout);
     }
 
     @Test
@@ -107,6 +123,22 @@ public class HeadsUpEntryTest {
         assertThat(mHeadsUpEntry.getNotificationView()).isNotNull();
     }
 
+    @Test
+    public void detachCardView_shouldStopNotifyingLayoutChanges() {
+        FrameLayout cardView = new FrameLayout(mContext);
+        int[] layoutCount = new int[1];
+        mHeadsUpEntry.attachCardView(cardView,
+                (view, left, top, right, bottom, oldLeft, oldTop, oldRight, oldBottom) ->
+                        layoutCount[0]++);
+        cardView.layout(0, 0, 100, 100);
+
+        mHeadsUpEntry.detachCardView();
+        cardView.layout(0, 0, 200, 200);
+
+        assertThat(layoutCount[0]).isEqualTo(1);
+        assertThat(mHeadsUpEntry.getCardView()).isNull();
+    }
+
     @Test
     public void setViewHolder_shouldSetViewHolder() {
         mHeadsUpEntry = new HeadsUpEntry(mNotification1);
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package com.android.car.notification;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.os.SystemClock;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+@RunWith(RobolectricTestRunner.class)
+public class HeadsUpLatencyTrackerTest {
+    private static final String KEY = "key";
+
+    private HeadsUpLatencyTracker mTracker;
+
+    @Before
+    public void setup() {
+        mTracker = new HeadsUpLatencyTracker();
+    }
+
+    @Test
+    public void onFirstFrame_shouldRecordTotalLatencyOfPriority() {
+        mTracker.onNotificationPosted(KEY);
+        SystemClock.sleep(10);
+        mTracker.onStage(KEY, HeadsUpLatencyTracker.STAGE_BIND);
+
+        mTracker.onFirstFrame(KEY, HeadsUpQueue.PRIORITY_CALL);
+
+        assertThat(mTracker.getTotalPercentile(HeadsUpQueue.PRIORITY_CALL, 50)).isEqualTo(12);
+        assertThat(mTracker.getTotalPercentile(HeadsUpQueue.PRIORITY_MESSAGE, 50)).isEqualTo(0);
+    }
+
+    @Test
+    public void onFirstFrame_afterCancel_shouldNotRecordLatency() {
+        mTracker.onNotificationPosted(KEY);
+        mTracker.cancel(KEY);
+
+        mTracker.onFirstFrame(KEY, HeadsUpQueue.PRIORITY_CALL);
+
+        assertThat(mTracker.getTotalPercentile(HeadsUpQueue.PRIORITY_CALL, 50)).isEqualTo(0);
+    }
+
+    @Test
+    public void dump_shouldPrintMeasuredStages() {
+        mTracker.onNotificationPosted(KEY);
+        mTracker.onStage(KEY, HeadsUpLatencyTracker.STAGE_BIND);
+        mTracker.onFirstFrame(KEY, HeadsUpQueue.PRIORITY_MESSAGE);
+        StringWriter output = new StringWriter();
+
+        mTracker.dump(new PrintWriter(output));
+
+        assertThat(output.toString()).contains("message: count=1");
+        assertThat(output.toString()).contains("bind");
+        assertThat(output.toString()).doesNotContain("layout");
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package com.android.car.notification;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.app.Notification;
+import android.content.Context;
+import android.os.UserHandle;
+import android.service.notification.StatusBarNotification;
+
+import com.android.car.notification.testutils.ShadowCarAssistUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(shadows = {ShadowCarAssistUtils.class})
+public class HeadsUpQueueTest {
+    private static final String PKG = "package";
+    private static final String CHANNEL_ID = "CHANNEL_ID";
+    private static final UserHandle USER_HANDLE = new UserHandle(12);
+
+    private Context mContext;
+    private HeadsUpQueue mQueue;
+
+    @Before
+    public void setup() {
+        mContext = RuntimeEnvironment.application;
+        mQueue = new HeadsUpQueue();
+    }
+
+    @After
+    public void tearDown() {
+        ShadowCarAssistUtils.reset();
+    }
+
+    @Test
+    public void getPriority_shouldRankEmergencyAboveCallAboveNavigationAboveMessage() {
+        assertThat(HeadsUpQueue.getPriority(
+                createNotification(1, Notification.CATEGORY_CAR_EMERGENCY)))
+                .isEqualTo(HeadsUpQueue.PRIORITY_CAR_EMERGENCY);
+        assertThat(HeadsUpQueue.getPriority(createNotification(2, Notification.CATEGORY_CALL)))
+                .isEqualTo(HeadsUpQueue.PRIORITY_CALL);
+        assertThat(HeadsUpQueue.getPriority(
+                createNotification(3, Notification.CATEGORY_NAVIGATION)))
+                .isEqualTo(HeadsUpQueue.PRIORITY_NAVIGATION);
+        assertThat(HeadsUpQueue.getPriority(createNotification(4, Notification.CATEGORY_MESSAGE)))
+                .isEqualTo(HeadsUpQueue.PRIORITY_MESSAGE);
+        assertThat(HeadsUpQueue.getPriority(createNotification(5, /* category= */ null)))
+                .isEqualTo(HeadsUpQueue.PRIORITY_OTHER);
+    }
+
+    @Test
+    public void poll_shouldReturnHighestPriorityFirst() {
+        StatusBarNotification message = createNotification(1, Notification.CATEGORY_MESSAGE);
+        StatusBarNotification call = createNotification(2, Notification.CATEGORY_CALL);
+        mQueue.enqueue(message, /* rankingMap= */ null, HeadsUpQueue.PRIORITY_MESSAGE,
+                /* hasAlerted= */ false, HeadsUpQueue.NO_DEADLINE);
+        mQueue.enqueue(call, /* rankingMap= */ null, HeadsUpQueue.PRIORITY_CALL,
+                /* hasAlerted= */ false, HeadsUpQueue.NO_DEADLINE);
+
+        assertThat(mQueue.poll().getStatusBarNotification()).isSameAs(call);
+        assertThat(mQueue.poll().getStatusBarNotification()).isSameAs(message);
+        assertThat(mQueue.poll()).isNull();
+    }
+
+    @Test
+    public void enqueue_update_shouldKeepPlaceInQueue() {
+        StatusBarNotification first = createNotification(1, Notification.CATEGORY_MESSAGE);
+        StatusBarNotification second = createNotification(2, Notification.CATEGORY_MESSAGE);
+        StatusBarNotification firstUpdate = createNotification(1, Notification.CATEGORY_MESSAGE);
+        mQueue.enqueue(first, /* rankingMap= */ null, HeadsUpQueue.PRIORITY_MESSAGE,
+                /* hasAlerted= */ false, HeadsUpQueue.NO_DEADLINE);
+        mQueue.enqueue(second, /* rankingMap= */ null, HeadsUpQueue.PRIORITY_MESSAGE,
+                /* hasAlerted= */ false, HeadsUpQueue.NO_DEADLINE);
+        mQueue.enqueue(firstUpdate, /* rankingMap= */ null, HeadsUpQueue.PRIORITY_MESSAGE,
+                /* hasAlerted= */ false, HeadsUpQueue.NO_DEADLINE);
+
+        assertThat(mQueue.size()).isEqualTo(2);
+        assertThat(mQueue.poll().getStatusBarNotification()).isSameAs(firstUpdate);
+    }
+
+    @Test
+    public void get_shouldReturnQueuedNotificationWithAlertState() {
+        StatusBarNotification alerted = createNotification(1, Notification.CATEGORY_MESSAGE);
+        StatusBarNotification notAlerted = createNotification(2, Notification.CATEGORY_MESSAGE);
+        mQueue.enqueue(alerted, /* rankingMap= */ null, HeadsUpQueue.PRIORITY_MESSAGE,
+                /* hasAlerted= */ true, HeadsUpQueue.NO_DEADLINE);
+        mQueue.enqueue(notAlerted, /* rankingMap= */ null, HeadsUpQueue.PRIORITY_MESSAGE,
+                /* hasAlerted= */ false, HeadsUpQueue.NO_DEADLINE);
+
+        assertThat(mQueue.get(alerted.getKey()).hasAlerted()).isTrue();
+        assertThat(mQueue.get(notAlerted.getKey()).hasAlerted()).isFalse();
+        assertThat(mQueue.get("unknown_key")).isNull();
+    }
+
+    @Test
+    public void enqueue_shouldKeepGivenPriority() {
+        StatusBarNotification message = createNotification(1, Notification.CATEGORY_MESSAGE);
+        StatusBarNotification other = createNotification(2, /* category= */ null);
+        mQueue.enqueue(message, /* rankingMap= */ null, HeadsUpQueue.PRIORITY_MESSAGE,
+                /* hasAlerted= */ false, HeadsUpQueue.NO_DEADLINE);
+        mQueue.enqueue(other, /* rankingMap= */ null, HeadsUpQueue.PRIORITY_CALL,
+                /* hasAlerted= */ false, HeadsUpQueue.NO_DEADLINE);
+
+        HeadsUpQueue.PendingHeadsUp first = mQueue.poll();
+        assertThat(first.getStatusBarNotification()).isSameAs(other);
+        assertThat(first.getPriority()).isEqualTo(HeadsUpQueue.PRIORITY_CALL);
+    }
+
+    @Test
+    public void removeExpired_shouldOnlyRemovePastDeadlines() {
+        StatusBarNotification expiring = createNotification(1, Notification.CATEGORY_MESSAGE);
+        StatusBarNotification waiting = createNotification(2, Notification.CATEGORY_MESSAGE);
+        mQueue.enqueue(expiring, /* rankingMap= */ null, HeadsUpQueue.PRIORITY_MESSAGE,
+                /* hasAlerted= */ false, /* deadline= */ 100);
+        mQueue.enqueue(waiting, /* rankingMap= */ null, HeadsUpQueue.PRIORITY_MESSAGE,
+                /* hasAlerted= */ false, /* deadline= */ 200);
+        List<HeadsUpQueue.PendingHeadsUp> expired = new ArrayList<>();
+
+        mQueue.removeExpired(/* now= */ 150, expired);
+
+        assertThat(expired).hasSize(1);
+        assertThat(expired.get(0).getStatusBarNotification()).isSameAs(expiring);
+        assertThat(mQueue.getNextDeadline()).isEqualTo(200);
+    }
+
+    private StatusBarNotification createNotification(int id, String category) {
+        Notification notification = new Notification.Builder(mContext, CHANNEL_ID)
+                .setCategory(category)
+                .setSmallIcon(android.R.drawable.sym_def_app_icon)
+                .build();
+        return new StatusBarNotification(PKG, PKG, id, /* tag= */ null, /* uid= */ 0,
+                /* initialPid= */ 0, notification, USER_HANDLE, /* overrideGroupKey= */ null,
+                /* postTime= */ 0);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package com.android.car.notification;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.os.Handler;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class HeadsUpTimerWheelTest {
+
+    private long mNow;
+    private HeadsUpTimerWheel mTimerWheel;
+    private List<String> mRunTasks;
+
+    @Before
+    public void setup() {
+        mNow = 1000;
+        mTimerWheel = new HeadsUpTimerWheel(new Handler(), () -> mNow);
+        mRunTasks = new ArrayList<>();
+    }
+
+    @Test
+    public void tick_beforeDeadline_shouldNotRunTask() {
+        mTimerWheel.schedule(() -> mRunTasks.add("task"), /* delayMillis= */ 500);
+
+        advanceTo(1499);
+
+        assertThat(mRunTasks).isEmpty();
+    }
+
+    @Test
+    public void tick_atDeadline_shouldRunTaskOnce() {
+        HeadsUpTimerWheel.Timeout timeout =
+                mTimerWheel.schedule(() -> mRunTasks.add("task"), /* delayMillis= */ 500);
+
+        advanceTo(1500);
+        advanceTo(1600);
+
+        assertThat(mRunTasks).containsExactly("task");
+        assertThat(timeout.isPending()).isFalse();
+    }
+
+    @Test
+    public void tick_cancelledTask_shouldNotRunTask() {
+        HeadsUpTimerWheel.Timeout timeout =
+                mTimerWheel.schedule(() -> mRunTasks.add("task"), /* delayMillis= */ 500);
+
+        timeout.cancel();
+        advanceTo(2000);
+
+        assertThat(mRunTasks).isEmpty();
+    }
+
+    @Test
+    public void tick_deadlineBeyondOneRevolution_shouldRunTaskAtDeadline() {
+        mTimerWheel.schedule(() -> mRunTasks.add("late"), /* delayMillis= */ 60_000);
+        mTimerWheel.schedule(() -> mRunTasks.add("early"), /* delayMillis= */ 100);
+
+        advanceTo(1100);
+        assertThat(mRunTasks).containsExactly("early");
+
+        advanceTo(60_999);
+        assertThat(mRunTasks).containsExactly("early");
+
+        advanceTo(61_000);
+        assertThat(mRunTasks).containsExactly("early", "late").inOrder();
+    }
+
+    @Test
+    public void tick_taskSchedulingAnotherTask_shouldRunBoth() {
+        mTimerWheel.schedule(() -> {
+            mRunTasks.add("first");
+            mTimerWheel.schedule(() -> mRunTasks.add("second"), /* delayMillis= */ 200);
+        }, /* delayMillis= */ 100);
+
+        advanceTo(1100);
+        advanceTo(1300);
+
+        assertThat(mRunTasks).containsExactly("first", "second").inOrder();
+    }
+
+    /**
+     * Moves the clock forward in steps of one tick, ticking the wheel at each step as the handler
+     * would.
+     */
+    private void advanceTo(long time) {
+        while (mNow < time) {
+            mNow = Math.min(mNow + HeadsUpTimerWheel.TICK_MILLIS, time);
+            mTimerWheel.tick();
+        }
+    }
+}
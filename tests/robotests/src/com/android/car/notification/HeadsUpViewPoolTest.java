@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package com.android.car.notification;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+
+import com.android.car.notification.template.CallNotificationViewHolder;
+import com.android.car.notification.template.CarNotificationBaseViewHolder;
+import com.android.car.notification.template.MessageNotificationViewHolder;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+@RunWith(RobolectricTestRunner.class)
+public class HeadsUpViewPoolTest {
+
+    @Mock
+    NotificationClickHandlerFactory mClickHandlerFactory;
+
+    private HeadsUpViewPool mPool;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        Context context = RuntimeEnvironment.application;
+        mPool = new HeadsUpViewPool(context, mClickHandlerFactory);
+    }
+
+    @Test
+    public void obtain_shouldCreateViewHolderForViewType() {
+        assertThat(mPool.obtain(NotificationViewType.CALL))
+                .isInstanceOf(CallNotificationViewHolder.class);
+        assertThat(mPool.obtain(NotificationViewType.MESSAGE_HEADSUP))
+                .isInstanceOf(MessageNotificationViewHolder.class);
+    }
+
+    @Test
+    public void obtain_afterRelease_shouldReuseViewHolder() {
+        CarNotificationBaseViewHolder viewHolder = mPool.obtain(NotificationViewType.CALL);
+        viewHolder.itemView.setTranslationY(-100f);
+
+        mPool.release(viewHolder);
+
+        assertThat(mPool.obtain(NotificationViewType.CALL)).isSameAs(viewHolder);
+        assertThat(viewHolder.itemView.getTranslationY()).isEqualTo(0f);
+    }
+
+    @Test
+    public void obtain_afterReleaseOfOtherViewType_shouldNotReuseViewHolder() {
+        CarNotificationBaseViewHolder viewHolder = mPool.obtain(NotificationViewType.CALL);
+
+        mPool.release(viewHolder);
+
+        assertThat(mPool.obtain(NotificationViewType.NAVIGATION)).isNotSameAs(viewHolder);
+    }
+
+    @Test
+    public void release_afterClickHandlerFactoryChanged_shouldDropViewHolder() {
+        CarNotificationBaseViewHolder viewHolder = mPool.obtain(NotificationViewType.CALL);
+        mPool.setClickHandlerFactory(mClickHandlerFactory);
+
+        mPool.release(viewHolder);
+
+        assertThat(mPool.obtain(NotificationViewType.CALL)).isNotSameAs(viewHolder);
+    }
+}
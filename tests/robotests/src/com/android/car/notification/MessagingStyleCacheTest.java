@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+
+package com.android.car.notification;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.app.Notification;
+import android.app.Person;
+import android.content.Context;
+import android.os.Bundle;
+import android.os.UserHandle;
+import android.service.notification.StatusBarNotification;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Collections;
+
+@RunWith(RobolectricTestRunner.class)
+public class MessagingStyleCacheTest {
+    private static final String PKG = "package_1";
+    private static final String OP_PKG = "OpPackage";
+    private static final String TAG = "Tag";
+    private static final String CHANNEL_ID = "channel_id";
+    private static final String OVERRIDE_GROUP_KEY = "override_group_key";
+    private static final String SENDER = "sender";
+    private static final int ID = 1;
+    private static final int UID = 2;
+    private static final int INITIAL_PID = 3;
+    private static final long POST_TIME = 12345;
+    private static final UserHandle USER_HANDLE = UserHandle.of(10);
+
+    @Mock
+    CarHeadsUpNotificationManager mHeadsUpManager;
+    @Mock
+    NotificationDataManager mNotificationDataManager;
+
+    private Context mContext;
+    private MessagingStyleCache mCache;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        mContext = RuntimeEnvironment.application;
+        mCache = new MessagingStyleCache(/* maxSize= */ 10);
+    }
+
+    @Test
+    public void getLatestMessage_samePostTime_shouldReturnCachedMessage() {
+        StatusBarNotification notification = createMessage(ID, "first", SENDER, POST_TIME);
+        MessagingStyleCache.LatestMessage latestMessage = mCache.getLatestMessage(notification);
+
+        assertThat(mCache.getLatestMessage(createMessage(ID, "second", SENDER, POST_TIME)))
+                .isSameAs(latestMessage);
+        assertThat(latestMessage.getText().toString()).isEqualTo("first");
+        assertThat(latestMessage.getSenderName().toString()).isEqualTo(SENDER);
+        assertThat(latestMessage.getMessageCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void getLatestMessage_changedPostTime_shouldParseAgain() {
+        mCache.getLatestMessage(createMessage(ID, "first", SENDER, POST_TIME));
+
+        MessagingStyleCache.LatestMessage latestMessage =
+                mCache.getLatestMessage(createMessage(ID, "second", SENDER, POST_TIME + 1));
+
+        assertThat(latestMessage.getText().toString()).isEqualTo("second");
+    }
+
+    @Test
+    public void getLatestMessage_noMessages_shouldReturnNull() {
+        Notification notification = new Notification.Builder(mContext, CHANNEL_ID)
+                .setSmallIcon(android.R.drawable.sym_def_app_icon)
+                .build();
+
+        assertThat(mCache.getLatestMessage(createStatusBarNotification(ID, notification,
+                POST_TIME))).isNull();
+    }
+
+    @Test
+    public void remove_shouldParseAgain() {
+        StatusBarNotification notification = createMessage(ID, "first", SENDER, POST_TIME);
+        MessagingStyleCache.LatestMessage latestMessage = mCache.getLatestMessage(notification);
+
+        mCache.remove(notification.getKey());
+
+        assertThat(mCache.getLatestMessage(notification)).isNotSameAs(latestMessage);
+    }
+
+    @Test
+    public void onNotificationRemoved_shouldDropCachedMessage() {
+        MessagingStyleCache cache = MessagingStyleCache.getInstance(mContext);
+        StatusBarNotification notification = createMessage(ID, "first", SENDER, POST_TIME);
+        MessagingStyleCache.LatestMessage latestMessage = cache.getLatestMessage(notification);
+        CarNotificationListener listener = new CarNotificationListener(mContext,
+                mHeadsUpManager, mNotificationDataManager);
+
+        listener.onNotificationRemoved(notification);
+
+        assertThat(cache.getLatestMessage(notification)).isNotSameAs(latestMessage);
+    }
+
+    @Test
+    public void generateChildTitles_latestMessageWithoutSender_shouldSkipChild() {
+        NotificationGroup notificationGroup = new NotificationGroup();
+        notificationGroup.addNotification(createMessage(ID, "first", /* sender= */ null,
+                POST_TIME));
+        notificationGroup.addNotification(createMessage(ID + 1, "second", SENDER, POST_TIME));
+
+        assertThat(notificationGroup.generateChildTitles(mContext)).containsExactly(SENDER);
+    }
+
+    private StatusBarNotification createMessage(int id, String text, String sender,
+            long postTime) {
+        Person person = sender != null ? new Person.Builder().setName(sender).build() : null;
+        Bundle extras = new Bundle();
+        extras.putParcelableArray(Notification.EXTRA_MESSAGES,
+                Notification.MessagingStyle.Message.getBundleArrayForMessages(
+                        Collections.singletonList(new Notification.MessagingStyle.Message(
+                                text, postTime, person))));
+        // no title, so that group summaries fall back to the sender of the latest message
+        Notification notification = new Notification.Builder(mContext, CHANNEL_ID)
+                .setSmallIcon(android.R.drawable.sym_def_app_icon)
+                .addExtras(extras)
+                .build();
+        return createStatusBarNotification(id, notification, postTime);
+    }
+
+    private StatusBarNotification createStatusBarNotification(int id, Notification notification,
+            long postTime) {
+        return new StatusBarNotification(PKG, OP_PKG, id, TAG, UID, INITIAL_PID, notification,
+                USER_HANDLE, OVERRIDE_GROUP_KEY, postTime);
+    }
+}
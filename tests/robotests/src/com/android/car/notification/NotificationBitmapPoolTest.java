@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+
+package com.android.car.notification;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.graphics.Bitmap;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class NotificationBitmapPoolTest {
+    private static final int MAX_SIZE = 2;
+    private static final int WIDTH = 40;
+    private static final int HEIGHT = 20;
+
+    private NotificationBitmapPool mBitmapPool;
+
+    @Before
+    public void setup() {
+        mBitmapPool = new NotificationBitmapPool(MAX_SIZE);
+    }
+
+    @Test
+    public void obtain_emptyPool_shouldCreateBitmapOfRequestedSize() {
+        Bitmap bitmap = mBitmapPool.obtain(WIDTH, HEIGHT);
+
+        assertThat(bitmap.getWidth()).isEqualTo(WIDTH);
+        assertThat(bitmap.getHeight()).isEqualTo(HEIGHT);
+        assertThat(bitmap.isMutable()).isTrue();
+    }
+
+    @Test
+    public void obtain_releasedBitmapOfSameSize_shouldReuseBitmap() {
+        Bitmap bitmap = mBitmapPool.obtain(WIDTH, HEIGHT);
+        mBitmapPool.release(bitmap);
+
+        assertThat(mBitmapPool.obtain(WIDTH, HEIGHT)).isSameAs(bitmap);
+        assertThat(mBitmapPool.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void obtain_releasedBitmapOfOtherSize_shouldNotReuseBitmap() {
+        Bitmap bitmap = mBitmapPool.obtain(WIDTH, HEIGHT);
+        mBitmapPool.release(bitmap);
+
+        Bitmap transposed = mBitmapPool.obtain(HEIGHT, WIDTH);
+
+        assertThat(transposed).isNotSameAs(bitmap);
+        assertThat(transposed.getWidth()).isEqualTo(HEIGHT);
+        assertThat(transposed.getHeight()).isEqualTo(WIDTH);
+        assertThat(mBitmapPool.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void release_poolFull_shouldDropBitmap() {
+        for (int i = 0; i <= MAX_SIZE; i++) {
+            mBitmapPool.release(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+        }
+
+        assertThat(mBitmapPool.size()).isEqualTo(MAX_SIZE);
+    }
+
+    @Test
+    public void release_recycledBitmap_shouldDropBitmap() {
+        Bitmap bitmap = mBitmapPool.obtain(WIDTH, HEIGHT);
+        bitmap.recycle();
+
+        mBitmapPool.release(bitmap);
+
+        assertThat(mBitmapPool.size()).isEqualTo(0);
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package com.android.car.notification;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import android.app.ActivityManager;
+import android.app.Notification;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.RemoteException;
+import android.os.UserHandle;
+import android.service.notification.StatusBarNotification;
+import android.view.View;
+import android.widget.Button;
+
+import com.android.car.notification.testutils.ShadowCarAssistUtils;
+import com.android.internal.statusbar.IStatusBarService;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(shadows = {ShadowCarAssistUtils.class})
+public class NotificationClickHandlerFactoryTest {
+    private static final String PKG = "package_1";
+    private static final String OP_PKG = "OpPackage";
+    private static final String TAG = "Tag";
+    private static final String CHANNEL_ID = "channel_id";
+    private static final String ACTION_TITLE = "action";
+    private static final int ID = 1;
+    private static final int UID = 2;
+    private static final int INITIAL_PID = 3;
+    private static final int USER_ID = 10;
+
+    @Mock
+    IStatusBarService mBarService;
+    @Mock
+    NotificationClickHandlerFactory.Callback mCallback;
+
+    private Context mContext;
+    private NotificationClickHandlerFactory mClickHandlerFactory;
+    private View mView;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        mContext = RuntimeEnvironment.application;
+        mClickHandlerFactory = new NotificationClickHandlerFactory(mBarService, mCallback);
+        mView = new View(mContext);
+    }
+
+    @After
+    public void tearDown() {
+        ShadowCarAssistUtils.reset();
+    }
+
+    @Test
+    public void handleActionClick_shouldNotifyCallbackAndBarService() throws RemoteException {
+        StatusBarNotification statusBarNotification =
+                createStatusBarNotification(createPendingIntent());
+
+        mClickHandlerFactory.handleActionClick(mView, statusBarNotification, /* index= */ 0);
+
+        verify(mCallback).onNotificationClicked(ActivityManager.START_SUCCESS);
+        verify(mBarService).onNotificationActionClick(eq(statusBarNotification.getKey()),
+                eq(0), any(Notification.Action.class), any(), eq(false));
+    }
+
+    @Test
+    public void handleActionClick_canceledIntent_shouldNotNotifyBarService()
+            throws RemoteException {
+        PendingIntent pendingIntent = createPendingIntent();
+        pendingIntent.cancel();
+        StatusBarNotification statusBarNotification = createStatusBarNotification(pendingIntent);
+
+        mClickHandlerFactory.handleActionClick(mView, statusBarNotification, /* index= */ 0);
+
+        verify(mCallback).onNotificationClicked(ActivityManager.START_ABORTED);
+        verify(mBarService, never()).onNotificationActionClick(any(), anyInt(), any(), any(),
+                eq(false));
+    }
+
+    @Test
+    public void getActionClickHandler_shouldHandleActionClick() throws RemoteException {
+        StatusBarNotification statusBarNotification =
+                createStatusBarNotification(createPendingIntent());
+
+        mClickHandlerFactory.getActionClickHandler(statusBarNotification, /* index= */ 0)
+                .onClick(mView);
+
+        verify(mBarService).onNotificationActionClick(eq(statusBarNotification.getKey()),
+                eq(0), any(Notification.Action.class), any(), eq(false));
+    }
+
+    @Test
+    public void handlePlayClick_notMessageNotification_shouldDoNothing() {
+        mClickHandlerFactory.handlePlayClick(mView,
+                createStatusBarNotification(createPendingIntent()));
+
+        verifyZeroInteractions(mCallback, mBarService);
+    }
+
+    @Test
+    public void handleMuteClick_shouldToggleMuteAndLabel() {
+        StatusBarNotification statusBarNotification =
+                createStatusBarNotification(createPendingIntent());
+        ShadowCarAssistUtils.addMessageNotification(statusBarNotification.getKey());
+        NotificationDataManager notificationDataManager = new NotificationDataManager();
+        notificationDataManager.isMessageNotificationMuted(statusBarNotification);
+        mClickHandlerFactory.setNotificationDataManager(notificationDataManager);
+        Button muteButton = new Button(mContext);
+
+        mClickHandlerFactory.handleMuteClick(muteButton, statusBarNotification);
+
+        assertThat(notificationDataManager.isMessageNotificationMuted(statusBarNotification))
+                .isTrue();
+        assertThat(muteButton.getText().toString())
+                .isEqualTo(mContext.getString(R.string.action_unmute_long));
+
+        mClickHandlerFactory.handleMuteClick(muteButton, statusBarNotification);
+
+        assertThat(notificationDataManager.isMessageNotificationMuted(statusBarNotification))
+                .isFalse();
+        assertThat(muteButton.getText().toString())
+                .isEqualTo(mContext.getString(R.string.action_mute_long));
+        verifyZeroInteractions(mCallback);
+    }
+
+    @Test
+    public void handleMuteClick_noNotificationDataManager_shouldKeepLabel() {
+        Button muteButton = new Button(mContext);
+        muteButton.setText(R.string.action_mute_long);
+
+        mClickHandlerFactory.handleMuteClick(muteButton,
+                createStatusBarNotification(createPendingIntent()));
+
+        assertThat(muteButton.getText().toString())
+                .isEqualTo(mContext.getString(R.string.action_mute_long));
+    }
+
+    private PendingIntent createPendingIntent() {
+        return PendingIntent.getBroadcast(mContext, /* requestCode= */ 0, new Intent(ACTION_TITLE),
+                /* flags= */ 0);
+    }
+
+    private StatusBarNotification createStatusBarNotification(PendingIntent actionIntent) {
+        Notification notification = new Notification.Builder(mContext, CHANNEL_ID)
+                .setSmallIcon(android.R.drawable.sym_def_app_icon)
+                .addAction(new Notification.Action.Builder(/* icon= */ null, ACTION_TITLE,
+                        actionIntent).build())
+                .build();
+        return new StatusBarNotification(PKG, OP_PKG, ID, TAG, UID, INITIAL_PID, notification,
+                UserHandle.of(USER_ID), /* overrideGroupKey= */ null, /* postTime= */ 0);
+    }
+}
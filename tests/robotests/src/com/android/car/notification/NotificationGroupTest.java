@@ -151,8 +151,10 @@ public class NotificationGroupTest {
     public void generateChildTitles_shouldReturnListOfStringWithChildTiles() {
         mNotificationGroup.addNotification(mNOTIFICATION1);
         mNotificationGroup.addNotification(mNOTIFICATION1);
-        assertThat(mNotificationGroup.generateChildTitles().get(0)).isEqualTo(CONTENT_TITLE);
-        assertThat(mNotificationGroup.generateChildTitles().get(1)).isEqualTo(CONTENT_TITLE);
+        assertThat(mNotificationGroup.generateChildTitles(mContext).get(0))
+                .isEqualTo(CONTENT_TITLE);
+        assertThat(mNotificationGroup.generateChildTitles(mContext).get(1))
+                .isEqualTo(CONTENT_TITLE);
     }
 
     @Test
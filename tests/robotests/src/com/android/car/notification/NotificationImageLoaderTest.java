@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+
+package com.android.car.notification;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.Icon;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+public class NotificationImageLoaderTest {
+    private static final int SIZE = 40;
+
+    private Context mContext;
+    private QueueExecutor mExecutor;
+    private NotificationBitmapPool mBitmapPool;
+    private NotificationImageLoader mImageLoader;
+    private Icon mIcon;
+
+    @Before
+    public void setup() {
+        mContext = RuntimeEnvironment.application;
+        mExecutor = new QueueExecutor();
+        mBitmapPool = new NotificationBitmapPool(/* maxSize= */ 4);
+        mImageLoader = new NotificationImageLoader(mContext, mBitmapPool, mExecutor);
+        // resource icons are loaded in the background
+        mIcon = Icon.createWithResource(mContext, R.drawable.image_placeholder);
+    }
+
+    @Test
+    public void loadIcon_resourceIcon_shouldShowPlaceholderUntilLoaded() {
+        ImageView view = createImageView();
+
+        mImageLoader.loadIcon(view, mIcon, mContext);
+
+        assertThat(view.getDrawable()).isNotNull();
+        assertThat(view.getDrawable()).isNotInstanceOf(BitmapDrawable.class);
+        assertThat(view.getTag(R.id.image_load_request)).isNotNull();
+
+        mExecutor.runAll();
+        ShadowLooper.idleMainLooper();
+
+        Bitmap bitmap = getShownBitmap(view);
+        assertThat(bitmap.getWidth()).isEqualTo(SIZE);
+        assertThat(bitmap.getHeight()).isEqualTo(SIZE);
+        assertThat(view.getTag(R.id.pooled_bitmap)).isSameAs(bitmap);
+        assertThat(view.getTag(R.id.image_load_request)).isNull();
+    }
+
+    @Test
+    public void loadIcon_reboundBeforeDelivery_shouldDropStaleImage() {
+        ImageView view = createImageView();
+        mImageLoader.loadIcon(view, mIcon, mContext);
+        ShadowLooper.pauseMainLooper();
+        // the first image is loaded, but not delivered before the view is rebound
+        mExecutor.runAll();
+
+        mImageLoader.loadIcon(view, mIcon, mContext);
+        mExecutor.runAll();
+        ShadowLooper.unPauseMainLooper();
+        ShadowLooper.idleMainLooper();
+
+        assertThat(view.getTag(R.id.pooled_bitmap)).isSameAs(getShownBitmap(view));
+        assertThat(view.getTag(R.id.image_load_request)).isNull();
+        // the stale image went back to the pool
+        assertThat(mBitmapPool.size()).isEqualTo(1);
+        assertThat(mBitmapPool.obtain(SIZE, SIZE)).isNotSameAs(getShownBitmap(view));
+    }
+
+    @Test
+    public void cancel_beforeLoad_shouldNotLoadImage() {
+        ImageView view = createImageView();
+        mImageLoader.loadIcon(view, mIcon, mContext);
+
+        mImageLoader.cancel(view);
+        mExecutor.runAll();
+        ShadowLooper.idleMainLooper();
+
+        assertThat(view.getTag(R.id.image_load_request)).isNull();
+        assertThat(view.getDrawable()).isNotInstanceOf(BitmapDrawable.class);
+        assertThat(mBitmapPool.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void cancel_loadedImage_shouldReleasePooledBitmap() {
+        ImageView view = createImageView();
+        mImageLoader.loadIcon(view, mIcon, mContext);
+        mExecutor.runAll();
+        ShadowLooper.idleMainLooper();
+        Bitmap bitmap = getShownBitmap(view);
+
+        mImageLoader.cancel(view);
+
+        assertThat(view.getDrawable()).isNull();
+        assertThat(view.getTag(R.id.pooled_bitmap)).isNull();
+        assertThat(mBitmapPool.size()).isEqualTo(1);
+        assertThat(mBitmapPool.obtain(SIZE, SIZE)).isSameAs(bitmap);
+    }
+
+    @Test
+    public void loadIcon_otherViewOfSameSize_shouldNotReuseShownBitmap() {
+        ImageView view = createImageView();
+        ImageView otherView = createImageView();
+        mImageLoader.loadIcon(view, createBitmapIcon(), mContext);
+        Bitmap bitmap = getShownBitmap(view);
+
+        mImageLoader.loadIcon(otherView, createBitmapIcon(), mContext);
+
+        assertThat(getShownBitmap(otherView)).isNotSameAs(bitmap);
+        assertThat(getShownBitmap(view)).isSameAs(bitmap);
+    }
+
+    @Test
+    public void loadIcon_afterCancel_shouldReuseBitmapNoLongerShown() {
+        ImageView view = createImageView();
+        ImageView otherView = createImageView();
+        mImageLoader.loadIcon(view, createBitmapIcon(), mContext);
+        Bitmap bitmap = getShownBitmap(view);
+
+        mImageLoader.cancel(view);
+        mImageLoader.loadIcon(otherView, createBitmapIcon(), mContext);
+
+        assertThat(getShownBitmap(otherView)).isSameAs(bitmap);
+        assertThat(view.getDrawable()).isNull();
+    }
+
+    @Test
+    public void scale_widerDrawable_shouldCropToCenter() {
+        Drawable drawable = new SizedDrawable(/* width= */ 100, /* height= */ 50);
+
+        Bitmap bitmap = mImageLoader.scale(drawable, SIZE, SIZE);
+
+        assertThat(bitmap.getWidth()).isEqualTo(SIZE);
+        assertThat(bitmap.getHeight()).isEqualTo(SIZE);
+        // scaled to 80x40 and centered horizontally
+        assertThat(drawable.getBounds()).isEqualTo(new Rect(-20, 0, 60, 40));
+    }
+
+    @Test
+    public void scale_tallerDrawable_shouldCropToCenter() {
+        Drawable drawable = new SizedDrawable(/* width= */ 20, /* height= */ 80);
+
+        mImageLoader.scale(drawable, SIZE, SIZE);
+
+        // scaled to 40x160 and centered vertically
+        assertThat(drawable.getBounds()).isEqualTo(new Rect(0, -60, 40, 100));
+    }
+
+    @Test
+    public void scale_drawableWithoutIntrinsicSize_shouldFillBitmap() {
+        Drawable drawable = new SizedDrawable(/* width= */ -1, /* height= */ -1);
+
+        mImageLoader.scale(drawable, SIZE, SIZE);
+
+        assertThat(drawable.getBounds()).isEqualTo(new Rect(0, 0, SIZE, SIZE));
+    }
+
+    private ImageView createImageView() {
+        ImageView view = new ImageView(mContext);
+        view.setLayoutParams(new ViewGroup.LayoutParams(SIZE, SIZE));
+        return view;
+    }
+
+    private static Icon createBitmapIcon() {
+        // bitmap icons are set synchronously
+        return Icon.createWithBitmap(Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888));
+    }
+
+    private static Bitmap getShownBitmap(ImageView view) {
+        Drawable drawable = view.getDrawable();
+        assertThat(drawable).isInstanceOf(BitmapDrawable.class);
+        return ((BitmapDrawable) drawable).getBitmap();
+    }
+
+    private static class SizedDrawable extends ColorDrawable {
+        private final int mWidth;
+        private final int mHeight;
+
+        SizedDrawable(int width, int height) {
+            mWidth = width;
+            mHeight = height;
+        }
+
+        @Override
+        public int getIntrinsicWidth() {
+            return mWidth;
+        }
+
+        @Override
+        public int getIntrinsicHeight() {
+            return mHeight;
+        }
+    }
+
+    /**
+     * Runs submitted loads only when the test asks for it.
+     */
+    private static class QueueExecutor extends AbstractExecutorService {
+        private final List<Runnable> mTasks = new ArrayList<>();
+
+        void runAll() {
+            List<Runnable> tasks = new ArrayList<>(mTasks);
+            mTasks.clear();
+            for (Runnable task : tasks) {
+                task.run();
+            }
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            mTasks.add(command);
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package com.android.car.notification;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.text.PrecomputedText;
+import android.text.SpannableString;
+import android.util.TypedValue;
+import android.widget.TextView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+@RunWith(RobolectricTestRunner.class)
+public class NotificationTextPrecomputerTest {
+    private static final int VIEW_ID = R.id.notification_body_title;
+    private static final String FIRST_TEXT = "first text";
+    private static final String SECOND_TEXT = "second text";
+
+    private Context mContext;
+    private NotificationTextPrecomputer mPrecomputer;
+    private TextView mTextView;
+
+    @Before
+    public void setup() {
+        mContext = RuntimeEnvironment.application;
+        // measure synchronously so that precomputed texts are available right away
+        mPrecomputer = new NotificationTextPrecomputer(mContext, Runnable::run);
+        mTextView = createTextView(/* textSizeSp= */ 16);
+    }
+
+    @Test
+    public void setText_afterPrefetch_shouldSetPrecomputedText() {
+        mPrecomputer.setText(mTextView, FIRST_TEXT);
+
+        mPrecomputer.prefetch(VIEW_ID, SECOND_TEXT);
+        mPrecomputer.setText(mTextView, SECOND_TEXT);
+
+        assertThat(mTextView.getText()).isInstanceOf(PrecomputedText.class);
+        assertThat(mTextView.getText().toString()).isEqualTo(SECOND_TEXT);
+    }
+
+    @Test
+    public void setText_sameTextAgain_shouldSetPrecomputedText() {
+        mPrecomputer.setText(mTextView, FIRST_TEXT);
+        assertThat(mTextView.getText()).isNotInstanceOf(PrecomputedText.class);
+
+        mPrecomputer.setText(mTextView, FIRST_TEXT);
+
+        assertThat(mTextView.getText()).isInstanceOf(PrecomputedText.class);
+    }
+
+    @Test
+    public void prefetch_beforeSetText_shouldNotPrecompute() {
+        mPrecomputer.prefetch(VIEW_ID, FIRST_TEXT);
+
+        mPrecomputer.setText(mTextView, FIRST_TEXT);
+
+        assertThat(mTextView.getText()).isNotInstanceOf(PrecomputedText.class);
+    }
+
+    @Test
+    public void setText_paramsChanged_shouldNotSetTextMeasuredWithOldParams() {
+        mPrecomputer.setText(mTextView, FIRST_TEXT);
+        mPrecomputer.prefetch(VIEW_ID, SECOND_TEXT);
+
+        mTextView.setTextSize(TypedValue.COMPLEX_UNIT_SP, 24);
+        mPrecomputer.setText(mTextView, SECOND_TEXT);
+
+        assertThat(mTextView.getText()).isNotInstanceOf(PrecomputedText.class);
+        assertThat(mTextView.getText().toString()).isEqualTo(SECOND_TEXT);
+    }
+
+    @Test
+    public void setText_otherViewWithSameIdAndOtherParams_shouldNotSetTextMeasuredForFirstView() {
+        mPrecomputer.setText(mTextView, FIRST_TEXT);
+        mPrecomputer.prefetch(VIEW_ID, SECOND_TEXT);
+        TextView otherTextView = createTextView(/* textSizeSp= */ 24);
+
+        mPrecomputer.setText(otherTextView, SECOND_TEXT);
+        mPrecomputer.setText(mTextView, SECOND_TEXT);
+
+        assertThat(otherTextView.getText()).isNotInstanceOf(PrecomputedText.class);
+        assertThat(mTextView.getText()).isInstanceOf(PrecomputedText.class);
+    }
+
+    @Test
+    public void setText_spannedText_shouldNotPrecompute() {
+        SpannableString text = new SpannableString(FIRST_TEXT);
+        mPrecomputer.setText(mTextView, text);
+
+        mPrecomputer.setText(mTextView, text);
+
+        assertThat(mTextView.getText()).isNotInstanceOf(PrecomputedText.class);
+    }
+
+    @Test
+    public void setText_viewWithoutId_shouldNotPrecompute() {
+        TextView textView = new TextView(mContext);
+        mPrecomputer.setText(textView, FIRST_TEXT);
+
+        mPrecomputer.setText(textView, FIRST_TEXT);
+
+        assertThat(textView.getText()).isNotInstanceOf(PrecomputedText.class);
+    }
+
+    private TextView createTextView(float textSizeSp) {
+        TextView textView = new TextView(mContext);
+        textView.setId(VIEW_ID);
+        textView.setTextSize(TypedValue.COMPLEX_UNIT_SP, textSizeSp);
+        return textView;
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package com.android.car.notification;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+@RunWith(RobolectricTestRunner.class)
+public class NotificationViewPoolWarmerTest {
+
+    @Mock
+    NotificationClickHandlerFactory mClickHandlerFactory;
+
+    private Context mContext;
+    private CarNotificationViewAdapter mAdapter;
+    private RecyclerView mParent;
+    private NotificationViewPoolWarmer.UsageTrackingViewPool mViewPool;
+    private int mDefaultCount;
+    private int mMaxCount;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        mContext = RuntimeEnvironment.application;
+        mAdapter = new CarNotificationViewAdapter(mContext, /* isGroupNotificationAdapter= */
+                false);
+        mAdapter.setClickHandlerFactory(mClickHandlerFactory);
+        mParent = new RecyclerView(mContext);
+        mViewPool = (NotificationViewPoolWarmer.UsageTrackingViewPool) mAdapter.getViewPool();
+        mDefaultCount = mContext.getResources().getInteger(R.integer.config_viewPoolPrewarmCount);
+        mMaxCount = mContext.getResources().getInteger(R.integer.config_viewPoolMaxPrewarmCount);
+    }
+
+    @After
+    public void resetTunedCounts() {
+        NotificationViewPoolWarmer.resetTunedCounts();
+    }
+
+    @Test
+    public void queueIdle_shouldInflateOneViewHolderPerCallback() {
+        NotificationViewPoolWarmer warmer = startWarmer();
+
+        assertThat(warmer.queueIdle()).isTrue();
+
+        assertThat(mViewPool.getRecycledViewCount(NotificationViewType.BASIC)).isEqualTo(1);
+        assertThat(mViewPool.getRecycledViewCount(NotificationViewType.MESSAGE)).isEqualTo(0);
+    }
+
+    @Test
+    public void queueIdle_poolFilled_shouldStop() {
+        NotificationViewPoolWarmer warmer = startWarmer();
+
+        int callbacks = 0;
+        while (warmer.queueIdle()) {
+            callbacks++;
+        }
+
+        assertThat(callbacks).isGreaterThan(0);
+        assertThat(mViewPool.getRecycledViewCount(NotificationViewType.BASIC))
+                .isEqualTo(mDefaultCount);
+        assertThat(warmer.queueIdle()).isFalse();
+    }
+
+    @Test
+    public void getRecycledView_shouldCountHitsAndMisses() {
+        startWarmer().queueIdle();
+
+        mViewPool.getRecycledView(NotificationViewType.BASIC);
+        mViewPool.getRecycledView(NotificationViewType.BASIC);
+
+        assertThat(mViewPool.getHitCount(NotificationViewType.BASIC)).isEqualTo(1);
+        assertThat(mViewPool.getMissCount(NotificationViewType.BASIC)).isEqualTo(1);
+    }
+
+    @Test
+    public void stop_withMisses_shouldPrepareMoreNextSession() {
+        NotificationViewPoolWarmer warmer = startWarmer();
+        mViewPool.getRecycledView(NotificationViewType.BASIC);
+        mViewPool.getRecycledView(NotificationViewType.BASIC);
+        warmer.stop();
+
+        fillPool(startWarmer());
+
+        assertThat(mViewPool.getRecycledViewCount(NotificationViewType.BASIC))
+                .isEqualTo(Math.min(mDefaultCount + 2, mMaxCount));
+    }
+
+    @Test
+    public void stop_withoutHits_shouldPrepareFewerNextSession() {
+        startWarmer().stop();
+
+        fillPool(startWarmer());
+
+        assertThat(mViewPool.getRecycledViewCount(NotificationViewType.BASIC))
+                .isEqualTo(Math.max(mDefaultCount - 1, 0));
+    }
+
+    @Test
+    public void stop_withHitsOnly_shouldKeepCount() {
+        NotificationViewPoolWarmer warmer = startWarmer();
+        fillPool(warmer);
+        mViewPool.getRecycledView(NotificationViewType.BASIC);
+        warmer.stop();
+
+        mViewPool.clear();
+        fillPool(startWarmer());
+
+        assertThat(mViewPool.getRecycledViewCount(NotificationViewType.BASIC))
+                .isEqualTo(mDefaultCount);
+    }
+
+    @Test
+    public void stop_shouldResetUsage() {
+        NotificationViewPoolWarmer warmer = startWarmer();
+        mViewPool.getRecycledView(NotificationViewType.BASIC);
+
+        warmer.stop();
+
+        assertThat(mViewPool.getMissCount(NotificationViewType.BASIC)).isEqualTo(0);
+    }
+
+    private NotificationViewPoolWarmer startWarmer() {
+        NotificationViewPoolWarmer warmer =
+                new NotificationViewPoolWarmer(mContext, mAdapter, mParent);
+        warmer.start();
+        return warmer;
+    }
+
+    private static void fillPool(NotificationViewPoolWarmer warmer) {
+        while (warmer.queueIdle()) {
+            // inflate until every view type reached its count
+        }
+    }
+}
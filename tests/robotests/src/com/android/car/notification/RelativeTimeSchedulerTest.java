@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package com.android.car.notification;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.text.format.DateUtils;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class RelativeTimeSchedulerTest {
+
+    private RelativeTimeScheduler mScheduler;
+    private List<Long> mFirstListenerTicks;
+    private List<Long> mSecondListenerTicks;
+
+    @Before
+    public void setup() {
+        mScheduler = new RelativeTimeScheduler();
+        mFirstListenerTicks = new ArrayList<>();
+        mSecondListenerTicks = new ArrayList<>();
+        mScheduler.addListener(mFirstListenerTicks::add);
+        mScheduler.addListener(mSecondListenerTicks::add);
+    }
+
+    @Test
+    public void tick_shouldRefreshAllListenersWithSameTime() {
+        mScheduler.tick();
+
+        assertThat(mFirstListenerTicks).hasSize(1);
+        assertThat(mSecondListenerTicks).isEqualTo(mFirstListenerTicks);
+    }
+
+    @Test
+    public void setIsInForeground_true_shouldRefreshImmediately() {
+        mScheduler.setIsInForeground(true);
+
+        assertThat(mFirstListenerTicks).hasSize(1);
+        assertThat(mSecondListenerTicks).hasSize(1);
+    }
+
+    @Test
+    public void setIsInForeground_false_shouldNotTick() {
+        mScheduler.setIsInForeground(true);
+        mScheduler.setIsInForeground(false);
+
+        ShadowLooper.idleMainLooper(DateUtils.MINUTE_IN_MILLIS);
+
+        assertThat(mFirstListenerTicks).hasSize(1);
+    }
+
+    @Test
+    public void inForeground_shouldTickOncePerMinute() {
+        mScheduler.setIsInForeground(true);
+
+        ShadowLooper.idleMainLooper(DateUtils.MINUTE_IN_MILLIS);
+
+        assertThat(mFirstListenerTicks).hasSize(2);
+    }
+
+    @Test
+    public void headsUpShown_inBackground_shouldTickOncePerMinute() {
+        mScheduler.setIsHeadsUpShown(true);
+
+        ShadowLooper.idleMainLooper(DateUtils.MINUTE_IN_MILLIS);
+
+        assertThat(mFirstListenerTicks).hasSize(2);
+    }
+
+    @Test
+    public void setIsInForeground_falseWhileHeadsUpShown_shouldKeepTicking() {
+        mScheduler.setIsInForeground(true);
+        mScheduler.setIsHeadsUpShown(true);
+        mScheduler.setIsInForeground(false);
+
+        ShadowLooper.idleMainLooper(DateUtils.MINUTE_IN_MILLIS);
+
+        assertThat(mFirstListenerTicks).hasSize(2);
+    }
+
+    @Test
+    public void setIsHeadsUpShown_false_shouldNotTick() {
+        mScheduler.setIsHeadsUpShown(true);
+        mScheduler.setIsHeadsUpShown(false);
+
+        ShadowLooper.idleMainLooper(DateUtils.MINUTE_IN_MILLIS);
+
+        assertThat(mFirstListenerTicks).hasSize(1);
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package com.android.car.notification.template;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import android.app.Notification;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.graphics.drawable.Drawable;
+import android.os.UserHandle;
+import android.service.notification.StatusBarNotification;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.widget.Button;
+
+import com.android.car.notification.NotificationClickHandlerFactory;
+import com.android.car.notification.R;
+import com.android.car.notification.testutils.ShadowCarAssistUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(shadows = {ShadowCarAssistUtils.class})
+public class CarNotificationActionsViewTest {
+    private static final String PKG = "package_1";
+    private static final String OP_PKG = "OpPackage";
+    private static final String TAG = "Tag";
+    private static final String CHANNEL_ID = "channel_id";
+    private static final String ACTION_TITLE = "action";
+    private static final int ID = 1;
+    private static final int UID = 2;
+    private static final int INITIAL_PID = 3;
+    private static final int USER_ID = 10;
+
+    @Mock
+    NotificationClickHandlerFactory mClickHandlerFactory;
+
+    private Context mContext;
+    private CarNotificationActionsView mActionsView;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        mContext = RuntimeEnvironment.application;
+        CarNotificationActionsView.resetCallButtonBackgrounds();
+        mActionsView = inflateActionsView(R.layout.basic_notification_template);
+    }
+
+    @After
+    public void tearDown() {
+        ShadowCarAssistUtils.reset();
+        CarNotificationActionsView.resetCallButtonBackgrounds();
+    }
+
+    @Test
+    public void bind_actionWithoutIntent_shouldShowEnabledButton() {
+        mActionsView.bind(mClickHandlerFactory,
+                createStatusBarNotification(/* actionIntent= */ null));
+
+        assertThat(getButton(R.id.action_1).getVisibility()).isEqualTo(View.VISIBLE);
+        assertThat(getButton(R.id.action_1).isEnabled()).isTrue();
+    }
+
+    @Test
+    public void clickAction_actionWithoutIntent_shouldDoNothing() {
+        mActionsView.bind(mClickHandlerFactory,
+                createStatusBarNotification(/* actionIntent= */ null));
+
+        getButton(R.id.action_1).performClick();
+
+        verify(mClickHandlerFactory, never()).handleActionClick(any(), any(), anyInt());
+    }
+
+    @Test
+    public void clickAction_shouldHandleActionOfBoundNotification() {
+        StatusBarNotification statusBarNotification =
+                createStatusBarNotification(createPendingIntent());
+        mActionsView.bind(mClickHandlerFactory, statusBarNotification);
+
+        getButton(R.id.action_1).performClick();
+
+        verify(mClickHandlerFactory).handleActionClick(getButton(R.id.action_1),
+                statusBarNotification, /* index= */ 0);
+    }
+
+    @Test
+    public void clickAction_afterReset_shouldDoNothing() {
+        mActionsView.bind(mClickHandlerFactory, createStatusBarNotification(createPendingIntent()));
+        mActionsView.reset();
+
+        getButton(R.id.action_1).performClick();
+
+        verify(mClickHandlerFactory, never()).handleActionClick(any(), any(), anyInt());
+    }
+
+    @Test
+    public void clickPlayAndMute_messageNotification_shouldHandlePlayAndMute() {
+        StatusBarNotification statusBarNotification =
+                createStatusBarNotification(createPendingIntent());
+        ShadowCarAssistUtils.addMessageNotification(statusBarNotification.getKey());
+        mActionsView.bind(mClickHandlerFactory, statusBarNotification);
+
+        getButton(R.id.action_1).performClick();
+        getButton(R.id.action_2).performClick();
+
+        verify(mClickHandlerFactory).handlePlayClick(getButton(R.id.action_1),
+                statusBarNotification);
+        verify(mClickHandlerFactory).handleMuteClick(getButton(R.id.action_2),
+                statusBarNotification);
+        verify(mClickHandlerFactory, never()).handleActionClick(any(), any(), anyInt());
+    }
+
+    @Test
+    public void inflate_notCallTemplate_shouldNotLoadCallButtonBackgrounds() {
+        assertThat(CarNotificationActionsView.getAcceptButtonBackground()).isNull();
+        assertThat(CarNotificationActionsView.getDeclineButtonBackground()).isNull();
+    }
+
+    @Test
+    public void inflate_callTemplates_shouldShareCallButtonBackgrounds() {
+        inflateActionsView(R.layout.call_notification_template);
+        Drawable.ConstantState acceptButtonBackground =
+                CarNotificationActionsView.getAcceptButtonBackground();
+        Drawable.ConstantState declineButtonBackground =
+                CarNotificationActionsView.getDeclineButtonBackground();
+
+        inflateActionsView(R.layout.call_headsup_notification_template);
+
+        assertThat(acceptButtonBackground).isNotNull();
+        assertThat(declineButtonBackground).isNotNull();
+        assertThat(CarNotificationActionsView.getAcceptButtonBackground())
+                .isSameAs(acceptButtonBackground);
+        assertThat(CarNotificationActionsView.getDeclineButtonBackground())
+                .isSameAs(declineButtonBackground);
+    }
+
+    @Test
+    public void inflate_callTemplateAfterThemeChange_shouldReloadCallButtonBackgrounds() {
+        inflateActionsView(R.layout.call_notification_template);
+        Drawable.ConstantState acceptButtonBackground =
+                CarNotificationActionsView.getAcceptButtonBackground();
+        Drawable.ConstantState declineButtonBackground =
+                CarNotificationActionsView.getDeclineButtonBackground();
+
+        RuntimeEnvironment.setQualifiers("+night");
+        inflateActionsView(R.layout.call_notification_template);
+
+        assertThat(CarNotificationActionsView.getAcceptButtonBackground())
+                .isNotSameAs(acceptButtonBackground);
+        assertThat(CarNotificationActionsView.getDeclineButtonBackground())
+                .isNotSameAs(declineButtonBackground);
+    }
+
+    private CarNotificationActionsView inflateActionsView(int layoutId) {
+        View view = LayoutInflater.from(mContext).inflate(layoutId, /* root= */ null);
+        return view.findViewById(R.id.notification_actions);
+    }
+
+    private Button getButton(int id) {
+        return mActionsView.findViewById(id);
+    }
+
+    private PendingIntent createPendingIntent() {
+        return PendingIntent.getBroadcast(mContext, /* requestCode= */ 0, new Intent(ACTION_TITLE),
+                /* flags= */ 0);
+    }
+
+    private StatusBarNotification createStatusBarNotification(PendingIntent actionIntent) {
+        Notification notification = new Notification.Builder(mContext, CHANNEL_ID)
+                .setSmallIcon(android.R.drawable.sym_def_app_icon)
+                .addAction(new Notification.Action.Builder(/* icon= */ null, ACTION_TITLE,
+                        actionIntent).build())
+                .build();
+        return new StatusBarNotification(PKG, OP_PKG, ID, TAG, UID, INITIAL_PID, notification,
+                UserHandle.of(USER_ID), /* overrideGroupKey= */ null, /* postTime= */ 0);
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package com.android.car.notification.template;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.app.Notification;
+import android.os.UserHandle;
+import android.service.notification.StatusBarNotification;
+
+import com.android.car.notification.testutils.ShadowApplicationPackageManager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(shadows = {ShadowApplicationPackageManager.class})
+public class NotificationBindModelCacheTest {
+    private static final String PKG = "package_1";
+    private static final String OP_PKG = "OpPackage";
+    private static final String TAG = "Tag";
+    private static final String CHANNEL_ID = "channel_id";
+    private static final int ID = 1;
+    private static final int OTHER_ID = 2;
+    private static final int UID = 2;
+    private static final int INITIAL_PID = 3;
+    private static final int USER_ID = 10;
+
+    private final List<Runnable> mPendingTasks = new ArrayList<>();
+    private NotificationBindModelCache mCache;
+
+    @Before
+    public void setup() {
+        mCache = new NotificationBindModelCache(RuntimeEnvironment.application,
+                mPendingTasks::add);
+    }
+
+    @After
+    public void tearDown() {
+        ShadowApplicationPackageManager.reset();
+    }
+
+    @Test
+    public void get_samePostTime_shouldReturnCachedModel() {
+        NotificationBindModel model =
+                mCache.get(createStatusBarNotification(ID, /* postTime= */ 1));
+
+        assertThat(mCache.get(createStatusBarNotification(ID, /* postTime= */ 1)))
+                .isSameAs(model);
+    }
+
+    @Test
+    public void get_newPostTime_shouldBuildNewModel() {
+        NotificationBindModel model =
+                mCache.get(createStatusBarNotification(ID, /* postTime= */ 1));
+
+        NotificationBindModel updatedModel =
+                mCache.get(createStatusBarNotification(ID, /* postTime= */ 2));
+
+        assertThat(updatedModel).isNotSameAs(model);
+        assertThat(updatedModel.getPostTime()).isEqualTo(2);
+    }
+
+    @Test
+    public void get_otherKey_shouldBuildNewModel() {
+        NotificationBindModel model =
+                mCache.get(createStatusBarNotification(ID, /* postTime= */ 1));
+
+        assertThat(mCache.get(createStatusBarNotification(OTHER_ID, /* postTime= */ 1)))
+                .isNotSameAs(model);
+    }
+
+    @Test
+    public void prefetch_shouldBuildModelInBackground() {
+        StatusBarNotification statusBarNotification =
+                createStatusBarNotification(ID, /* postTime= */ 1);
+
+        mCache.prefetch(statusBarNotification);
+
+        assertThat(mPendingTasks).hasSize(1);
+    }
+
+    @Test
+    public void get_afterPrefetch_shouldNotBuildAgain() {
+        StatusBarNotification statusBarNotification =
+                createStatusBarNotification(ID, /* postTime= */ 1);
+        mCache.prefetch(statusBarNotification);
+        runPendingTasks();
+
+        mCache.prefetch(statusBarNotification);
+
+        assertThat(mPendingTasks).isEmpty();
+        assertThat(mCache.get(statusBarNotification).getPostTime()).isEqualTo(1);
+    }
+
+    @Test
+    public void prefetch_cachedModel_shouldNotBuildAgain() {
+        StatusBarNotification statusBarNotification =
+                createStatusBarNotification(ID, /* postTime= */ 1);
+        mCache.get(statusBarNotification);
+
+        mCache.prefetch(statusBarNotification);
+
+        assertThat(mPendingTasks).isEmpty();
+    }
+
+    @Test
+    public void prefetch_newPostTime_shouldBuildAgain() {
+        mCache.get(createStatusBarNotification(ID, /* postTime= */ 1));
+
+        mCache.prefetch(createStatusBarNotification(ID, /* postTime= */ 2));
+
+        assertThat(mPendingTasks).hasSize(1);
+    }
+
+    private void runPendingTasks() {
+        for (Runnable task : mPendingTasks) {
+            task.run();
+        }
+        mPendingTasks.clear();
+    }
+
+    private static StatusBarNotification createStatusBarNotification(int id, long postTime) {
+        Notification notification = new Notification.Builder(RuntimeEnvironment.application,
+                CHANNEL_ID)
+                .setSmallIcon(android.R.drawable.sym_def_app_icon)
+                .build();
+        return new StatusBarNotification(PKG, OP_PKG, id, TAG, UID, INITIAL_PID, notification,
+                UserHandle.of(USER_ID), /* overrideGroupKey= */ null, postTime);
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package com.android.car.notification.template;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.app.Notification;
+import android.graphics.Color;
+import android.os.UserHandle;
+import android.service.notification.StatusBarNotification;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+@RunWith(RobolectricTestRunner.class)
+public class NotificationBindModelTest {
+    private static final String PKG = "package_1";
+    private static final String OP_PKG = "OpPackage";
+    private static final String TAG = "Tag";
+    private static final String CHANNEL_ID = "channel_id";
+    private static final String SEPARATOR = " - ";
+    private static final String TITLE = "title";
+    private static final String TEXT = "text";
+    private static final String SUB_TEXT = "sub text";
+    private static final String INFO_TEXT = "info text";
+    private static final int ID = 1;
+    private static final int UID = 2;
+    private static final int INITIAL_PID = 3;
+    private static final int USER_ID = 10;
+    private static final long POST_TIME = 12345;
+
+    @Test
+    public void create_colorizedAndCanChangeColor_shouldBeColorized() {
+        NotificationBindModel model = NotificationBindModel.create(createStatusBarNotification(
+                createBuilder().setColor(Color.RED).setColorized(true)),
+                /* canChangeCardBackgroundColor= */ true, SEPARATOR);
+
+        assertThat(model.isColorized()).isTrue();
+        assertThat(model.getColor()).isEqualTo(Color.RED);
+    }
+
+    @Test
+    public void create_colorizedButCannotChangeColor_shouldNotBeColorized() {
+        NotificationBindModel model = NotificationBindModel.create(createStatusBarNotification(
+                createBuilder().setColor(Color.RED).setColorized(true)),
+                /* canChangeCardBackgroundColor= */ false, SEPARATOR);
+
+        assertThat(model.isColorized()).isFalse();
+    }
+
+    @Test
+    public void create_colorizedWithoutColor_shouldNotBeColorized() {
+        NotificationBindModel model = NotificationBindModel.create(createStatusBarNotification(
+                createBuilder().setColorized(true)),
+                /* canChangeCardBackgroundColor= */ true, SEPARATOR);
+
+        assertThat(model.isColorized()).isFalse();
+    }
+
+    @Test
+    public void create_shouldKeepPostTime() {
+        NotificationBindModel model = NotificationBindModel.create(
+                createStatusBarNotification(createBuilder()),
+                /* canChangeCardBackgroundColor= */ false, SEPARATOR);
+
+        assertThat(model.getPostTime()).isEqualTo(POST_TIME);
+    }
+
+    @Test
+    public void create_withSubTextAndInfoText_shouldAppendThemToHeaderExtraText() {
+        NotificationBindModel model = NotificationBindModel.create(createStatusBarNotification(
+                createBuilder().setSubText(SUB_TEXT).setContentInfo(INFO_TEXT)
+                        .setShowWhen(false)),
+                /* canChangeCardBackgroundColor= */ false, SEPARATOR);
+
+        assertThat(model.getHeaderExtraText())
+                .isEqualTo(SEPARATOR + SUB_TEXT + SEPARATOR + INFO_TEXT);
+        assertThat(model.showsTime()).isFalse();
+    }
+
+    @Test
+    public void create_showsTime_shouldEndHeaderExtraTextWithSeparator() {
+        NotificationBindModel model = NotificationBindModel.create(createStatusBarNotification(
+                createBuilder().setShowWhen(true).setWhen(POST_TIME)),
+                /* canChangeCardBackgroundColor= */ false, SEPARATOR);
+
+        assertThat(model.getHeaderExtraText()).isEqualTo(SEPARATOR);
+        assertThat(model.showsTime()).isTrue();
+        assertThat(model.getWhen()).isEqualTo(POST_TIME);
+    }
+
+    @Test
+    public void create_shouldReadTitleAndText() {
+        NotificationBindModel model = NotificationBindModel.create(createStatusBarNotification(
+                createBuilder().setContentTitle(TITLE).setContentText(TEXT)),
+                /* canChangeCardBackgroundColor= */ false, SEPARATOR);
+
+        assertThat(model.getTitle().toString()).isEqualTo(TITLE);
+        assertThat(model.getText().toString()).isEqualTo(TEXT);
+    }
+
+    @Test
+    public void create_inboxStyle_shouldReadBigTitleAndSummaryText() {
+        NotificationBindModel model = NotificationBindModel.create(createStatusBarNotification(
+                createBuilder().setStyle(new Notification.InboxStyle()
+                        .setBigContentTitle(TITLE)
+                        .setSummaryText(TEXT))),
+                /* canChangeCardBackgroundColor= */ false, SEPARATOR);
+
+        assertThat(model.getBigTitle().toString()).isEqualTo(TITLE);
+        assertThat(model.getSummaryText().toString()).isEqualTo(TEXT);
+    }
+
+    @Test
+    public void create_withProgress_shouldReadProgress() {
+        NotificationBindModel model = NotificationBindModel.create(createStatusBarNotification(
+                createBuilder().setProgress(/* max= */ 100, /* progress= */ 42,
+                        /* indeterminate= */ false)),
+                /* canChangeCardBackgroundColor= */ false, SEPARATOR);
+
+        assertThat(model.getProgress()).isEqualTo(42);
+        assertThat(model.getProgressMax()).isEqualTo(100);
+        assertThat(model.isProgressIndeterminate()).isFalse();
+    }
+
+    @Test
+    public void create_withIndeterminateProgress_shouldBeIndeterminate() {
+        NotificationBindModel model = NotificationBindModel.create(createStatusBarNotification(
+                createBuilder().setProgress(/* max= */ 0, /* progress= */ 0,
+                        /* indeterminate= */ true)),
+                /* canChangeCardBackgroundColor= */ false, SEPARATOR);
+
+        assertThat(model.isProgressIndeterminate()).isTrue();
+    }
+
+    private static Notification.Builder createBuilder() {
+        return new Notification.Builder(RuntimeEnvironment.application, CHANNEL_ID)
+                .setSmallIcon(android.R.drawable.sym_def_app_icon);
+    }
+
+    private static StatusBarNotification createStatusBarNotification(
+            Notification.Builder builder) {
+        return new StatusBarNotification(PKG, OP_PKG, ID, TAG, UID, INITIAL_PID, builder.build(),
+                UserHandle.of(USER_ID), /* overrideGroupKey= */ null, POST_TIME);
+    }
+}